@@ -0,0 +1,89 @@
+package es.angelkrasimirov.timeweaver.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.socket.TextMessage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.angelkrasimirov.timeweaver.dtos.WebSocketMessage;
+import es.angelkrasimirov.timeweaver.websockets.WebSocketFrameEncoder;
+
+/**
+ * Cost of one "update" broadcast as the number of recipients grows, comparing
+ * a serialization per recipient with a single shared frame. The GC profiler
+ * reports the allocation per broadcast.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+
+  @Param({ "1", "10", "100", "1000" })
+  public int recipients;
+
+  private ObjectMapper objectMapper;
+  private WebSocketFrameEncoder frameEncoder;
+  private WebSocketMessage message;
+  private List<BenchmarkWebSocketSession> sessions;
+
+  @Setup
+  public void setUp() {
+    objectMapper = new ObjectMapper();
+    frameEncoder = new WebSocketFrameEncoder(objectMapper);
+
+    Map<String, Object> event = new HashMap<>();
+    event.put("id", "7f1c2a9e-5b7d-4d0e-9a53-0c1f6f0b2d11");
+    event.put("content", "Battle of the northern pass");
+    event.put("start", "1415-10-25T00:00:00.000Z");
+    event.put("end", "1415-10-26T00:00:00.000Z");
+    event.put("group", "chapter-3");
+    event.put("className", "event-red");
+    event.put("details", "The vanguard holds the ridge until dusk while the main army crosses the river.");
+    message = new WebSocketMessage("update", Map.of("data", event, "username", "testuser"));
+
+    sessions = new ArrayList<>(recipients);
+    for (int i = 0; i < recipients; i++) {
+      sessions.add(new BenchmarkWebSocketSession("session-" + i));
+    }
+  }
+
+  @Benchmark
+  public long serializePerRecipient() throws Exception {
+    long sent = 0;
+    for (BenchmarkWebSocketSession session : sessions) {
+      session.sendMessage(new TextMessage(objectMapper.writeValueAsString(message)));
+      sent += session.getSentPayloadLength();
+    }
+    return sent;
+  }
+
+  @Benchmark
+  public long serializeOnce() throws Exception {
+    TextMessage frame = frameEncoder.encode(message);
+    long sent = 0;
+    for (BenchmarkWebSocketSession session : sessions) {
+      session.sendMessage(frame);
+      sent += session.getSentPayloadLength();
+    }
+    return sent;
+  }
+}
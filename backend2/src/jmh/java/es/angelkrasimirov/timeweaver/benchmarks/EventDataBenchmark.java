@@ -0,0 +1,77 @@
+package es.angelkrasimirov.timeweaver.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Deserialization of stored event data into the maps that make up a
+ * project's in-memory state, as done when the first session of a project
+ * connects.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDataBenchmark {
+
+  private static final TypeReference<Map<String, Object>> EVENT_DATA_TYPE = new TypeReference<>() {
+  };
+
+  @Param({ "1", "1000" })
+  public int events;
+
+  private ObjectMapper objectMapper;
+  private List<String> ids;
+  private List<String> storedData;
+
+  @Setup
+  public void setUp() throws Exception {
+    objectMapper = new ObjectMapper();
+    ids = new ArrayList<>(events);
+    storedData = new ArrayList<>(events);
+    for (int i = 0; i < events; i++) {
+      String id = String.format("7f1c2a9e-5b7d-4d0e-9a53-%012d", i);
+      Map<String, Object> event = new HashMap<>();
+      event.put("id", id);
+      event.put("content", "Event " + i);
+      event.put("start", String.format("%04d-03-14T00:00:00.000Z", 1000 + i % 1000));
+      event.put("end", String.format("%04d-03-15T00:00:00.000Z", 1000 + i % 1000));
+      event.put("group", "chapter-" + i % 12);
+      event.put("className", "event-red");
+      event.put("details", "Notes for event " + i + ": the vanguard holds the ridge until dusk.");
+      ids.add(id);
+      storedData.add(objectMapper.writeValueAsString(event));
+    }
+  }
+
+  @Benchmark
+  public Map<String, Map<String, Object>> loadProjectEvents() throws Exception {
+    Map<String, Map<String, Object>> projectEvents = new HashMap<>();
+    for (int i = 0; i < events; i++) {
+      Map<String, Object> eventContent = objectMapper.readValue(storedData.get(i), EVENT_DATA_TYPE);
+      eventContent.put("id", ids.get(i));
+      projectEvents.put(ids.get(i), eventContent);
+    }
+    return projectEvents;
+  }
+}
@@ -0,0 +1,101 @@
+package es.angelkrasimirov.timeweaver.benchmarks;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.web.socket.TextMessage;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.angelkrasimirov.timeweaver.dtos.WebSocketMessage;
+import es.angelkrasimirov.timeweaver.websockets.ClientOperation;
+import es.angelkrasimirov.timeweaver.websockets.ClientOperationParser;
+import es.angelkrasimirov.timeweaver.websockets.WebSocketFrameEncoder;
+
+/**
+ * Inbound path of an update: reading the client frame, producing the JSON
+ * stored for the event and the content kept in memory, and encoding the
+ * broadcast frame. {@code treePath} is the previous map-based handling and
+ * {@code streamingPath} the current one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InboundOperationBenchmark {
+
+  private static final TypeReference<Map<String, Object>> MESSAGE_TYPE = new TypeReference<>() {
+  };
+
+  private ObjectMapper objectMapper;
+  private ClientOperationParser parser;
+  private WebSocketFrameEncoder frameEncoder;
+  private String frame;
+
+  @Setup
+  public void setUp() {
+    objectMapper = new ObjectMapper();
+    parser = new ClientOperationParser(objectMapper);
+    frameEncoder = new WebSocketFrameEncoder(objectMapper);
+    frame = """
+        {"type":"update","data":{"opId":"17","timestamp":1767225600000,"data":{\
+        "id":"7f1c2a9e-5b7d-4d0e-9a53-000000004242","content":"Battle of the northern pass",\
+        "start":"1205-03-14T00:00:00.000Z","end":"1205-03-19T00:00:00.000Z","group":"chapter-3",\
+        "type":"range","className":"event-war","title":"The garrison holds for five days",\
+        "description":"After the bridge falls the defenders fall back to the upper fort, where the siege \
+        lasts until the relief column arrives from the coast.",\
+        "tags":["war","siege","north"],"characters":["Aldren","Mira","Captain Holt"]}}}""";
+  }
+
+  @Benchmark
+  @SuppressWarnings("unchecked")
+  public void treePath(Blackhole blackhole) throws IOException {
+    Map<String, Object> message = objectMapper.readValue(frame, MESSAGE_TYPE);
+    Map<String, Object> outer = (Map<String, Object>) message.get("data");
+    Map<String, Object> inner = (Map<String, Object>) outer.get("data");
+    blackhole.consume(inner.get("id"));
+    blackhole.consume(objectMapper.writeValueAsString(inner));
+    Map<String, Object> content = new HashMap<>(inner);
+    blackhole.consume(content);
+    blackhole.consume(objectMapper.writeValueAsString(new WebSocketMessage((String) message.get("type"),
+        Map.of("data", content, "username", "mira"))));
+  }
+
+  @Benchmark
+  public void streamingPath(Blackhole blackhole) throws IOException {
+    ClientOperation operation = parser.parse(frame);
+    blackhole.consume(operation.eventId());
+    blackhole.consume(operation.body());
+    blackhole.consume(parser.readBody(operation));
+    TextMessage broadcast = frameEncoder.encodeOperation(operation.type(), operation.body(), "mira");
+    blackhole.consume(broadcast.getPayload());
+  }
+
+  /**
+   * The streaming path without building the in-memory content, which is what
+   * relaying and storing the operation costs on its own.
+   */
+  @Benchmark
+  public void streamingRelay(Blackhole blackhole) throws IOException {
+    ClientOperation operation = parser.parse(frame);
+    blackhole.consume(operation.eventId());
+    TextMessage broadcast = frameEncoder.encodeOperation(operation.type(), operation.body(), "mira");
+    blackhole.consume(broadcast.getPayload());
+  }
+}
@@ -0,0 +1,118 @@
+package es.angelkrasimirov.timeweaver.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import es.angelkrasimirov.timeweaver.websockets.EventInterval;
+import es.angelkrasimirov.timeweaver.websockets.EventIntervalIndex;
+
+/**
+ * Overlap queries, point queries and moves on the per-project interval index,
+ * against the full scan the viewport filter would need without it. Events
+ * span a thousand years and the queried window is one year wide.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntervalIndexBenchmark {
+
+  private static final long YEAR_MILLIS = 365L * 24 * 60 * 60 * 1000;
+  private static final long TIMELINE_START = -30_000L * YEAR_MILLIS / 1000;
+  private static final long TIMELINE_SPAN = 1000 * YEAR_MILLIS;
+
+  @Param({ "100000" })
+  public int events;
+
+  private EventIntervalIndex index;
+  private Map<String, EventInterval> intervals;
+  private String[] eventIds;
+  private long[] windowStarts;
+  private SplittableRandom random;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    random = new SplittableRandom(42);
+    index = new EventIntervalIndex();
+    intervals = new HashMap<>();
+    eventIds = new String[events];
+    for (int i = 0; i < events; i++) {
+      eventIds[i] = String.format("7f1c2a9e-5b7d-4d0e-9a53-%012d", i);
+      EventInterval interval = randomInterval();
+      index.put(eventIds[i], interval);
+      intervals.put(eventIds[i], interval);
+    }
+
+    windowStarts = new long[1024];
+    for (int i = 0; i < windowStarts.length; i++) {
+      windowStarts[i] = TIMELINE_START + random.nextLong(TIMELINE_SPAN - YEAR_MILLIS);
+    }
+    System.out.printf("%n%d events, about %d overlapping a one-year window%n", events,
+        index.findOverlapping(windowStarts[0], windowStarts[0] + YEAR_MILLIS).size());
+  }
+
+  /**
+   * Mostly points and short events, with one in a hundred lasting decades.
+   */
+  private EventInterval randomInterval() {
+    long start = TIMELINE_START + random.nextLong(TIMELINE_SPAN);
+    long length = random.nextInt(100) == 0 ? random.nextLong(50 * YEAR_MILLIS)
+        : random.nextInt(4) == 0 ? 0 : random.nextLong(30L * 24 * 60 * 60 * 1000);
+    return new EventInterval(start, start + length, "chapter-" + random.nextInt(12));
+  }
+
+  private long nextWindowStart() {
+    return windowStarts[next++ & (windowStarts.length - 1)];
+  }
+
+  @Benchmark
+  public List<String> findOverlapping() {
+    long start = nextWindowStart();
+    return index.findOverlapping(start, start + YEAR_MILLIS);
+  }
+
+  @Benchmark
+  public List<String> findContaining() {
+    return index.findContaining(nextWindowStart());
+  }
+
+  @Benchmark
+  public List<String> scanOverlapping() {
+    long start = nextWindowStart();
+    long end = start + YEAR_MILLIS;
+    List<String> eventIds = new ArrayList<>();
+    intervals.forEach((eventId, interval) -> {
+      if (interval.overlaps(start, end)) {
+        eventIds.add(eventId);
+      }
+    });
+    return eventIds;
+  }
+
+  /**
+   * An event dragged to another date: one removal and one insertion.
+   */
+  @Benchmark
+  public void moveEvent() {
+    index.put(eventIds[random.nextInt(events)], randomInterval());
+  }
+}
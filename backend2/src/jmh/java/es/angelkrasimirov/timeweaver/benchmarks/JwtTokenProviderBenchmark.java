@@ -0,0 +1,65 @@
+package es.angelkrasimirov.timeweaver.benchmarks;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import es.angelkrasimirov.timeweaver.config.CustomUserDetails;
+import es.angelkrasimirov.timeweaver.utils.JwtTokenProvider;
+
+/**
+ * Token checks done by {@code JwtAuthenticationFilter} on every authenticated
+ * request: {@code validateToken} followed by {@code getUsername}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+
+  private JwtTokenProvider jwtTokenProvider;
+  private String token;
+
+  @Setup
+  public void setUp() {
+    byte[] secret = new byte[64];
+    for (int i = 0; i < secret.length; i++) {
+      secret[i] = (byte) (i * 31 + 7);
+    }
+    jwtTokenProvider = new JwtTokenProvider();
+    ReflectionTestUtils.setField(jwtTokenProvider, "jwtSecret", Base64.getEncoder().encodeToString(secret));
+
+    CustomUserDetails user = new CustomUserDetails(42L, "testuser", "", List.of());
+    token = jwtTokenProvider.generateToken(new UsernamePasswordAuthenticationToken(user, null, List.of()));
+  }
+
+  @Benchmark
+  public boolean validateToken() {
+    return jwtTokenProvider.validateToken(token);
+  }
+
+  @Benchmark
+  public String getUsername() {
+    return jwtTokenProvider.getUsername(token);
+  }
+
+  @Benchmark
+  public String authenticateRequest() {
+    return jwtTokenProvider.validateToken(token) ? jwtTokenProvider.getUsername(token) : null;
+  }
+}
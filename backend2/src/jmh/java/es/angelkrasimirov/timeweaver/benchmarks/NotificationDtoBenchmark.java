@@ -0,0 +1,55 @@
+package es.angelkrasimirov.timeweaver.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.angelkrasimirov.timeweaver.dtos.NotificationResponseDto;
+import es.angelkrasimirov.timeweaver.mappers.NotificationMapper;
+import es.angelkrasimirov.timeweaver.models.Notification;
+
+/**
+ * Conversion of a stored project invitation notification into the DTO
+ * returned by the unread notifications endpoint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotificationDtoBenchmark {
+
+  private static final String INVITATION_DATA = """
+      {"id":17,"invitedUser":{"id":42,"username":"testuser"},"inviterUser":{"id":7,"username":"owner_1"},\
+      "project":{"id":3,"name":"The Hundred Years War","description":"Campaigns and treaties from 1337 to 1453"},\
+      "projectRole":"ROLE_PROJECT_CONTRIBUTOR"}""";
+
+  private NotificationMapper notificationMapper;
+  private Notification notification;
+
+  @Setup
+  public void setUp() {
+    notificationMapper = new NotificationMapper(new ObjectMapper());
+
+    notification = new Notification("testuser", "project_invitation", INVITATION_DATA, LocalDateTime.now());
+    notification.setId(1L);
+  }
+
+  @Benchmark
+  public NotificationResponseDto convertToDto() {
+    return notificationMapper.toDto(notification);
+  }
+}
@@ -0,0 +1,112 @@
+package es.angelkrasimirov.timeweaver.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.angelkrasimirov.timeweaver.dtos.WebSocketMessage;
+import es.angelkrasimirov.timeweaver.websockets.WebSocketCodec;
+import es.angelkrasimirov.timeweaver.websockets.WebSocketFrameEncoder;
+
+/**
+ * Encode and parse cost of the connection_success snapshot for each
+ * WebSocket subprotocol. The frame size on the wire is printed once per
+ * trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotCodecBenchmark {
+
+  private static final TypeReference<Map<String, Object>> MESSAGE_TYPE = new TypeReference<>() {
+  };
+
+  @Param({ "1000", "10000" })
+  public int events;
+
+  @Param({ "JSON", "CBOR", "SMILE" })
+  public WebSocketCodec codec;
+
+  private ObjectMapper objectMapper;
+  private WebSocketFrameEncoder frameEncoder;
+  private WebSocketMessage snapshot;
+  private String jsonFrame;
+  private org.springframework.web.socket.WebSocketMessage<?> encodedFrame;
+
+  @Setup
+  public void setUp() throws Exception {
+    objectMapper = new ObjectMapper();
+    frameEncoder = new WebSocketFrameEncoder(objectMapper);
+
+    List<Map<String, Object>> projectEvents = new ArrayList<>(events);
+    for (int i = 0; i < events; i++) {
+      Map<String, Object> event = new HashMap<>();
+      event.put("id", String.format("7f1c2a9e-5b7d-4d0e-9a53-%012d", i));
+      event.put("content", "Event " + i);
+      event.put("start", String.format("%04d-03-14T00:00:00.000Z", 1000 + i % 1000));
+      event.put("end", String.format("%04d-03-15T00:00:00.000Z", 1000 + i % 1000));
+      event.put("group", "chapter-" + i % 12);
+      event.put("className", "event-red");
+      event.put("details", "Notes for event " + i + ": the vanguard holds the ridge until dusk.");
+      projectEvents.add(event);
+    }
+    snapshot = new WebSocketMessage("connection_success", Map.of(
+        "projectId", 1L,
+        "username", "testuser",
+        "activeUsers", List.of("testuser", "other"),
+        "projectEvents", projectEvents));
+
+    jsonFrame = frameEncoder.encode(snapshot).getPayload();
+    encodedFrame = frameEncoder.encode(snapshot, codec);
+
+    int jsonBytes = jsonFrame.getBytes(StandardCharsets.UTF_8).length;
+    int frameBytes = codec.isBinary() ? encodedFrame.getPayloadLength() : jsonBytes;
+    System.out.printf("%n%d events, %s: %d bytes on the wire (%.1f%% of JSON)%n", events, codec, frameBytes,
+        100.0 * frameBytes / jsonBytes);
+  }
+
+  @Benchmark
+  public Object encode() throws Exception {
+    return frameEncoder.encode(snapshot, codec);
+  }
+
+  /**
+   * Cost of delivering an already encoded JSON broadcast to a session of this
+   * codec.
+   */
+  @Benchmark
+  public Object transcodeFromJson() {
+    return frameEncoder.share(jsonFrame).forCodec(codec);
+  }
+
+  @Benchmark
+  public Map<String, Object> parse() throws Exception {
+    if (encodedFrame instanceof BinaryMessage binaryFrame) {
+      return frameEncoder.decode(binaryFrame, codec);
+    }
+    return objectMapper.readValue(((TextMessage) encodedFrame).getPayload(), MESSAGE_TYPE);
+  }
+}
@@ -0,0 +1,75 @@
+package es.angelkrasimirov.timeweaver.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.angelkrasimirov.timeweaver.dtos.WebSocketMessage;
+import es.angelkrasimirov.timeweaver.websockets.WebSocketFrameEncoder;
+
+/**
+ * Cost of building the {@link WebSocketMessage} for an "update" broadcast and
+ * of turning it into a frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebSocketMessageBenchmark {
+
+  private ObjectMapper objectMapper;
+  private WebSocketFrameEncoder frameEncoder;
+  private Map<String, Object> event;
+  private WebSocketMessage message;
+
+  @Setup
+  public void setUp() {
+    objectMapper = new ObjectMapper();
+    frameEncoder = new WebSocketFrameEncoder(objectMapper);
+
+    event = new HashMap<>();
+    event.put("id", "7f1c2a9e-5b7d-4d0e-9a53-0c1f6f0b2d11");
+    event.put("content", "Battle of the northern pass");
+    event.put("start", "1415-10-25T00:00:00.000Z");
+    event.put("end", "1415-10-26T00:00:00.000Z");
+    event.put("group", "chapter-3");
+    event.put("className", "event-red");
+    event.put("details", "The vanguard holds the ridge until dusk while the main army crosses the river.");
+    message = new WebSocketMessage("update", Map.of("data", event, "username", "testuser"));
+  }
+
+  @Benchmark
+  public WebSocketMessage construct() {
+    return new WebSocketMessage("update", Map.of("data", event, "username", "testuser"));
+  }
+
+  @Benchmark
+  public String serialize() throws Exception {
+    return objectMapper.writeValueAsString(message);
+  }
+
+  @Benchmark
+  public String constructAndSerialize() throws Exception {
+    return objectMapper.writeValueAsString(new WebSocketMessage("update", Map.of("data", event, "username", "testuser")));
+  }
+
+  @Benchmark
+  public Object encodeFrame() throws Exception {
+    return frameEncoder.encode(message);
+  }
+}
@@ -0,0 +1,103 @@
+package es.angelkrasimirov.timeweaver.loadtest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear histogram of latencies in microseconds. Each power of
+ * two is split into 32 buckets, so percentiles are within about 3% of the
+ * recorded values, which is plenty for comparing runs.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+  private final AtomicLong total = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  public void recordNanos(long nanos) {
+    long micros = Math.max(0, nanos / 1000);
+    counts.incrementAndGet(indexOf(micros));
+    total.incrementAndGet();
+    max.accumulateAndGet(micros, Math::max);
+  }
+
+  public long getCount() {
+    return total.get();
+  }
+
+  public long getMaxMicros() {
+    return max.get();
+  }
+
+  /**
+   * Upper bound of the bucket holding the given percentile, in microseconds.
+   */
+  public long percentileMicros(double percentile) {
+    long count = total.get();
+    if (count == 0) {
+      return 0;
+    }
+    long target = Math.max(1, (long) Math.ceil(count * percentile / 100));
+    long seen = 0;
+    for (int index = 0; index < counts.length(); index++) {
+      seen += counts.get(index);
+      if (seen >= target) {
+        return Math.min(upperBoundOf(index), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  /**
+   * Moves the recorded values into a new histogram, so interval reports
+   * start from zero.
+   */
+  public LatencyHistogram drain() {
+    LatencyHistogram drained = new LatencyHistogram();
+    long drainedMax = max.getAndSet(0);
+    long drainedTotal = 0;
+    for (int index = 0; index < counts.length(); index++) {
+      long count = counts.getAndSet(index, 0);
+      if (count > 0) {
+        drained.counts.set(index, count);
+        drainedTotal += count;
+      }
+    }
+    total.addAndGet(-drainedTotal);
+    drained.total.set(drainedTotal);
+    drained.max.set(drainedMax);
+    return drained;
+  }
+
+  public void add(LatencyHistogram other) {
+    for (int index = 0; index < counts.length(); index++) {
+      long count = other.counts.get(index);
+      if (count > 0) {
+        counts.addAndGet(index, count);
+      }
+    }
+    total.addAndGet(other.total.get());
+    max.accumulateAndGet(other.max.get(), Math::max);
+  }
+
+  private static int indexOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+    return (shift + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  private static long upperBoundOf(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = index / SUB_BUCKETS - 1;
+    long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+    return ((subBucket + 1) << shift) - 1;
+  }
+}
@@ -0,0 +1,107 @@
+package es.angelkrasimirov.timeweaver.loadtest;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms shared by every session. Interval reports
+ * drain the histograms and fold them into the run totals.
+ */
+public class LoadTestMetrics {
+
+  private final LongAdder operationsSent = new LongAdder();
+  private final LongAdder broadcastsReceived = new LongAdder();
+  private final LongAdder errorsReceived = new LongAdder();
+  private final LongAdder sessionsClosed = new LongAdder();
+  private final LongAdder sessionsFailed = new LongAdder();
+  private final LatencyHistogram broadcastLatency = new LatencyHistogram();
+  private final LatencyHistogram ackLatency = new LatencyHistogram();
+
+  private final LatencyHistogram totalBroadcastLatency = new LatencyHistogram();
+  private final LatencyHistogram totalAckLatency = new LatencyHistogram();
+  private long totalOperations;
+  private long totalBroadcasts;
+  private long measuredNanos;
+
+  public void operationSent() {
+    operationsSent.increment();
+  }
+
+  public void broadcastReceived() {
+    broadcastsReceived.increment();
+  }
+
+  public void errorReceived() {
+    errorsReceived.increment();
+  }
+
+  public void sessionClosed() {
+    sessionsClosed.increment();
+  }
+
+  public void sessionFailed() {
+    sessionsFailed.increment();
+  }
+
+  public void recordBroadcastLatency(long nanos) {
+    broadcastLatency.recordNanos(nanos);
+  }
+
+  public void recordAckLatency(long nanos) {
+    ackLatency.recordNanos(nanos);
+  }
+
+  /**
+   * Prints the interval since the previous report and, when
+   * {@code measured}, adds it to the run totals.
+   */
+  public synchronized void report(String label, long intervalNanos, boolean measured) {
+    long operations = operationsSent.sumThenReset();
+    long broadcasts = broadcastsReceived.sumThenReset();
+    LatencyHistogram broadcastInterval = broadcastLatency.drain();
+    LatencyHistogram ackInterval = ackLatency.drain();
+    double seconds = intervalNanos / 1e9;
+
+    System.out.printf("%-8s ops/s %8.1f  deliveries/s %10.1f  broadcast ms p50 %7.2f p90 %7.2f p99 %7.2f"
+        + " p99.9 %7.2f max %7.2f  ack p99 %7.2f  errors %d%n",
+        label, operations / seconds, broadcasts / seconds,
+        millis(broadcastInterval.percentileMicros(50)), millis(broadcastInterval.percentileMicros(90)),
+        millis(broadcastInterval.percentileMicros(99)), millis(broadcastInterval.percentileMicros(99.9)),
+        millis(broadcastInterval.getMaxMicros()), millis(ackInterval.percentileMicros(99)),
+        errorsReceived.sum());
+
+    if (measured) {
+      totalOperations += operations;
+      totalBroadcasts += broadcasts;
+      measuredNanos += intervalNanos;
+      totalBroadcastLatency.add(broadcastInterval);
+      totalAckLatency.add(ackInterval);
+    }
+  }
+
+  public synchronized void printSummary(int sessions, int connectedSessions, int editors) {
+    double seconds = measuredNanos / 1e9;
+    System.out.println();
+    System.out.printf("Sessions: %d requested, %d connected, %d editing; %d closed by the server, %d failed%n",
+        sessions, connectedSessions, editors, sessionsClosed.sum(), sessionsFailed.sum());
+    if (seconds == 0) {
+      System.out.println("Nothing was measured.");
+      return;
+    }
+    System.out.printf("Throughput: %.1f operations/s, %.1f broadcast deliveries/s over %.0f s%n",
+        totalOperations / seconds, totalBroadcasts / seconds, seconds);
+    printLatency("Broadcast latency", totalBroadcastLatency);
+    printLatency("Ack latency", totalAckLatency);
+    System.out.printf("Errors received: %d%n", errorsReceived.sum());
+  }
+
+  private static void printLatency(String label, LatencyHistogram histogram) {
+    System.out.printf("%s (ms, %d samples): p50 %.2f  p90 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n", label,
+        histogram.getCount(), millis(histogram.percentileMicros(50)), millis(histogram.percentileMicros(90)),
+        millis(histogram.percentileMicros(99)), millis(histogram.percentileMicros(99.9)),
+        millis(histogram.getMaxMicros()));
+  }
+
+  private static double millis(long micros) {
+    return micros / 1000.0;
+  }
+}
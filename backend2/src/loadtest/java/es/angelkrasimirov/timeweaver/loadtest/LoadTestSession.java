@@ -0,0 +1,201 @@
+package es.angelkrasimirov.timeweaver.loadtest;
+
+import java.net.http.WebSocket;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One simulated client. Every session listens to the project's broadcasts;
+ * editor sessions also send operations. Add and update bodies carry the
+ * harness clock in {@code ltSent}, which the server rebroadcasts untouched,
+ * so each recipient measures the end-to-end delay of the frame it got.
+ */
+public class LoadTestSession implements WebSocket.Listener {
+
+  private static final long TIMELINE_START = Instant.parse("1200-01-01T00:00:00Z").toEpochMilli();
+  private static final long TIMELINE_SPAN = 300L * 365 * 24 * 60 * 60 * 1000;
+
+  private final int index;
+  private final LoadTestMetrics metrics;
+  /** Shared by all sessions: deletes carry no body to stamp. */
+  private final Map<String, Long> deleteSentAt;
+  private final CountDownLatch connected = new CountDownLatch(1);
+  private final StringBuilder partialMessage = new StringBuilder();
+  private final Map<String, Long> pendingAcks = new ConcurrentHashMap<>();
+  private final List<String> ownEventIds = new ArrayList<>();
+  private WebSocket webSocket;
+  private long nextOpId;
+
+  public LoadTestSession(int index, LoadTestMetrics metrics, Map<String, Long> deleteSentAt) {
+    this.index = index;
+    this.metrics = metrics;
+    this.deleteSentAt = deleteSentAt;
+  }
+
+  public boolean awaitConnected(long timeout, TimeUnit unit) throws InterruptedException {
+    return connected.await(timeout, unit);
+  }
+
+  @Override
+  public void onOpen(WebSocket webSocket) {
+    this.webSocket = webSocket;
+    webSocket.request(1);
+  }
+
+  @Override
+  public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+    partialMessage.append(data);
+    if (last) {
+      String message = partialMessage.toString();
+      partialMessage.setLength(0);
+      handleMessage(message, System.nanoTime());
+    }
+    webSocket.request(1);
+    return null;
+  }
+
+  @Override
+  public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+    metrics.sessionClosed();
+    return null;
+  }
+
+  @Override
+  public void onError(WebSocket webSocket, Throwable error) {
+    metrics.sessionFailed();
+  }
+
+  /**
+   * Picks the type with substring searches rather than a JSON parser, so the
+   * harness keeps up with thousands of sessions on one machine.
+   */
+  private void handleMessage(String message, long receivedAt) {
+    String type = stringField(message, "type");
+    if (type == null) {
+      return;
+    }
+    switch (type) {
+      case "add", "update" -> {
+        metrics.broadcastReceived();
+        long sentAt = longField(message, "ltSent");
+        if (sentAt != Long.MIN_VALUE) {
+          metrics.recordBroadcastLatency(receivedAt - sentAt);
+        }
+      }
+      case "delete" -> {
+        metrics.broadcastReceived();
+        Long sentAt = deleteSentAt.get(stringField(message, "id"));
+        if (sentAt != null) {
+          metrics.recordBroadcastLatency(receivedAt - sentAt);
+        }
+      }
+      case "ack" -> {
+        Long sentAt = pendingAcks.remove(stringField(message, "opId"));
+        if (sentAt != null) {
+          metrics.recordAckLatency(receivedAt - sentAt);
+        }
+      }
+      case "error" -> {
+        String opId = stringField(message, "opId");
+        if (opId != null) {
+          pendingAcks.remove(opId);
+        }
+        metrics.errorReceived();
+      }
+      case "connection_success", "connection_resumed" -> connected.countDown();
+      default -> {
+      }
+    }
+  }
+
+  /**
+   * Sends one operation drawn from the mix. Called from this session's
+   * editor thread only, so sends never overlap.
+   */
+  public void sendOperation(OperationMix mix) {
+    String type = mix.next(ownEventIds.isEmpty());
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    String eventId;
+    String body;
+    switch (type) {
+      case "add" -> {
+        eventId = UUID.randomUUID().toString();
+        ownEventIds.add(eventId);
+        body = eventBody(eventId, random);
+      }
+      case "update" -> {
+        eventId = ownEventIds.get(random.nextInt(ownEventIds.size()));
+        body = eventBody(eventId, random);
+      }
+      default -> {
+        eventId = ownEventIds.remove(random.nextInt(ownEventIds.size()));
+        body = "{\"id\":\"" + eventId + "\"}";
+      }
+    }
+
+    String opId = index + "-" + nextOpId++;
+    long now = System.nanoTime();
+    if ("delete".equals(type)) {
+      deleteSentAt.put(eventId, now);
+    } else {
+      body = body.substring(0, body.length() - 1) + ",\"ltSent\":" + now + "}";
+    }
+    pendingAcks.put(opId, now);
+    String frame = "{\"type\":\"" + type + "\",\"data\":{\"opId\":\"" + opId + "\",\"timestamp\":"
+        + System.currentTimeMillis() + ",\"data\":" + body + "}}";
+    webSocket.sendText(frame, true).join();
+    metrics.operationSent();
+  }
+
+  public void close() {
+    if (webSocket != null && !webSocket.isOutputClosed()) {
+      webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "load test finished");
+    }
+  }
+
+  private String eventBody(String eventId, ThreadLocalRandom random) {
+    long start = TIMELINE_START + random.nextLong(TIMELINE_SPAN);
+    StringBuilder body = new StringBuilder(256)
+        .append("{\"id\":\"").append(eventId)
+        .append("\",\"content\":\"Load test event ").append(random.nextInt(100_000))
+        .append("\",\"start\":\"").append(Instant.ofEpochMilli(start)).append('"');
+    if (random.nextInt(3) == 0) {
+      body.append(",\"end\":\"").append(Instant.ofEpochMilli(start + random.nextLong(30L * 86_400_000))).append('"');
+    }
+    return body.append(",\"group\":\"chapter-").append(random.nextInt(8))
+        .append("\",\"details\":\"Generated by session ").append(index).append("\"}").toString();
+  }
+
+  private static String stringField(String json, String name) {
+    String key = "\"" + name + "\":\"";
+    int start = json.indexOf(key);
+    if (start < 0) {
+      return null;
+    }
+    start += key.length();
+    int end = json.indexOf('"', start);
+    return end > start ? json.substring(start, end) : null;
+  }
+
+  private static long longField(String json, String name) {
+    String key = "\"" + name + "\":";
+    int start = json.indexOf(key);
+    if (start < 0) {
+      return Long.MIN_VALUE;
+    }
+    start += key.length();
+    int end = start;
+    while (end < json.length() && (Character.isDigit(json.charAt(end)) || json.charAt(end) == '-')) {
+      end++;
+    }
+    return end > start ? Long.parseLong(json, start, end, 10) : Long.MIN_VALUE;
+  }
+}
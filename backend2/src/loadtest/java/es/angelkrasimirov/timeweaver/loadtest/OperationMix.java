@@ -0,0 +1,46 @@
+package es.angelkrasimirov.timeweaver.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Relative weights of the operations editors send, parsed from
+ * {@code add:30,update:60,delete:10}.
+ */
+public record OperationMix(int add, int update, int delete) {
+
+  public static OperationMix parse(String spec) {
+    int add = 0;
+    int update = 0;
+    int delete = 0;
+    for (String part : spec.split(",")) {
+      String[] weight = part.trim().split(":");
+      int value = Integer.parseInt(weight[1].trim());
+      switch (weight[0].trim()) {
+        case "add" -> add = value;
+        case "update" -> update = value;
+        case "delete" -> delete = value;
+        default -> throw new IllegalArgumentException("Unknown operation in mix: " + weight[0]);
+      }
+    }
+    if (add <= 0) {
+      throw new IllegalArgumentException("The mix needs adds to have events to update and delete");
+    }
+    return new OperationMix(add, update, delete);
+  }
+
+  /**
+   * Draws the next operation; sessions that hold no events yet always add.
+   */
+  public String next(boolean noEvents) {
+    if (noEvents) {
+      return "add";
+    }
+    int draw = ThreadLocalRandom.current().nextInt(add + update + delete);
+    return draw < add ? "add" : draw < add + update ? "update" : "delete";
+  }
+
+  @Override
+  public String toString() {
+    return "add:" + add + ",update:" + update + ",delete:" + delete;
+  }
+}
@@ -0,0 +1,250 @@
+package es.angelkrasimirov.timeweaver.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.angelkrasimirov.timeweaver.loadtest.TimeWeaverApiClient.Account;
+
+/**
+ * Finds how many concurrent editors one node serves before broadcast latency
+ * degrades. Registers a set of users, puts them in a fresh project, opens
+ * the requested number of WebSocket sessions on virtual threads and has a
+ * share of them send a mix of adds, updates and deletes at a Poisson rate,
+ * printing latency percentiles and throughput every few seconds.
+ *
+ * Runs against any local instance, for example the backend with the MySQL
+ * service of docker-compose:
+ *
+ * <pre>
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.args="sessions=2000 editors=200 rate=2"
+ * </pre>
+ *
+ * Options, all {@code name=value}: base-url, users, sessions, editors,
+ * rate (operations per second per editor), mix, duration and warmup (in
+ * seconds), report-interval, connect-concurrency and keep (leave the project
+ * and users in place).
+ */
+public class RealtimeLoadTest {
+
+  private static final String PASSWORD = "LoadTest#2025";
+
+  private final Map<String, String> options;
+  private final HttpClient httpClient;
+  private final TimeWeaverApiClient api;
+  private final LoadTestMetrics metrics = new LoadTestMetrics();
+  private final Map<String, Long> deleteSentAt = new ConcurrentHashMap<>();
+  private final ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+
+  public RealtimeLoadTest(Map<String, String> options) {
+    this.options = options;
+    this.httpClient = HttpClient.newBuilder()
+        .executor(threads)
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+    this.api = new TimeWeaverApiClient(httpClient, new ObjectMapper(), URI.create(option("base-url")));
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = new LinkedHashMap<>(Map.of(
+        "base-url", "http://localhost:8080",
+        "users", "50",
+        "sessions", "1000",
+        "editors", "100",
+        "rate", "1",
+        "mix", "add:30,update:60,delete:10",
+        "duration", "60",
+        "warmup", "10",
+        "report-interval", "5",
+        "connect-concurrency", "200"));
+    options.put("keep", "false");
+    for (String arg : args) {
+      if (!arg.contains("=")) {
+        throw new IllegalArgumentException("Expected name=value but got " + arg);
+      }
+      String name = arg.substring(0, arg.indexOf('='));
+      if (!options.containsKey(name)) {
+        throw new IllegalArgumentException("Unknown option " + name);
+      }
+      options.put(name, arg.substring(arg.indexOf('=') + 1));
+    }
+    System.out.println("Realtime load test " + options);
+    new RealtimeLoadTest(options).run();
+    System.exit(0);
+  }
+
+  public void run() throws Exception {
+    int userCount = intOption("users");
+    int sessionCount = intOption("sessions");
+    int editorCount = Math.min(intOption("editors"), sessionCount);
+    OperationMix mix = OperationMix.parse(option("mix"));
+
+    List<Account> accounts = createAccounts(userCount);
+    Account owner = accounts.get(0);
+    long projectId = api.createProject(owner, "Load test " + owner.username());
+    runAll(accounts.subList(1, accounts.size()), member -> api.addContributor(owner, projectId, member));
+    System.out.printf("Project %d ready with %d members%n", projectId, accounts.size());
+
+    List<LoadTestSession> sessions = connect(projectId, accounts, sessionCount);
+    System.out.printf("%d of %d sessions connected%n", sessions.size(), sessionCount);
+
+    try {
+      measure(sessions.subList(0, Math.min(editorCount, sessions.size())), mix);
+      metrics.printSummary(sessionCount, sessions.size(), Math.min(editorCount, sessions.size()));
+    } finally {
+      sessions.forEach(LoadTestSession::close);
+      if (!Boolean.parseBoolean(option("keep"))) {
+        api.deleteProject(owner, projectId);
+        runAll(accounts, api::deleteUser);
+      }
+      threads.shutdownNow();
+    }
+  }
+
+  private List<Account> createAccounts(int count) throws Exception {
+    String runId = Long.toString(ThreadLocalRandom.current().nextLong(36L * 36 * 36 * 36 * 36), 36);
+    List<String> usernames = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      usernames.add("lt" + runId + "_" + i);
+    }
+    runAll(usernames, username -> api.register(username, PASSWORD));
+
+    // Logins are slowed down on purpose by the server, so they run in parallel.
+    List<Future<Account>> logins = new ArrayList<>();
+    for (String username : usernames) {
+      logins.add(threads.submit(() -> api.login(username, PASSWORD)));
+    }
+    List<Account> accounts = new ArrayList<>();
+    for (Future<Account> login : logins) {
+      accounts.add(login.get());
+    }
+    return accounts;
+  }
+
+  private List<LoadTestSession> connect(long projectId, List<Account> accounts, int count) throws Exception {
+    Semaphore handshakes = new Semaphore(intOption("connect-concurrency"));
+    List<LoadTestSession> sessions = Collections.synchronizedList(new ArrayList<>());
+    AtomicInteger failures = new AtomicInteger();
+    LatencyHistogram connectTimes = new LatencyHistogram();
+
+    List<Future<?>> connects = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      int index = i;
+      connects.add(threads.submit(() -> {
+        Account account = accounts.get(index % accounts.size());
+        LoadTestSession session = new LoadTestSession(index, metrics, deleteSentAt);
+        handshakes.acquireUninterruptibly();
+        long start = System.nanoTime();
+        try {
+          httpClient.newWebSocketBuilder()
+              .connectTimeout(Duration.ofSeconds(30))
+              .buildAsync(api.webSocketUri(projectId, account), session)
+              .get(30, TimeUnit.SECONDS);
+          if (session.awaitConnected(30, TimeUnit.SECONDS)) {
+            connectTimes.recordNanos(System.nanoTime() - start);
+            sessions.add(session);
+          } else {
+            failures.incrementAndGet();
+            session.close();
+          }
+        } catch (Exception e) {
+          if (failures.incrementAndGet() <= 5) {
+            System.err.println("Session " + index + " failed to connect: " + e);
+          }
+        } finally {
+          handshakes.release();
+        }
+      }));
+    }
+    for (Future<?> connect : connects) {
+      connect.get();
+    }
+
+    System.out.printf("Connect time (ms): p50 %.1f  p99 %.1f  max %.1f; %d failed%n",
+        connectTimes.percentileMicros(50) / 1000.0, connectTimes.percentileMicros(99) / 1000.0,
+        connectTimes.getMaxMicros() / 1000.0, failures.get());
+    return new ArrayList<>(sessions);
+  }
+
+  private void measure(List<LoadTestSession> editors, OperationMix mix) throws InterruptedException {
+    double rate = Double.parseDouble(option("rate"));
+    long warmupNanos = TimeUnit.SECONDS.toNanos(intOption("warmup"));
+    long endNanos = System.nanoTime() + warmupNanos + TimeUnit.SECONDS.toNanos(intOption("duration"));
+    long reportNanos = TimeUnit.SECONDS.toNanos(intOption("report-interval"));
+
+    for (LoadTestSession editor : editors) {
+      threads.submit(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // Exponential gaps, so editors do not send in lockstep.
+        long next = System.nanoTime() + (long) (-Math.log(1 - random.nextDouble()) / rate * 1e9);
+        while (next < endNanos) {
+          long wait = next - System.nanoTime();
+          if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+          }
+          try {
+            editor.sendOperation(mix);
+          } catch (RuntimeException e) {
+            // The socket was closed; its listener has counted it.
+            return null;
+          }
+          next += (long) (-Math.log(1 - random.nextDouble()) / rate * 1e9);
+        }
+        return null;
+      });
+    }
+
+    long start = System.nanoTime();
+    long last = start;
+    while (last < endNanos) {
+      TimeUnit.NANOSECONDS.sleep(Math.min(reportNanos, endNanos - last));
+      long now = System.nanoTime();
+      boolean warmingUp = now - start <= warmupNanos;
+      metrics.report(warmingUp ? "warmup" : String.format("%6.0fs", (now - start) / 1e9), now - last, !warmingUp);
+      last = now;
+    }
+    // Let the last broadcasts arrive before closing the sessions.
+    TimeUnit.SECONDS.sleep(1);
+  }
+
+  private <T> void runAll(List<T> items, ThrowingConsumer<T> action) throws Exception {
+    List<Future<?>> futures = new ArrayList<>();
+    for (T item : items) {
+      futures.add(threads.submit(() -> {
+        action.accept(item);
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+  }
+
+  private String option(String name) {
+    return options.get(name);
+  }
+
+  private int intOption(String name) {
+    return Integer.parseInt(options.get(name));
+  }
+
+  @FunctionalInterface
+  private interface ThrowingConsumer<T> {
+    void accept(T item) throws Exception;
+  }
+}
@@ -0,0 +1,102 @@
+package es.angelkrasimirov.timeweaver.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The few REST calls the load test needs to set itself up: registering and
+ * logging in users, creating the project and adding its members.
+ */
+public class TimeWeaverApiClient {
+
+  public record Account(String username, long userId, String token) {
+  }
+
+  private final HttpClient httpClient;
+  private final ObjectMapper objectMapper;
+  private final URI baseUri;
+
+  public TimeWeaverApiClient(HttpClient httpClient, ObjectMapper objectMapper, URI baseUri) {
+    this.httpClient = httpClient;
+    this.objectMapper = objectMapper;
+    this.baseUri = baseUri;
+  }
+
+  public void register(String username, String password) throws IOException, InterruptedException {
+    send("POST", "/api/v1/auth/register", null, Map.of("username", username, "password", password,
+        "email", username + "@loadtest.local"));
+  }
+
+  public Account login(String username, String password) throws IOException, InterruptedException {
+    JsonNode response = send("POST", "/api/v1/auth/login", null, Map.of("username", username, "password", password));
+    String token = response.get("token").asText();
+    return new Account(username, userIdOf(token), token);
+  }
+
+  public long createProject(Account owner, String name) throws IOException, InterruptedException {
+    JsonNode project = send("POST", "/api/v1/users/" + owner.userId() + "/projects", owner.token(),
+        Map.of("name", name, "description", "Created by the realtime load test"));
+    return project.get("id").asLong();
+  }
+
+  /**
+   * Invites the member as a contributor and accepts the invitation on their
+   * behalf.
+   */
+  public void addContributor(Account owner, long projectId, Account member) throws IOException, InterruptedException {
+    send("PUT", "/api/v1/projects/" + projectId + "/users/" + member.userId() + "/roles/ROLE_PROJECT_CONTRIBUTOR/invite",
+        owner.token(), null);
+    send("PUT", "/api/v1/projects/" + projectId + "/users/" + member.userId(), member.token(), null);
+  }
+
+  public void deleteProject(Account owner, long projectId) throws IOException, InterruptedException {
+    send("DELETE", "/api/v1/projects/" + projectId, owner.token(), null);
+  }
+
+  public void deleteUser(Account account) throws IOException, InterruptedException {
+    send("DELETE", "/api/v1/users/" + account.userId(), account.token(), null);
+  }
+
+  public URI webSocketUri(long projectId, Account account) {
+    String scheme = "https".equals(baseUri.getScheme()) ? "wss" : "ws";
+    return URI.create(scheme + "://" + baseUri.getAuthority() + "/ws/projects/" + projectId + "?token="
+        + account.token());
+  }
+
+  private JsonNode send(String method, String path, String token, Object body)
+      throws IOException, InterruptedException {
+    HttpRequest.Builder request = HttpRequest.newBuilder(baseUri.resolve(path))
+        .header("Content-Type", "application/json")
+        .method(method, body != null
+            ? HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body))
+            : HttpRequest.BodyPublishers.noBody());
+    if (token != null) {
+      request.header("Authorization", "Bearer " + token);
+    }
+
+    HttpResponse<String> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    if (response.statusCode() / 100 != 2) {
+      throw new IOException(method + " " + path + " returned " + response.statusCode() + ": " + response.body());
+    }
+    return response.body().isBlank() ? objectMapper.nullNode() : objectMapper.readTree(response.body());
+  }
+
+  /**
+   * The token's subject is the user id, so no extra call is needed to find
+   * it.
+   */
+  private long userIdOf(String token) throws IOException {
+    String[] parts = token.split("\\.");
+    byte[] payload = Base64.getUrlDecoder().decode(parts[1]);
+    return Long.parseLong(objectMapper.readTree(new String(payload, StandardCharsets.UTF_8)).get("sub").asText());
+  }
+}
@@ -1,9 +1,13 @@
 package es.angelkrasimirov.timeweaver.config;
 
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -12,6 +16,7 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
 
 import es.angelkrasimirov.timeweaver.filters.JwtAuthenticationFilter;
 import es.angelkrasimirov.timeweaver.utils.JwtAccessDeniedHandler;
@@ -31,14 +36,26 @@ public class SecurityConfig {
 	@Autowired
 	private JwtAuthenticationFilter authenticationFilter;
 
+	@Value("${app.metrics.allowed-addresses:127.0.0.1,::1}")
+	private List<String> metricsAllowedAddresses;
+
 	@Bean
 	public SecurityFilterChain securityFilterChain(HttpSecurity httpSecurity, UserDetailsService userDetailsService)
 			throws Exception {
+		List<IpAddressMatcher> metricsScrapers = metricsAllowedAddresses.stream()
+				.map(String::trim)
+				.filter(address -> !address.isEmpty())
+				.map(IpAddressMatcher::new)
+				.toList();
+
 		httpSecurity
 				.csrf(AbstractHttpConfigurer::disable)
 				.authorizeHttpRequests(auth -> auth
 						.requestMatchers("/api/v1/auth/**").permitAll()
 						.requestMatchers("/api/health/**").permitAll()
+						.requestMatchers("/actuator/health").permitAll()
+						.requestMatchers("/actuator/prometheus").access((authentication, context) -> new AuthorizationDecision(
+								metricsScrapers.stream().anyMatch(scraper -> scraper.matches(context.getRequest()))))
 						.requestMatchers(HttpMethod.GET, "/api/v1/stripe/**").permitAll()
 						.requestMatchers(HttpMethod.POST, "/api/v1/users").permitAll()
 						.requestMatchers(HttpMethod.GET, "/api/v1/users/{username}/exists").permitAll()
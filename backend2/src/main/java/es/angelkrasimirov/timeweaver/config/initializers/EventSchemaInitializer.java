@@ -0,0 +1,146 @@
+package es.angelkrasimirov.timeweaver.config.initializers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stores event payloads in a native JSON column and adds indexed, generated
+ * columns for the fields the timeline is queried by. Hibernate's schema
+ * update creates the table but never changes the type of an existing column
+ * nor knows about generated columns, so both are handled here. Every step is
+ * skipped when it has already been applied.
+ */
+@Component
+public class EventSchemaInitializer extends AbstractDataInitializer {
+
+  /**
+   * Canonical ISO-8601 as written by {@code Date.toISOString()}, including the
+   * six-digit signed years it uses outside 0000-9999, or a plain date.
+   */
+  private static final String ISO_PATTERN = "^([0-9]{4}|[+-][0-9]{6})-[0-9]{2}-[0-9]{2}"
+      + "(T[0-9]{2}:[0-9]{2}:[0-9]{2}([.][0-9]{3})?Z)?$";
+
+  /**
+   * Epoch milliseconds of an ISO string {s} matching {@link #ISO_PATTERN};
+   * {x} is 1 for an expanded year, which shifts every other field by three.
+   * Days are counted with the proleptic Gregorian calendar, so years before
+   * 1000 and before 0 work too.
+   */
+  private static final String ISO_MILLIS = """
+      ((365 * {y} + FLOOR({y} / 4) - FLOOR({y} / 100) + FLOOR({y} / 400)
+        + FLOOR((153 * IF({month} > 2, {month} - 3, {month} + 9) + 2) / 5) + {day} - 719469) * 86400000
+       + IF(LENGTH({s}) > 10 + 3 * {x}, {hour} * 3600000 + {minute} * 60000 + {second} * 1000, 0)
+       + IF(LENGTH({s}) > 20 + 3 * {x}, {millis}, 0))"""
+      .replace("{y}", "({year} - ({month} <= 2))")
+      .replace("{year}", "(IF(LEFT({s}, 1) = '-', -1, 1) * {part(1 + {x}, 4 + 2 * {x})})")
+      .replace("{month}", "{part(6 + 3 * {x}, 2)}")
+      .replace("{day}", "{part(9 + 3 * {x}, 2)}")
+      .replace("{hour}", "{part(12 + 3 * {x}, 2)}")
+      .replace("{minute}", "{part(15 + 3 * {x}, 2)}")
+      .replace("{second}", "{part(18 + 3 * {x}, 2)}")
+      .replace("{millis}", "{part(21 + 3 * {x}, 3)}")
+      .replace("{part(", "CAST(SUBSTRING({s}, ").replace(")}", ") AS SIGNED)")
+      .replace("{x}", "(LEFT({s}, 1) IN ('+', '-'))");
+
+  /**
+   * Epoch milliseconds of a time field holding a number or an ISO string, the
+   * same values {@code EventInterval} accepts from clients; anything else is
+   * {@code NULL}.
+   */
+  private static final String TIME_MILLIS = """
+      CASE
+        WHEN JSON_TYPE({j}) IN ('INTEGER', 'UNSIGNED INTEGER', 'DOUBLE', 'DECIMAL') AND ABS({s}) < 1e16
+          THEN CAST(ROUND({s}) AS SIGNED)
+        WHEN JSON_TYPE({j}) = 'STRING' AND REGEXP_LIKE({s}, '%s')
+          THEN %s
+      END""".formatted(ISO_PATTERN, ISO_MILLIS);
+
+  private static final String TEXT_FIELD = "IF(JSON_TYPE({j}) IN ('STRING', 'INTEGER', 'UNSIGNED INTEGER'),"
+      + " LEFT({s}, %d), NULL)";
+
+  private static final Map<String, String> GENERATED_COLUMNS = new LinkedHashMap<>();
+  private static final Map<String, String> INDEXES = new LinkedHashMap<>();
+
+  static {
+    GENERATED_COLUMNS.put("event_start", "BIGINT AS (" + field(TIME_MILLIS, "start") + ")");
+    // Items without an end, or ending before they start, are points.
+    GENERATED_COLUMNS.put("event_end",
+        "BIGINT AS (GREATEST(COALESCE(" + field(TIME_MILLIS, "end") + ", event_start), event_start))");
+    GENERATED_COLUMNS.put("event_group", "VARCHAR(191) AS (" + field(TEXT_FIELD.formatted(191), "group") + ")");
+    GENERATED_COLUMNS.put("event_type", "VARCHAR(32) AS (" + field(TEXT_FIELD.formatted(32), "type") + ")");
+
+    INDEXES.put("idx_events_project_start", "project_id, event_start");
+    INDEXES.put("idx_events_project_end", "project_id, event_end");
+    INDEXES.put("idx_events_project_group_start", "project_id, event_group, event_start");
+    INDEXES.put("idx_events_project_type", "project_id, event_type");
+  }
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public EventSchemaInitializer(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @Override
+  public Set<Class<? extends DataInitializer>> getDependencies() {
+    return Set.of();
+  }
+
+  @Override
+  public void initialize() {
+    String dataType = jdbcTemplate.query("""
+        SELECT DATA_TYPE FROM INFORMATION_SCHEMA.COLUMNS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'events' AND COLUMN_NAME = 'event_data'""",
+        rs -> rs.next() ? rs.getString(1) : null);
+    if (dataType == null) {
+      logger.warn("Table events not found, skipping event schema migration");
+      return;
+    }
+
+    if (!"json".equalsIgnoreCase(dataType)) {
+      logger.info("Converting events.event_data from {} to JSON", dataType);
+      // Blank payloads load as empty events either way. Invalid ones were
+      // already skipped on load; keep them as JSON strings rather than lose them.
+      jdbcTemplate.update("UPDATE events SET event_data = NULL WHERE TRIM(event_data) = ''");
+      int invalid = jdbcTemplate.update(
+          "UPDATE events SET event_data = JSON_QUOTE(event_data) WHERE JSON_VALID(event_data) = 0");
+      if (invalid > 0) {
+        logger.warn("Kept {} events with invalid JSON data as JSON strings", invalid);
+      }
+      jdbcTemplate.execute("ALTER TABLE events MODIFY event_data JSON NULL");
+    }
+
+    Set<String> columns = Set.copyOf(jdbcTemplate.queryForList("""
+        SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.COLUMNS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'events'""", String.class));
+    GENERATED_COLUMNS.forEach((column, definition) -> {
+      if (!columns.contains(column)) {
+        logger.info("Adding generated column events.{}", column);
+        jdbcTemplate.execute("ALTER TABLE events ADD COLUMN " + column + " " + definition + " VIRTUAL");
+      }
+    });
+
+    Set<String> indexes = Set.copyOf(jdbcTemplate.queryForList("""
+        SELECT DISTINCT INDEX_NAME FROM INFORMATION_SCHEMA.STATISTICS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'events'""", String.class));
+    INDEXES.forEach((index, columnList) -> {
+      if (!indexes.contains(index)) {
+        logger.info("Creating index {} on events", index);
+        jdbcTemplate.execute("CREATE INDEX " + index + " ON events (" + columnList + ")");
+      }
+    });
+  }
+
+  /**
+   * Binds an expression template to a top-level field of the payload: {j} is
+   * the JSON value and {s} its unquoted text.
+   */
+  private static String field(String template, String name) {
+    String json = "JSON_EXTRACT(event_data, '$." + name + "')";
+    return template.replace("{s}", "JSON_UNQUOTE(" + json + ")").replace("{j}", json);
+  }
+}
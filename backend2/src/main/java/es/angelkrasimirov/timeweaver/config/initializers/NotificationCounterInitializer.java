@@ -0,0 +1,41 @@
+package es.angelkrasimirov.timeweaver.config.initializers;
+
+import java.util.Set;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills {@code notification_counters} from the unread notifications the first
+ * time it starts out empty. Afterwards it is only changed along with the
+ * notifications themselves.
+ */
+@Component
+public class NotificationCounterInitializer extends AbstractDataInitializer {
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public NotificationCounterInitializer(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @Override
+  public Set<Class<? extends DataInitializer>> getDependencies() {
+    return Set.of();
+  }
+
+  @Override
+  public void initialize() {
+    Integer counters = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notification_counters", Integer.class);
+    if (counters != null && counters > 0) {
+      return;
+    }
+
+    // Counters written meanwhile are already part of the count and are replaced by it.
+    int rows = jdbcTemplate.update("""
+        INSERT INTO notification_counters (username, unread_count)
+        SELECT username, COUNT(*) FROM notifications WHERE read_status = FALSE GROUP BY username
+        ON DUPLICATE KEY UPDATE unread_count = VALUES(unread_count)""");
+    logger.info("Initialized unread notification counters ({} rows affected)", rows);
+  }
+}
@@ -0,0 +1,48 @@
+package es.angelkrasimirov.timeweaver.config.initializers;
+
+import java.util.Set;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import es.angelkrasimirov.timeweaver.models.Notification;
+
+/**
+ * Moves the notification id sequence past the ids already in use. MySQL has
+ * no sequences, so Hibernate keeps it in the {@code notifications_seq} table,
+ * which starts at 1 even when the table was filled through AUTO_INCREMENT.
+ * A pooled block ends at the value read, so the next value has to leave room
+ * for a whole block above the highest id.
+ */
+@Component
+public class NotificationSequenceInitializer extends AbstractDataInitializer {
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public NotificationSequenceInitializer(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @Override
+  public Set<Class<? extends DataInitializer>> getDependencies() {
+    return Set.of();
+  }
+
+  @Override
+  public void initialize() {
+    Integer sequenceTables = jdbcTemplate.queryForObject("""
+        SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'notifications_seq'""", Integer.class);
+    if (sequenceTables == null || sequenceTables == 0) {
+      logger.warn("Table notifications_seq not found, skipping notification sequence check");
+      return;
+    }
+
+    long nextValue = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM notifications", Long.class)
+        + Notification.ID_ALLOCATION_SIZE;
+    int updated = jdbcTemplate.update("UPDATE notifications_seq SET next_val = GREATEST(next_val, ?)", nextValue);
+    if (updated == 0) {
+      jdbcTemplate.update("INSERT INTO notifications_seq (next_val) VALUES (?)", nextValue);
+    }
+  }
+}
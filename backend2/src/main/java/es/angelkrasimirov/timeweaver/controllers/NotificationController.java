@@ -1,38 +1,50 @@
 package es.angelkrasimirov.timeweaver.controllers;
 
-import java.util.List;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import es.angelkrasimirov.timeweaver.dtos.CustomNotificationDto;
-import es.angelkrasimirov.timeweaver.dtos.NotificationResponseDto;
+import es.angelkrasimirov.timeweaver.dtos.NotificationPageDto;
 import es.angelkrasimirov.timeweaver.services.NotificationService;
+import es.angelkrasimirov.timeweaver.services.UserProjectRoleService;
 import jakarta.validation.Valid;
 
 @RestController
 @RequestMapping("/api/v1")
 public class NotificationController {
 
+  private static final int MAX_PAGE_SIZE = 200;
+
   @Autowired
   private NotificationService notificationService;
 
+  @Autowired
+  private UserProjectRoleService userProjectRoleService;
+
   @GetMapping(value = "/notifications/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-  public SseEmitter subscribe(Authentication authentication) {
+  public SseEmitter subscribe(Authentication authentication,
+      @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+      @RequestParam(value = "lastEventId", required = false) String lastEventIdParam) {
     String username = authentication.getName();
-    return notificationService.createEmitter(username);
+    // EventSource polyfills that send custom headers pass the last id as a query parameter instead.
+    String lastEventId = lastEventIdHeader != null ? lastEventIdHeader : lastEventIdParam;
+    return notificationService.createEmitter(username, lastEventId);
   }
 
   @PostMapping("/notifications/broadcast")
@@ -44,11 +56,36 @@ public class NotificationController {
             "timestamp", System.currentTimeMillis()));
   }
 
+  @PostMapping("/projects/{projectId}/announcements")
+  @PreAuthorize("hasRole('ADMIN') or @projectSecurityService.hasProjectRole(#projectId, 'ROLE_PROJECT_MANAGER')")
+  public ResponseEntity<Void> announceToProject(@PathVariable Long projectId,
+      @Valid @RequestBody CustomNotificationDto notificationDto) {
+    notificationService.sendNotificationToUsers(
+        userProjectRoleService.getUsernamesByProjectId(projectId),
+        notificationDto.getName(),
+        Map.of(
+            "projectId", projectId,
+            "message", notificationDto.getData(),
+            "timestamp", System.currentTimeMillis()));
+    return ResponseEntity.accepted().build();
+  }
+
   @GetMapping("/notifications")
-  public ResponseEntity<List<NotificationResponseDto>> getMyNotifications(Authentication authentication) {
+  public ResponseEntity<NotificationPageDto> getMyNotifications(Authentication authentication,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "50") int limit) {
     String username = authentication.getName();
-    List<NotificationResponseDto> notifications = notificationService.getUnreadNotificationsForUser(username);
-    return ResponseEntity.ok(notifications);
+    int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+    try {
+      return ResponseEntity.ok(notificationService.getUnreadNotificationsPage(username, cursor, pageSize));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    }
+  }
+
+  @GetMapping("/notifications/unread-count")
+  public ResponseEntity<Map<String, Long>> getMyUnreadCount(Authentication authentication) {
+    return ResponseEntity.ok(Map.of("count", notificationService.getUnreadCount(authentication.getName())));
   }
 
   @DeleteMapping("/notifications/{notificationId}")
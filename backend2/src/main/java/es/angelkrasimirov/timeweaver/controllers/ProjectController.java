@@ -1,5 +1,10 @@
 package es.angelkrasimirov.timeweaver.controllers;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -20,6 +25,9 @@ import org.springframework.web.servlet.resource.NoResourceFoundException;
 import es.angelkrasimirov.timeweaver.models.Project;
 import es.angelkrasimirov.timeweaver.models.User;
 import es.angelkrasimirov.timeweaver.models.UserProjectRole;
+import es.angelkrasimirov.timeweaver.services.EventQueryService;
+import es.angelkrasimirov.timeweaver.services.ProjectHistoryService;
+import es.angelkrasimirov.timeweaver.services.ProjectHistoryService.HistoryState;
 import es.angelkrasimirov.timeweaver.services.ProjectService;
 import es.angelkrasimirov.timeweaver.services.UserProjectRoleService;
 import es.angelkrasimirov.timeweaver.services.UserService;
@@ -40,6 +48,12 @@ public class ProjectController {
   @Autowired
   private UserProjectRoleService userProjectRoleService;
 
+  @Autowired
+  private EventQueryService eventQueryService;
+
+  @Autowired
+  private ProjectHistoryService projectHistoryService;
+
   @PreAuthorize("hasRole('ADMIN') or " +
       "@projectSecurityService.hasAnyProjectRole(#projectId)")
   @GetMapping("/projects/{projectId}")
@@ -51,6 +65,40 @@ public class ProjectController {
     return ResponseEntity.ok(project);
   }
 
+  @PreAuthorize("hasRole('ADMIN') or @projectSecurityService.hasAnyProjectRole(#projectId)")
+  @GetMapping("/projects/{projectId}/events")
+  public ResponseEntity<List<Map<String, Object>>> getProjectEvents(@PathVariable Long projectId,
+      @RequestParam long start, @RequestParam long end, @RequestParam(required = false) List<String> groups) {
+    if (start > end) {
+      return ResponseEntity.badRequest().build();
+    }
+    return ResponseEntity.ok(eventQueryService.getEvents(projectId, start, end, groups));
+  }
+
+  @PreAuthorize("hasRole('ADMIN') or @projectSecurityService.hasAnyProjectRole(#projectId)")
+  @GetMapping("/projects/{projectId}/events/types/{type}")
+  public ResponseEntity<List<Map<String, Object>>> getProjectEventsByType(@PathVariable Long projectId,
+      @PathVariable String type) {
+    return ResponseEntity.ok(eventQueryService.getEventsByType(projectId, type));
+  }
+
+  /**
+   * The project as it was at a version of its history or at a time in epoch
+   * milliseconds.
+   */
+  @PreAuthorize("hasRole('ADMIN') or @projectSecurityService.hasAnyProjectRole(#projectId)")
+  @GetMapping("/projects/{projectId}/history")
+  public ResponseEntity<HistoryState> getProjectHistory(@PathVariable Long projectId,
+      @RequestParam(required = false) Long version, @RequestParam(required = false) Long at) {
+    if ((version == null) == (at == null)) {
+      return ResponseEntity.badRequest().build();
+    }
+    Optional<HistoryState> state = version != null
+        ? projectHistoryService.getStateAtVersion(projectId, version)
+        : projectHistoryService.getStateAt(projectId, Instant.ofEpochMilli(at));
+    return state.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+  }
+
   @GetMapping("/users/{userId}/projects")
   @PreAuthorize("hasRole('ADMIN') or #userId == authentication.principal.id")
   public ResponseEntity<Page<Project>> getProjectsByUserId(@PathVariable Long userId,
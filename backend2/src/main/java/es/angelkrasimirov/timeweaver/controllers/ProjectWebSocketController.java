@@ -0,0 +1,26 @@
+package es.angelkrasimirov.timeweaver.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import es.angelkrasimirov.timeweaver.dtos.ProjectWebSocketStatsDto;
+import es.angelkrasimirov.timeweaver.websockets.ProjectWebSocketHandler;
+
+@RestController
+@RequestMapping("/api/v1")
+public class ProjectWebSocketController {
+
+  @Autowired
+  private ProjectWebSocketHandler projectWebSocketHandler;
+
+  @GetMapping("/projects/{projectId}/websocket/stats")
+  @PreAuthorize("hasRole('ADMIN') or @projectSecurityService.hasProjectRole(#projectId, 'ROLE_PROJECT_MANAGER')")
+  public ResponseEntity<ProjectWebSocketStatsDto> getWebSocketStats(@PathVariable Long projectId) {
+    return ResponseEntity.ok(projectWebSocketHandler.getStats(projectId));
+  }
+}
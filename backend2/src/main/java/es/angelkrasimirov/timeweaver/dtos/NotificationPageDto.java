@@ -0,0 +1,24 @@
+package es.angelkrasimirov.timeweaver.dtos;
+
+import java.util.List;
+
+public class NotificationPageDto {
+    private List<NotificationResponseDto> items;
+    private String nextCursor;
+
+    public NotificationPageDto(List<NotificationResponseDto> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<NotificationResponseDto> getItems() {
+        return items;
+    }
+
+    /**
+     * Cursor of the next page, or null when this is the last one.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
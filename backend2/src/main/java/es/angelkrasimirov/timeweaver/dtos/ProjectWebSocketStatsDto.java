@@ -0,0 +1,44 @@
+package es.angelkrasimirov.timeweaver.dtos;
+
+public class ProjectWebSocketStatsDto {
+    private Long projectId;
+    private int activeSessions;
+    private int queuedFrames;
+    private long droppedFrames;
+    private long coalescedFrames;
+    private long disconnectedSessions;
+
+    public ProjectWebSocketStatsDto(Long projectId, int activeSessions, int queuedFrames, long droppedFrames,
+            long coalescedFrames, long disconnectedSessions) {
+        this.projectId = projectId;
+        this.activeSessions = activeSessions;
+        this.queuedFrames = queuedFrames;
+        this.droppedFrames = droppedFrames;
+        this.coalescedFrames = coalescedFrames;
+        this.disconnectedSessions = disconnectedSessions;
+    }
+
+    public Long getProjectId() {
+        return projectId;
+    }
+
+    public int getActiveSessions() {
+        return activeSessions;
+    }
+
+    public int getQueuedFrames() {
+        return queuedFrames;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    public long getCoalescedFrames() {
+        return coalescedFrames;
+    }
+
+    public long getDisconnectedSessions() {
+        return disconnectedSessions;
+    }
+}
@@ -0,0 +1,58 @@
+package es.angelkrasimirov.timeweaver.mappers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.angelkrasimirov.timeweaver.dtos.NotificationResponseDto;
+import es.angelkrasimirov.timeweaver.models.Notification;
+
+/**
+ * Builds the notification DTOs returned by the REST endpoints and sent over
+ * SSE. The stored data is JSON, so it is parsed here rather than by MapStruct.
+ */
+@Component
+public class NotificationMapper {
+  private static final Logger logger = LoggerFactory.getLogger(NotificationMapper.class);
+
+  private final ObjectMapper objectMapper;
+
+  public NotificationMapper(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Parses the stored data; data that is not valid JSON is returned as the raw
+   * string.
+   */
+  public NotificationResponseDto toDto(Notification notification) {
+    Object deserializedData = null;
+    if (notification.getData() != null && !notification.getData().isEmpty()) {
+      try {
+        deserializedData = objectMapper.readValue(notification.getData(), Object.class);
+      } catch (JsonProcessingException e) {
+        logger.warn("Failed to parse notification data as JSON for notification id {}. Returning raw string. Error: {}",
+            notification.getId(), e.getMessage());
+        deserializedData = notification.getData();
+      }
+    }
+    return toDto(notification, deserializedData);
+  }
+
+  /**
+   * Uses {@code data} as is, typically a {@link com.fasterxml.jackson.databind.util.RawValue}
+   * wrapping the stored JSON so it is written without being parsed.
+   */
+  public NotificationResponseDto toDto(Notification notification, Object data) {
+    return new NotificationResponseDto(
+        notification.getId(),
+        notification.getUsername(),
+        notification.getEventName(),
+        data,
+        notification.getTimestamp(),
+        notification.isReadStatus());
+  }
+}
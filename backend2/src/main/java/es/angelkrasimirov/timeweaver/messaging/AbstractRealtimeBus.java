@@ -0,0 +1,73 @@
+package es.angelkrasimirov.timeweaver.messaging;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Base class for buses that keeps the local listeners and subscriptions.
+ */
+public abstract class AbstractRealtimeBus implements RealtimeBus {
+
+  protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+  protected final Set<Long> subscribedProjects = ConcurrentHashMap.newKeySet();
+  protected final Set<String> subscribedUsers = ConcurrentHashMap.newKeySet();
+
+  private final List<ProjectMessageListener> projectListeners = new CopyOnWriteArrayList<>();
+  private final List<UserMessageListener> userListeners = new CopyOnWriteArrayList<>();
+
+  @Override
+  public void subscribeProject(Long projectId) {
+    subscribedProjects.add(projectId);
+  }
+
+  @Override
+  public void unsubscribeProject(Long projectId) {
+    subscribedProjects.remove(projectId);
+  }
+
+  @Override
+  public void subscribeUser(String username) {
+    subscribedUsers.add(username);
+  }
+
+  @Override
+  public void unsubscribeUser(String username) {
+    subscribedUsers.remove(username);
+  }
+
+  @Override
+  public void addProjectListener(ProjectMessageListener listener) {
+    projectListeners.add(listener);
+  }
+
+  @Override
+  public void addUserListener(UserMessageListener listener) {
+    userListeners.add(listener);
+  }
+
+  protected void deliverLocally(ProjectBusMessage message, boolean remote) {
+    for (ProjectMessageListener listener : projectListeners) {
+      try {
+        listener.onProjectMessage(message, remote);
+      } catch (RuntimeException e) {
+        logger.error("Error delivering project message for project {}: {}", message.projectId(), e.getMessage(), e);
+      }
+    }
+  }
+
+  protected void deliverLocally(UserBusMessage message, boolean remote) {
+    for (UserMessageListener listener : userListeners) {
+      try {
+        listener.onUserMessage(message, remote);
+      } catch (RuntimeException e) {
+        logger.error("Error delivering user message {}: {}", message.eventName(), e.getMessage(), e);
+      }
+    }
+  }
+}
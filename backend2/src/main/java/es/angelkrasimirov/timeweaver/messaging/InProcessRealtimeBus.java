@@ -0,0 +1,22 @@
+package es.angelkrasimirov.timeweaver.messaging;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Single-node bus: messages are only delivered to this JVM.
+ */
+@Component
+@ConditionalOnProperty(name = "app.realtime.bus", havingValue = "local", matchIfMissing = true)
+public class InProcessRealtimeBus extends AbstractRealtimeBus {
+
+  @Override
+  public void publishToProject(ProjectBusMessage message) {
+    deliverLocally(message, false);
+  }
+
+  @Override
+  public void publishToUser(UserBusMessage message) {
+    deliverLocally(message, false);
+  }
+}
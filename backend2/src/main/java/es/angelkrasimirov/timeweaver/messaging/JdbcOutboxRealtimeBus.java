@@ -0,0 +1,255 @@
+package es.angelkrasimirov.timeweaver.messaging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Multi-node bus backed by a MySQL outbox table. Published messages are
+ * delivered locally right away and appended to the outbox in batches; every
+ * node polls the rows written by other nodes for the projects and users it
+ * has local subscribers for.
+ *
+ * Rows are only read once they are older than a short settle delay, so an
+ * auto-increment id that committed late is not skipped by the cursor.
+ *
+ * The bus relays operations but does not order them across nodes: each node
+ * applies its own operations right away and the ones of other nodes when it
+ * polls them, so two nodes editing the same event at once can end up with
+ * different contents. It is only safe while every session of a project is
+ * connected to the same node, e.g. by routing on the project id at the load
+ * balancer; notifications and presence have no such restriction.
+ */
+@Component
+@ConditionalOnProperty(name = "app.realtime.bus", havingValue = "jdbc")
+public class JdbcOutboxRealtimeBus extends AbstractRealtimeBus {
+
+  private static final String CHANNEL_PROJECT = "project";
+  private static final String CHANNEL_USER = "user";
+  private static final String CHANNEL_BROADCAST = "broadcast";
+
+  private record OutboxRow(String channel, String target, String payload, long queuedAtMillis) {
+  }
+
+  private final JdbcTemplate jdbcTemplate;
+  private final NamedParameterJdbcTemplate namedJdbcTemplate;
+  private final ObjectMapper objectMapper;
+  private final long pollIntervalMs;
+  private final long settleDelayMs;
+  private final long retentionSeconds;
+  private final int pollBatchSize;
+
+  private final String nodeId = UUID.randomUUID().toString();
+  private final ConcurrentLinkedQueue<OutboxRow> pendingRows = new ConcurrentLinkedQueue<>();
+  private List<OutboxRow> failedBatch = List.of();
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "realtime-bus");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private long lastSeenId;
+  private long lastCleanupMillis = System.currentTimeMillis();
+
+  public JdbcOutboxRealtimeBus(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+      @Value("${app.realtime.bus.jdbc.poll-interval-ms:100}") long pollIntervalMs,
+      @Value("${app.realtime.bus.jdbc.settle-delay-ms:100}") long settleDelayMs,
+      @Value("${app.realtime.bus.jdbc.retention-seconds:60}") long retentionSeconds,
+      @Value("${app.realtime.bus.jdbc.poll-batch-size:500}") int pollBatchSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    this.objectMapper = objectMapper;
+    this.pollIntervalMs = pollIntervalMs;
+    this.settleDelayMs = settleDelayMs;
+    this.retentionSeconds = retentionSeconds;
+    this.pollBatchSize = pollBatchSize;
+  }
+
+  @PostConstruct
+  public void start() {
+    jdbcTemplate.execute("""
+        CREATE TABLE IF NOT EXISTS realtime_outbox (
+          id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+          origin_node VARCHAR(36) NOT NULL,
+          channel VARCHAR(16) NOT NULL,
+          target VARCHAR(255) NULL,
+          payload MEDIUMTEXT NOT NULL,
+          created_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+          KEY idx_realtime_outbox_channel_target (channel, target, id),
+          KEY idx_realtime_outbox_created_at (created_at)
+        )""");
+
+    Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM realtime_outbox", Long.class);
+    lastSeenId = maxId != null ? maxId : 0;
+
+    scheduler.scheduleWithFixedDelay(this::tick, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    logger.info("JDBC realtime bus started on node {} (poll interval {} ms)", nodeId, pollIntervalMs);
+  }
+
+  @Override
+  public void publishToProject(ProjectBusMessage message) {
+    deliverLocally(message, false);
+    enqueueRow(CHANNEL_PROJECT, String.valueOf(message.projectId()), message);
+  }
+
+  @Override
+  public boolean isDistributed() {
+    return true;
+  }
+
+  @Override
+  public void publishToUser(UserBusMessage message) {
+    deliverLocally(message, false);
+    if (message.username() == null) {
+      enqueueRow(CHANNEL_BROADCAST, null, message);
+    } else {
+      enqueueRow(CHANNEL_USER, message.username(), message);
+    }
+  }
+
+  private void enqueueRow(String channel, String target, Object message) {
+    try {
+      pendingRows.add(new OutboxRow(channel, target, objectMapper.writeValueAsString(message),
+          System.currentTimeMillis()));
+    } catch (JsonProcessingException e) {
+      logger.error("Error serializing {} message for the realtime bus: {}", channel, e.getMessage());
+    }
+  }
+
+  private void tick() {
+    try {
+      writePendingRows();
+      poll();
+      cleanUp();
+    } catch (Exception e) {
+      logger.error("Error running realtime bus cycle: {}", e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Appends the queued rows, after any that failed last time. Failed rows are
+   * kept and retried first, in order, until they are older than the outbox
+   * retention; by then other nodes would have cleaned them up anyway.
+   *
+   * @return whether every row was written
+   */
+  private synchronized boolean writePendingRows() {
+    List<OutboxRow> batch = new ArrayList<>(failedBatch);
+    OutboxRow row;
+    while ((row = pendingRows.poll()) != null) {
+      batch.add(row);
+    }
+    if (batch.isEmpty()) {
+      return true;
+    }
+
+    try {
+      jdbcTemplate.batchUpdate(
+          "INSERT INTO realtime_outbox (origin_node, channel, target, payload) VALUES (?, ?, ?, ?)",
+          batch.stream().map(pending -> new Object[] { nodeId, pending.channel(), pending.target(),
+              pending.payload() }).toList());
+      failedBatch = List.of();
+      return true;
+    } catch (RuntimeException e) {
+      long cutoff = System.currentTimeMillis() - retentionSeconds * 1000;
+      failedBatch = batch.stream().filter(pending -> pending.queuedAtMillis() >= cutoff).toList();
+      logger.error("Error writing {} realtime bus messages, will retry {} of them: {}", batch.size(),
+          failedBatch.size(), e.getMessage());
+      return false;
+    }
+  }
+
+  private void poll() {
+    MapSqlParameterSource params = new MapSqlParameterSource()
+        .addValue("lastSeenId", lastSeenId)
+        .addValue("settleMicros", settleDelayMs * 1000);
+
+    Long upperBound = namedJdbcTemplate.queryForObject("""
+        SELECT MAX(id) FROM realtime_outbox
+        WHERE id > :lastSeenId AND created_at <= TIMESTAMPADD(MICROSECOND, -:settleMicros, NOW(3))""",
+        params, Long.class);
+    if (upperBound == null) {
+      return;
+    }
+
+    List<Long> projects = List.copyOf(subscribedProjects);
+    List<String> users = List.copyOf(subscribedUsers);
+
+    StringBuilder filter = new StringBuilder("channel = 'broadcast'");
+    if (!projects.isEmpty()) {
+      filter.append(" OR (channel = 'project' AND target IN (:projects))");
+      params.addValue("projects", projects.stream().map(String::valueOf).toList());
+    }
+    if (!users.isEmpty()) {
+      filter.append(" OR (channel = 'user' AND target IN (:users))");
+      params.addValue("users", users);
+    }
+    params.addValue("upperBound", upperBound)
+        .addValue("nodeId", nodeId)
+        .addValue("limit", pollBatchSize);
+
+    List<Object[]> rows = namedJdbcTemplate.query("""
+        SELECT id, channel, payload FROM realtime_outbox
+        WHERE id > :lastSeenId AND id <= :upperBound AND origin_node <> :nodeId AND (""" + filter + """
+        ) ORDER BY id LIMIT :limit""",
+        params, (rs, rowNum) -> new Object[] { rs.getLong("id"), rs.getString("channel"), rs.getString("payload") });
+
+    for (Object[] row : rows) {
+      dispatchRemote((String) row[1], (String) row[2]);
+    }
+
+    lastSeenId = rows.size() < pollBatchSize ? upperBound : (Long) rows.get(rows.size() - 1)[0];
+  }
+
+  private void dispatchRemote(String channel, String payload) {
+    try {
+      if (CHANNEL_PROJECT.equals(channel)) {
+        deliverLocally(objectMapper.readValue(payload, ProjectBusMessage.class), true);
+      } else {
+        deliverLocally(objectMapper.readValue(payload, UserBusMessage.class), true);
+      }
+    } catch (JsonProcessingException e) {
+      logger.error("Error deserializing {} message from the realtime bus: {}", channel, e.getMessage());
+    }
+  }
+
+  private void cleanUp() {
+    long now = System.currentTimeMillis();
+    if (now - lastCleanupMillis < retentionSeconds * 1000) {
+      return;
+    }
+    lastCleanupMillis = now;
+    int deleted = jdbcTemplate.update(
+        "DELETE FROM realtime_outbox WHERE created_at < TIMESTAMPADD(SECOND, -?, NOW(3))", retentionSeconds);
+    logger.debug("Removed {} expired realtime bus messages", deleted);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(pollIntervalMs * 2, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (!writePendingRows()) {
+      logger.warn("{} realtime bus messages could not be written before shutdown", failedBatch.size());
+    }
+  }
+}
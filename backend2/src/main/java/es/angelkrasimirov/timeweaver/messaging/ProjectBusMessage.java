@@ -0,0 +1,9 @@
+package es.angelkrasimirov.timeweaver.messaging;
+
+/**
+ * An encoded WebSocket frame to broadcast to every session of a project.
+ * {@code type} is the message type of the frame, so receivers can tell
+ * operations apart without decoding it.
+ */
+public record ProjectBusMessage(Long projectId, String type, String frame, String coalesceKey) {
+}
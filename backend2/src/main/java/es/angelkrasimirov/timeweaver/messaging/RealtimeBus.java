@@ -0,0 +1,41 @@
+package es.angelkrasimirov.timeweaver.messaging;
+
+/**
+ * Relays realtime messages to every backend node. Publishing always delivers
+ * to the local node; a node only receives remote messages for the projects
+ * and users it has subscribed to.
+ */
+public interface RealtimeBus {
+
+  interface ProjectMessageListener {
+    void onProjectMessage(ProjectBusMessage message, boolean remote);
+  }
+
+  interface UserMessageListener {
+    void onUserMessage(UserBusMessage message, boolean remote);
+  }
+
+  void publishToProject(ProjectBusMessage message);
+
+  void publishToUser(UserBusMessage message);
+
+  void subscribeProject(Long projectId);
+
+  void unsubscribeProject(Long projectId);
+
+  void subscribeUser(String username);
+
+  void unsubscribeUser(String username);
+
+  void addProjectListener(ProjectMessageListener listener);
+
+  void addUserListener(UserMessageListener listener);
+
+  /**
+   * Whether messages can be published on other nodes, so a node misses the
+   * ones for users that are not subscribed on it.
+   */
+  default boolean isDistributed() {
+    return false;
+  }
+}
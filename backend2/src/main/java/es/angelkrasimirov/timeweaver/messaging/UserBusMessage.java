@@ -0,0 +1,10 @@
+package es.angelkrasimirov.timeweaver.messaging;
+
+/**
+ * A notification for the SSE streams of one user, or of every user when
+ * {@code username} is null. {@code notificationId} is the id of the persisted
+ * notification, sent as the SSE event id, and null for events that were not
+ * stored.
+ */
+public record UserBusMessage(String username, String eventName, String payload, Long notificationId) {
+}
@@ -5,7 +5,6 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
-import jakarta.persistence.Lob;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
@@ -27,8 +26,8 @@ public class Event {
     @JoinColumn(name = "user_id")
     private User user;
 
-    @Lob
-    @Column(name = "event_data", columnDefinition = "TEXT")
+    // Native JSON so MySQL can index fields of the payload; see EventSchemaInitializer.
+    @Column(name = "event_data", columnDefinition = "JSON")
     private String data;
 
     @OneToMany(mappedBy = "event", cascade = CascadeType.ALL, orphanRemoval = true)
@@ -8,15 +8,27 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Lob;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = {
+        @Index(name = "idx_notifications_username_id", columnList = "username, id"),
+        @Index(name = "idx_notifications_username_timestamp", columnList = "username, timestamp, id"),
+        @Index(name = "idx_notifications_unread_page", columnList = "username, read_status, timestamp, id") })
 public class Notification {
 
+    /**
+     * Ids handed out per round trip to the sequence. Unlike IDENTITY, a pooled
+     * sequence assigns ids before the INSERT, so Hibernate can batch them.
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_id")
+    @SequenceGenerator(name = "notification_id", sequenceName = "notifications_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(nullable = false)
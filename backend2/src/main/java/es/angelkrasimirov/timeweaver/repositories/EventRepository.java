@@ -1,12 +1,88 @@
 package es.angelkrasimirov.timeweaver.repositories;
 
 import es.angelkrasimirov.timeweaver.models.Event;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface EventRepository extends JpaRepository<Event, String> {
     List<Event> findByProjectId(Long projectId);
+
+    /**
+     * Deletes the events and their conversations with one statement each,
+     * without loading them. Bypasses the cascade, so it must run inside a
+     * transaction that does not hold the events.
+     */
+    @Modifying
+    @Query("DELETE FROM Conversation c WHERE c.event.id IN :ids")
+    int deleteConversationsByEventIdIn(@Param("ids") Collection<String> ids);
+
+    @Modifying
+    @Query("DELETE FROM Event e WHERE e.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<String> ids);
+
+    interface EventDataView {
+        String getId();
+
+        String getData();
+    }
+
+    /**
+     * Streams the id and data of every event of a project without loading the
+     * entities and their associations. Must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT e.id AS id, e.data AS data FROM Event e WHERE e.project.id = :projectId")
+    Stream<EventDataView> streamDataByProjectId(@Param("projectId") Long projectId);
+
+    /**
+     * Events of a project overlapping {@code [start, end]} in epoch
+     * milliseconds, by start time. Uses the generated time columns, so events
+     * whose start cannot be parsed are not included.
+     */
+    @Query(value = """
+            SELECT e.id AS id, e.event_data AS data FROM events e
+            WHERE e.project_id = :projectId AND e.event_start <= :end AND e.event_end >= :start
+            ORDER BY e.event_start""", nativeQuery = true)
+    List<EventDataView> findDataOverlapping(@Param("projectId") Long projectId, @Param("start") long start,
+            @Param("end") long end);
+
+    /**
+     * Like {@link #findDataOverlapping} but limited to the given groups and to
+     * events without a group.
+     */
+    @Query(value = """
+            SELECT e.id AS id, e.event_data AS data FROM events e
+            WHERE e.project_id = :projectId AND (e.event_group IN (:groups) OR e.event_group IS NULL)
+            AND e.event_start <= :end AND e.event_end >= :start
+            ORDER BY e.event_start""", nativeQuery = true)
+    List<EventDataView> findDataOverlappingInGroups(@Param("projectId") Long projectId, @Param("start") long start,
+            @Param("end") long end, @Param("groups") Collection<String> groups);
+
+    /**
+     * Events of a project without a start time the generated columns can read.
+     */
+    @Query(value = "SELECT e.id AS id, e.event_data AS data FROM events e "
+            + "WHERE e.project_id = :projectId AND e.event_start IS NULL", nativeQuery = true)
+    List<EventDataView> findDataUnplaced(@Param("projectId") Long projectId);
+
+    /**
+     * Events of a project with the given item type, such as {@code range} or
+     * {@code background}, by start time.
+     */
+    @Query(value = """
+            SELECT e.id AS id, e.event_data AS data FROM events e
+            WHERE e.project_id = :projectId AND e.event_type = :type
+            ORDER BY e.event_start""", nativeQuery = true)
+    List<EventDataView> findDataByType(@Param("projectId") Long projectId, @Param("type") String type);
 }
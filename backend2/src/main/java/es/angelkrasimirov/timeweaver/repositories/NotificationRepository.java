@@ -1,13 +1,45 @@
 package es.angelkrasimirov.timeweaver.repositories;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import es.angelkrasimirov.timeweaver.models.Notification;
 
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
-    List<Notification> findByUsernameAndReadStatusFalseOrderByTimestampDesc(String username);
+    List<Notification> findByUsernameAndReadStatusFalseOrderByTimestampDescIdDesc(String username, Limit limit);
+
+    /**
+     * The unread notifications that come after the given one, newest first.
+     */
+    @Query("""
+            SELECT n FROM Notification n
+            WHERE n.username = :username AND n.readStatus = false
+              AND (n.timestamp < :timestamp OR (n.timestamp = :timestamp AND n.id < :id))
+            ORDER BY n.timestamp DESC, n.id DESC""")
+    List<Notification> findUnreadBefore(@Param("username") String username,
+            @Param("timestamp") LocalDateTime timestamp, @Param("id") Long id, Limit limit);
+
+    List<Notification> findByUsernameAndIdGreaterThanOrderByIdDesc(String username, Long id, Limit limit);
+
+    /**
+     * The notifications created at or after the given time, newest first.
+     */
+    @Query("""
+            SELECT n FROM Notification n
+            WHERE n.username = :username AND n.timestamp >= :since
+            ORDER BY n.timestamp DESC, n.id DESC""")
+    List<Notification> findSince(@Param("username") String username, @Param("since") LocalDateTime since,
+            Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.id = :id AND n.username = :username")
+    int deleteByIdAndUsername(@Param("id") Long id, @Param("username") String username);
 }
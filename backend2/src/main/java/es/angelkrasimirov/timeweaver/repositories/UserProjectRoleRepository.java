@@ -1,6 +1,11 @@
 package es.angelkrasimirov.timeweaver.repositories;
 
+import java.util.List;
+import java.util.Optional;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import es.angelkrasimirov.timeweaver.models.ProjectRole;
 import es.angelkrasimirov.timeweaver.models.UserProjectRole;
@@ -12,4 +17,10 @@ public interface UserProjectRoleRepository extends JpaRepository<UserProjectRole
 
   boolean existsByProject_IdAndUser_Id(Long projectId, Long userId);
 
+  @Query("SELECT upr.projectRole FROM UserProjectRole upr WHERE upr.project.id = :projectId AND upr.user.id = :userId")
+  Optional<ProjectRole> findProjectRole(@Param("projectId") Long projectId, @Param("userId") Long userId);
+
+  @Query("SELECT upr.user.username FROM UserProjectRole upr WHERE upr.project.id = :projectId")
+  List<String> findUsernamesByProjectId(@Param("projectId") Long projectId);
+
 }
@@ -0,0 +1,78 @@
+package es.angelkrasimirov.timeweaver.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import es.angelkrasimirov.timeweaver.models.Event;
+import es.angelkrasimirov.timeweaver.models.Project;
+import es.angelkrasimirov.timeweaver.repositories.EventRepository;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Writes the net effect of a batch of timeline operations in one
+ * transaction. Deletes are bulk statements, updated events are loaded with
+ * one query, and new events are persisted directly; their ids come from the
+ * client, so saving them would merge and look each one up first. Hibernate
+ * sends the inserts and updates as JDBC batches.
+ */
+@Service
+public class EventBatchWriter {
+
+  private final EventRepository eventRepository;
+  private final EntityManager entityManager;
+  private final EventWriteBehindService eventWriteBehindService;
+  private final TransactionTemplate transactionTemplate;
+
+  public EventBatchWriter(EventRepository eventRepository, EntityManager entityManager,
+      EventWriteBehindService eventWriteBehindService, PlatformTransactionManager transactionManager) {
+    this.eventRepository = eventRepository;
+    this.entityManager = entityManager;
+    this.eventWriteBehindService = eventWriteBehindService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  /**
+   * Inserts, updates and deletes the given events atomically. Buffered
+   * writes of the touched events are written first, so the batch applies on
+   * top of them and they cannot overwrite it later; if they cannot be, the
+   * batch fails without writing anything.
+   */
+  public void write(Long projectId, Map<String, String> inserts, Map<String, String> updates, Set<String> deletes) {
+    List<String> touched = new ArrayList<>(inserts.keySet());
+    touched.addAll(updates.keySet());
+    touched.addAll(deletes);
+    if (eventWriteBehindService.hasPendingWrites(touched)) {
+      eventWriteBehindService.flush();
+      if (eventWriteBehindService.hasPendingWrites(touched)) {
+        throw new IllegalStateException("Buffered writes of the batch's events could not be written");
+      }
+    }
+
+    transactionTemplate.executeWithoutResult(status -> {
+      if (!deletes.isEmpty()) {
+        eventRepository.deleteConversationsByEventIdIn(deletes);
+        eventRepository.deleteByIdIn(deletes);
+      }
+      if (!updates.isEmpty()) {
+        eventRepository.findAllById(updates.keySet())
+            .forEach(event -> event.setData(updates.get(event.getId())));
+      }
+      if (!inserts.isEmpty()) {
+        Project projectRef = entityManager.getReference(Project.class, projectId);
+        inserts.forEach((eventId, data) -> {
+          Event event = new Event();
+          event.setId(eventId);
+          event.setProject(projectRef);
+          event.setData(data);
+          entityManager.persist(event);
+        });
+      }
+    });
+  }
+}
@@ -0,0 +1,97 @@
+package es.angelkrasimirov.timeweaver.services;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.angelkrasimirov.timeweaver.repositories.EventRepository;
+import es.angelkrasimirov.timeweaver.repositories.EventRepository.EventDataView;
+
+/**
+ * Reads slices of a project's timeline straight from the indexed event
+ * columns, without loading the whole project.
+ */
+@Service
+public class EventQueryService {
+
+  private static final Logger logger = LoggerFactory.getLogger(EventQueryService.class);
+  private static final TypeReference<Map<String, Object>> EVENT_DATA_TYPE = new TypeReference<>() {
+  };
+
+  private final EventRepository eventRepository;
+  private final EventWriteBehindService eventWriteBehindService;
+  private final ObjectMapper objectMapper;
+
+  public EventQueryService(EventRepository eventRepository, EventWriteBehindService eventWriteBehindService,
+      ObjectMapper objectMapper) {
+    this.eventRepository = eventRepository;
+    this.eventWriteBehindService = eventWriteBehindService;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Events overlapping {@code [start, end]}, optionally limited to some
+   * groups. As in the live viewport, events without a readable start are
+   * always included and events without a group pass the group filter.
+   */
+  public List<Map<String, Object>> getEvents(Long projectId, long start, long end, Collection<String> groups) {
+    // The range and groups are matched on the stored columns, so buffered
+    // updates are written first; laying them over the rows afterwards would
+    // miss events they move into the query and keep ones they move out.
+    if (eventWriteBehindService.getPendingCount() > 0) {
+      eventWriteBehindService.flush();
+    }
+
+    List<EventDataView> rows = new ArrayList<>(groups == null || groups.isEmpty()
+        ? eventRepository.findDataOverlapping(projectId, start, end)
+        : eventRepository.findDataOverlappingInGroups(projectId, start, end, groups));
+    rows.addAll(eventRepository.findDataUnplaced(projectId));
+    return parseEvents(rows);
+  }
+
+  /**
+   * Events of the given item type, by start time.
+   */
+  public List<Map<String, Object>> getEventsByType(Long projectId, String type) {
+    if (eventWriteBehindService.getPendingCount() > 0) {
+      eventWriteBehindService.flush();
+    }
+    return parseEvents(eventRepository.findDataByType(projectId, type));
+  }
+
+  private List<Map<String, Object>> parseEvents(List<EventDataView> rows) {
+    List<Map<String, Object>> events = new ArrayList<>(rows.size());
+    for (EventDataView row : rows) {
+      Map<String, Object> content = parseEventData(row);
+      if (content != null) {
+        events.add(content);
+      }
+    }
+    return events;
+  }
+
+  private Map<String, Object> parseEventData(EventDataView row) {
+    String data = row.getData();
+    Map<String, Object> content = new HashMap<>();
+    if (data != null && !data.isBlank()) {
+      try {
+        content = objectMapper.readValue(data, EVENT_DATA_TYPE);
+      } catch (IOException e) {
+        logger.error("Error deserializing event data for event ID {}: {}", row.getId(), e.getMessage());
+        return null;
+      }
+    }
+    content.put("id", row.getId());
+    return content;
+  }
+}
@@ -0,0 +1,335 @@
+package es.angelkrasimirov.timeweaver.services;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import es.angelkrasimirov.timeweaver.models.Event;
+import es.angelkrasimirov.timeweaver.models.Project;
+import es.angelkrasimirov.timeweaver.repositories.EventRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Coalesces timeline event writes in memory and writes them to the database
+ * in batches, keeping only the net effect for each event: the latest payload
+ * of an update, an insert that absorbs the updates after it, and nothing at
+ * all for an event added and deleted before it was written.
+ */
+@Service
+public class EventWriteBehindService {
+
+  private static final Logger logger = LoggerFactory.getLogger(EventWriteBehindService.class);
+
+  private enum WriteKind {
+    INSERT, UPDATE, DELETE,
+    /** A delete followed by an insert of the same id. */
+    REPLACE
+  }
+
+  /**
+   * A buffered write. The project is only known for inserts and deletes,
+   * which is what a project loaded from the database needs to overlay.
+   */
+  private record PendingWrite(WriteKind kind, Long projectId, String data) {
+
+    /**
+     * The write that has the effect of this one followed by {@code newer},
+     * or {@code null} if together they leave the database as it was.
+     */
+    PendingWrite then(PendingWrite newer) {
+      return switch (newer.kind()) {
+        case UPDATE -> kind == WriteKind.DELETE ? this : new PendingWrite(kind, projectId, newer.data());
+        case DELETE -> kind == WriteKind.INSERT ? null : newer;
+        case INSERT, REPLACE -> kind == WriteKind.INSERT ? newer
+            : new PendingWrite(WriteKind.REPLACE, newer.projectId(), newer.data());
+      };
+    }
+  }
+
+  private final EventRepository eventRepository;
+  private final EntityManager entityManager;
+  private final TransactionTemplate transactionTemplate;
+  private final long flushIntervalMs;
+  private final int maxBatchSize;
+
+  private final ConcurrentHashMap<String, PendingWrite> dirtyEvents = new ConcurrentHashMap<>();
+  private final ReentrantLock flushLock = new ReentrantLock();
+  private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "event-write-behind");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final AtomicLong updatesReceived = new AtomicLong();
+  private final AtomicLong updatesCoalesced = new AtomicLong();
+  private final AtomicLong eventsWritten = new AtomicLong();
+  private final AtomicLong flushCount = new AtomicLong();
+  private final AtomicLong flushFailures = new AtomicLong();
+
+  public EventWriteBehindService(EventRepository eventRepository, EntityManager entityManager,
+      PlatformTransactionManager transactionManager,
+      @Value("${app.websocket.write-behind.flush-interval-ms:500}") long flushIntervalMs,
+      @Value("${app.websocket.write-behind.max-batch-size:200}") int maxBatchSize, MeterRegistry meterRegistry) {
+    this.eventRepository = eventRepository;
+    this.entityManager = entityManager;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.flushIntervalMs = flushIntervalMs;
+    this.maxBatchSize = maxBatchSize;
+
+    Gauge.builder("timeweaver.writebehind.pending", dirtyEvents, Map::size)
+        .description("Events with a buffered write not yet written")
+        .register(meterRegistry);
+    registerCounter(meterRegistry, "timeweaver.writebehind.updates.received", updatesReceived,
+        "Event updates buffered");
+    registerCounter(meterRegistry, "timeweaver.writebehind.updates.coalesced", updatesCoalesced,
+        "Event updates replaced by a newer one before being written");
+    registerCounter(meterRegistry, "timeweaver.writebehind.events.written", eventsWritten,
+        "Buffered event updates written to the database");
+    registerCounter(meterRegistry, "timeweaver.writebehind.flushes", flushCount, "Batches of updates written");
+    registerCounter(meterRegistry, "timeweaver.writebehind.flush.failures", flushFailures,
+        "Batches of updates that failed and were put back");
+  }
+
+  private static void registerCounter(MeterRegistry meterRegistry, String name, AtomicLong count,
+      String description) {
+    FunctionCounter.builder(name, count, AtomicLong::get)
+        .description(description)
+        .register(meterRegistry);
+  }
+
+  @PostConstruct
+  public void start() {
+    scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    logger.info("Event write-behind started (interval {} ms, batch size {})", flushIntervalMs, maxBatchSize);
+  }
+
+  public void enqueueUpdate(String eventId, String data) {
+    enqueue(eventId, new PendingWrite(WriteKind.UPDATE, null, data));
+  }
+
+  /**
+   * Buffers a new event. Only for ids the project does not have yet; an
+   * existing event is changed with {@link #enqueueUpdate}.
+   */
+  public void enqueueInsert(Long projectId, String eventId, String data) {
+    enqueue(eventId, new PendingWrite(WriteKind.INSERT, projectId, data));
+  }
+
+  public void enqueueDelete(Long projectId, String eventId) {
+    enqueue(eventId, new PendingWrite(WriteKind.DELETE, projectId, null));
+  }
+
+  private void enqueue(String eventId, PendingWrite write) {
+    updatesReceived.incrementAndGet();
+    boolean[] coalesced = new boolean[1];
+    dirtyEvents.compute(eventId, (id, pending) -> {
+      coalesced[0] = pending != null;
+      return pending != null ? pending.then(write) : write;
+    });
+    if (coalesced[0]) {
+      updatesCoalesced.incrementAndGet();
+    }
+
+    if (dirtyEvents.size() >= maxBatchSize && flushRequested.compareAndSet(false, true)) {
+      scheduler.execute(this::flushQuietly);
+    }
+  }
+
+  /**
+   * The content of a buffered insert or update of the event, if it has one.
+   */
+  public Optional<String> getPendingData(String eventId) {
+    PendingWrite pending = dirtyEvents.get(eventId);
+    return pending != null && pending.kind() != WriteKind.DELETE ? Optional.of(pending.data()) : Optional.empty();
+  }
+
+  public boolean hasPendingWrites(Collection<String> eventIds) {
+    return eventIds.stream().anyMatch(dirtyEvents::containsKey);
+  }
+
+  /**
+   * The buffered inserts and deletes of a project, as the content of each new
+   * event or {@code null} for a deleted one. Buffered updates are not
+   * included; they are found by event id with {@link #getPendingData}.
+   */
+  public Map<String, String> getPendingInsertsAndDeletes(Long projectId) {
+    Map<String, String> writes = new HashMap<>();
+    dirtyEvents.forEach((eventId, pending) -> {
+      if (projectId.equals(pending.projectId())) {
+        writes.put(eventId, pending.data());
+      }
+    });
+    return writes;
+  }
+
+  /**
+   * Drops any pending update for the event. Waits for an in-flight flush so the
+   * caller's own write is never overtaken by an older buffered payload.
+   */
+  public void discard(String eventId) {
+    flushLock.lock();
+    try {
+      dirtyEvents.remove(eventId);
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /**
+   * Drops the buffered inserts and deletes of a project that is being
+   * deleted, so its new events are not inserted after it is gone.
+   */
+  public void discardProject(Long projectId) {
+    flushLock.lock();
+    try {
+      dirtyEvents.values().removeIf(pending -> projectId.equals(pending.projectId()));
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  public void flush() {
+    flushLock.lock();
+    try {
+      flushRequested.set(false);
+      while (!dirtyEvents.isEmpty()) {
+        if (!writeBatch(drainBatch())) {
+          break;
+        }
+      }
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (Exception e) {
+      logger.error("Unexpected error flushing buffered event updates: {}", e.getMessage(), e);
+    }
+  }
+
+  private Map<String, PendingWrite> drainBatch() {
+    Map<String, PendingWrite> batch = new HashMap<>();
+    Iterator<Map.Entry<String, PendingWrite>> iterator = dirtyEvents.entrySet().iterator();
+    while (iterator.hasNext() && batch.size() < maxBatchSize) {
+      Map.Entry<String, PendingWrite> entry = iterator.next();
+      if (dirtyEvents.remove(entry.getKey(), entry.getValue())) {
+        batch.put(entry.getKey(), entry.getValue());
+      }
+    }
+    return batch;
+  }
+
+  /**
+   * Writes a batch in one transaction: deletes first, as bulk statements, so
+   * a replaced event can be inserted again, then the updates, then the new
+   * events, which are persisted directly since their ids come from the
+   * client.
+   */
+  private boolean writeBatch(Map<String, PendingWrite> batch) {
+    if (batch.isEmpty()) {
+      return true;
+    }
+
+    Set<String> deletes = new HashSet<>();
+    Map<String, String> updates = new HashMap<>();
+    Map<String, PendingWrite> inserts = new HashMap<>();
+    batch.forEach((eventId, pending) -> {
+      switch (pending.kind()) {
+        case UPDATE -> updates.put(eventId, pending.data());
+        case DELETE -> deletes.add(eventId);
+        case INSERT -> inserts.put(eventId, pending);
+        case REPLACE -> {
+          deletes.add(eventId);
+          inserts.put(eventId, pending);
+        }
+      }
+    });
+
+    try {
+      Integer written = transactionTemplate.execute(status -> {
+        if (!deletes.isEmpty()) {
+          eventRepository.deleteConversationsByEventIdIn(deletes);
+          eventRepository.deleteByIdIn(deletes);
+        }
+        int count = batch.size() - updates.size();
+        if (!updates.isEmpty()) {
+          List<Event> events = eventRepository.findAllById(updates.keySet());
+          events.forEach(event -> event.setData(updates.get(event.getId())));
+          count += events.size();
+        }
+        inserts.forEach((eventId, pending) -> {
+          Event event = new Event();
+          event.setId(eventId);
+          event.setProject(entityManager.getReference(Project.class, pending.projectId()));
+          event.setData(pending.data());
+          entityManager.persist(event);
+        });
+        return count;
+      });
+
+      eventsWritten.addAndGet(written != null ? written : 0);
+      flushCount.incrementAndGet();
+      if (written != null && written < batch.size()) {
+        logger.debug("Skipped {} buffered updates of events that no longer exist", batch.size() - written);
+      }
+      logger.debug("Flushed {} buffered event updates (received: {}, coalesced: {}, written: {})",
+          batch.size(), updatesReceived.get(), updatesCoalesced.get(), eventsWritten.get());
+      return true;
+    } catch (RuntimeException e) {
+      flushFailures.incrementAndGet();
+      // Anything enqueued meanwhile happened after the failed writes.
+      batch.forEach((eventId, failed) -> dirtyEvents.merge(eventId, failed, (newer, older) -> older.then(newer)));
+      logger.error("Error flushing {} buffered event updates, will retry: {}", batch.size(), e.getMessage(), e);
+      return false;
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(flushIntervalMs, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    flush();
+    if (!dirtyEvents.isEmpty()) {
+      logger.warn("{} buffered event updates could not be written before shutdown", dirtyEvents.size());
+    }
+    logger.info("Event write-behind stopped (received: {}, coalesced: {}, written: {}, flushes: {}, failures: {})",
+        updatesReceived.get(), updatesCoalesced.get(), eventsWritten.get(), flushCount.get(), flushFailures.get());
+  }
+
+  public int getPendingCount() {
+    return dirtyEvents.size();
+  }
+}
@@ -0,0 +1,242 @@
+package es.angelkrasimirov.timeweaver.services;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs realtime deliveries (WebSocket writers and SSE sends) on either virtual
+ * threads or a fixed platform-thread pool, and records how long each fan-out
+ * takes to reach all of its recipients in the
+ * {@code timeweaver.fanout.duration} and {@code timeweaver.fanout.recipients}
+ * meters, tagged by channel.
+ *
+ * Writer tasks are expected to return after {@code max-writes-per-task}
+ * writes and resubmit themselves if more are queued, so in platform mode a
+ * few slow connections cannot keep every thread of the pool to themselves.
+ */
+@Service
+public class FanOutExecutor implements Executor {
+
+  private static final Logger logger = LoggerFactory.getLogger(FanOutExecutor.class);
+
+  private final ExecutorService executor;
+  private final String threadMode;
+  private final int maxConcurrencyPerFanOut;
+  private final int maxWritesPerTask;
+  private final Map<String, FanOutTimings> timingsByChannel = new ConcurrentHashMap<>();
+  private final MeterRegistry meterRegistry;
+
+  public FanOutExecutor(MeterRegistry meterRegistry,
+      @Value("${app.delivery.thread-mode:virtual}") String threadMode,
+      @Value("${app.delivery.platform-pool-size:16}") int platformPoolSize,
+      @Value("${app.delivery.max-concurrency-per-fan-out:32}") int maxConcurrencyPerFanOut,
+      @Value("${app.delivery.max-writes-per-task:16}") int maxWritesPerTask) {
+    this.meterRegistry = meterRegistry;
+    this.threadMode = threadMode;
+    this.maxConcurrencyPerFanOut = Math.max(1, maxConcurrencyPerFanOut);
+    this.maxWritesPerTask = Math.max(1, maxWritesPerTask);
+
+    if ("platform".equalsIgnoreCase(threadMode)) {
+      AtomicInteger threadCount = new AtomicInteger();
+      this.executor = Executors.newFixedThreadPool(platformPoolSize, runnable -> {
+        Thread thread = new Thread(runnable, "delivery-" + threadCount.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+      });
+    } else {
+      this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("delivery-", 0).factory());
+    }
+    logger.info("Realtime delivery running on {} threads (max {} concurrent deliveries per fan-out)",
+        threadMode, maxConcurrencyPerFanOut);
+  }
+
+  private static class FanOutTimings {
+    private final Timer durationTimer;
+    private final DistributionSummary recipientSummary;
+
+    private FanOutTimings(String channel, MeterRegistry meterRegistry) {
+      this.durationTimer = Timer.builder("timeweaver.fanout.duration")
+          .description("Time for a fan-out to reach all of its recipients")
+          .tag("channel", channel)
+          .publishPercentileHistogram()
+          .minimumExpectedValue(Duration.ofNanos(100_000))
+          .maximumExpectedValue(Duration.ofSeconds(10))
+          .register(meterRegistry);
+      this.recipientSummary = DistributionSummary.builder("timeweaver.fanout.recipients")
+          .description("Recipients of a fan-out")
+          .tag("channel", channel)
+          .publishPercentileHistogram()
+          .maximumExpectedValue(100_000.0)
+          .register(meterRegistry);
+    }
+
+    private void record(int recipientCount, long nanos) {
+      durationTimer.record(nanos, TimeUnit.NANOSECONDS);
+      recipientSummary.record(recipientCount);
+    }
+  }
+
+  /**
+   * Tracks one fan-out whose deliveries are performed elsewhere. The completion
+   * time is recorded once every recipient has reported back.
+   */
+  public class FanOutTracker {
+    private final String channel;
+    private final int recipientCount;
+    private final AtomicInteger remaining;
+    private final long startNanos = System.nanoTime();
+
+    private FanOutTracker(String channel, int recipientCount) {
+      this.channel = channel;
+      this.recipientCount = recipientCount;
+      this.remaining = new AtomicInteger(recipientCount);
+    }
+
+    public void recipientDone() {
+      if (remaining.decrementAndGet() == 0) {
+        recordCompletion(channel, recipientCount, System.nanoTime() - startNanos);
+      }
+    }
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    executor.execute(task);
+  }
+
+  public FanOutTracker track(String channel, int recipientCount) {
+    return new FanOutTracker(channel, recipientCount);
+  }
+
+  /**
+   * Frames or events a writer task sends before it gives its thread back.
+   */
+  public int getMaxWritesPerTask() {
+    return maxWritesPerTask;
+  }
+
+  /**
+   * Creates an executor that runs at most the configured number of its tasks
+   * at once and queues the rest in order. The writers of all the recipients
+   * of a broadcast share a lane, so the broadcast is bounded like
+   * {@link #fanOut}.
+   */
+  public Executor newLane() {
+    return new Lane();
+  }
+
+  private class Lane implements Executor {
+    private final Queue<Runnable> waiting = new ArrayDeque<>();
+    private int running = 0;
+
+    @Override
+    public void execute(Runnable task) {
+      synchronized (this) {
+        if (running >= maxConcurrencyPerFanOut) {
+          waiting.add(task);
+          return;
+        }
+        running++;
+      }
+      executor.execute(() -> run(task));
+    }
+
+    /**
+     * Hands the slot to the next waiting task through the pool rather than
+     * running it here, so other lanes get their turn in between.
+     */
+    private void run(Runnable task) {
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        logger.error("Error in delivery task: {}", e.getMessage(), e);
+      } finally {
+        Runnable next;
+        synchronized (this) {
+          next = waiting.poll();
+          if (next == null) {
+            running--;
+          }
+        }
+        if (next != null) {
+          executor.execute(() -> run(next));
+        }
+      }
+    }
+  }
+
+  /**
+   * Delivers to every recipient concurrently, with at most the configured
+   * number of deliveries of this fan-out in flight at once.
+   */
+  public <T> CompletableFuture<Void> fanOut(String channel, List<T> recipients, Consumer<T> delivery) {
+    CompletableFuture<Void> completion = new CompletableFuture<>();
+    int recipientCount = recipients.size();
+    if (recipientCount == 0) {
+      completion.complete(null);
+      return completion;
+    }
+
+    long startNanos = System.nanoTime();
+    AtomicInteger nextRecipient = new AtomicInteger();
+    AtomicInteger remaining = new AtomicInteger(recipientCount);
+
+    Runnable worker = () -> {
+      int index;
+      while ((index = nextRecipient.getAndIncrement()) < recipientCount) {
+        try {
+          delivery.accept(recipients.get(index));
+        } catch (RuntimeException e) {
+          logger.error("Error delivering {} fan-out to recipient: {}", channel, e.getMessage());
+        }
+        if (remaining.decrementAndGet() == 0) {
+          recordCompletion(channel, recipientCount, System.nanoTime() - startNanos);
+          completion.complete(null);
+        }
+      }
+    };
+
+    int workers = Math.min(maxConcurrencyPerFanOut, recipientCount);
+    for (int i = 0; i < workers; i++) {
+      executor.execute(worker);
+    }
+    return completion;
+  }
+
+  private void recordCompletion(String channel, int recipientCount, long nanos) {
+    timingsByChannel.computeIfAbsent(channel, key -> new FanOutTimings(key, meterRegistry)).record(recipientCount, nanos);
+    logger.debug("{} fan-out to {} recipients completed in {} us ({} threads)", channel, recipientCount,
+        nanos / 1000, threadMode);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+    try {
+      executor.awaitTermination(2, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package es.angelkrasimirov.timeweaver.services;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Keeps the number of unread notifications of each user in
+ * {@code notification_counters}, so it can be read without counting rows.
+ * The updates run in the transaction that inserts or deletes the
+ * notifications, which keeps the counter in step with them.
+ */
+@Service
+public class NotificationCounterService {
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public NotificationCounterService(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @PostConstruct
+  public void start() {
+    jdbcTemplate.execute("""
+        CREATE TABLE IF NOT EXISTS notification_counters (
+          username VARCHAR(255) NOT NULL PRIMARY KEY,
+          unread_count BIGINT NOT NULL
+        )""");
+  }
+
+  public long getUnreadCount(String username) {
+    List<Long> counts = jdbcTemplate.queryForList(
+        "SELECT unread_count FROM notification_counters WHERE username = ?", Long.class, username);
+    return counts.isEmpty() ? 0 : Math.max(0, counts.get(0));
+  }
+
+  /**
+   * Adds one unread notification per occurrence of a username. Users are
+   * updated in a fixed order so concurrent batches do not deadlock.
+   */
+  public void increment(Collection<String> usernames) {
+    Map<String, Long> deltas = new TreeMap<>();
+    usernames.forEach(username -> deltas.merge(username, 1L, Long::sum));
+    if (deltas.isEmpty()) {
+      return;
+    }
+    jdbcTemplate.batchUpdate("""
+        INSERT INTO notification_counters (username, unread_count) VALUES (?, ?)
+        ON DUPLICATE KEY UPDATE unread_count = unread_count + VALUES(unread_count)""",
+        deltas.entrySet().stream().map(entry -> new Object[] { entry.getKey(), entry.getValue() }).toList());
+  }
+
+  public void decrement(String username) {
+    jdbcTemplate.update(
+        "UPDATE notification_counters SET unread_count = GREATEST(unread_count - 1, 0) WHERE username = ?",
+        username);
+  }
+}
@@ -1,21 +1,42 @@
 package es.angelkrasimirov.timeweaver.services;
 
+import es.angelkrasimirov.timeweaver.mappers.NotificationMapper;
 import es.angelkrasimirov.timeweaver.models.Notification;
 import es.angelkrasimirov.timeweaver.repositories.NotificationRepository;
+import es.angelkrasimirov.timeweaver.dtos.NotificationPageDto;
 import es.angelkrasimirov.timeweaver.dtos.NotificationResponseDto;
+import es.angelkrasimirov.timeweaver.messaging.RealtimeBus;
+import es.angelkrasimirov.timeweaver.messaging.UserBusMessage;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 @Service
 public class NotificationService {
@@ -24,27 +45,241 @@ public class NotificationService {
 
   private final Map<String, Map<String, Connection>> emitters = new ConcurrentHashMap<>();
   private final NotificationRepository notificationRepository;
+  private final NotificationWriter notificationWriter;
+  private final NotificationCounterService notificationCounterService;
+  private final TransactionTemplate transactionTemplate;
   private final ObjectMapper objectMapper;
+  private final NotificationMapper notificationMapper;
+  private final FanOutExecutor fanOutExecutor;
+  private final RealtimeBus realtimeBus;
+  private final int emitterQueueCapacity;
+  private final Map<String, ReplayRing> replayRings = new ConcurrentHashMap<>();
+  private final int replayRingSize;
+  private final int replayMaxUsers;
+  private final int replayMaxEvents;
+  private final Duration replayOverlap;
+  // A single thread keeps the notifications of a user in the order they were
+  // committed.
+  private final ExecutorService dispatchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "notification-dispatch");
+    thread.setDaemon(true);
+    return thread;
+  });
 
   @Autowired
-  public NotificationService(NotificationRepository notificationRepository, ObjectMapper objectMapper) {
+  public NotificationService(NotificationRepository notificationRepository, NotificationWriter notificationWriter,
+      NotificationCounterService notificationCounterService, ObjectMapper objectMapper,
+      NotificationMapper notificationMapper, FanOutExecutor fanOutExecutor, RealtimeBus realtimeBus,
+      PlatformTransactionManager transactionManager,
+      @Value("${app.notifications.emitter-queue-capacity:64}") int emitterQueueCapacity,
+      @Value("${app.notifications.replay.ring-size:100}") int replayRingSize,
+      @Value("${app.notifications.replay.max-users:10000}") int replayMaxUsers,
+      @Value("${app.notifications.replay.max-events:200}") int replayMaxEvents,
+      @Value("${app.notifications.replay.overlap-ms:5000}") long replayOverlapMs) {
     this.notificationRepository = notificationRepository;
+    this.notificationWriter = notificationWriter;
+    this.notificationCounterService = notificationCounterService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
     this.objectMapper = objectMapper;
+    this.notificationMapper = notificationMapper;
+    this.fanOutExecutor = fanOutExecutor;
+    this.realtimeBus = realtimeBus;
+    this.emitterQueueCapacity = emitterQueueCapacity;
+    this.replayRingSize = replayRingSize;
+    this.replayMaxUsers = replayMaxUsers;
+    this.replayMaxEvents = replayMaxEvents;
+    this.replayOverlap = Duration.ofMillis(replayOverlapMs);
+  }
+
+  @PostConstruct
+  public void registerBusListener() {
+    realtimeBus.addUserListener((message, remote) -> deliverLocally(message));
+  }
+
+  private record QueuedEvent(Long id, String eventName, String payload, Runnable onDone) {
   }
 
-  private static class Connection {
+  private record ReplayEntry(Long id, String eventName, String payload) {
+  }
+
+  // Stands where a node may have missed events of the user published elsewhere.
+  private static final ReplayEntry GAP = new ReplayEntry(null, null, null);
+
+  /**
+   * The last persisted events of a user, in the order they were delivered.
+   * Appending an event and handing it to the user's streams happen under the
+   * ring's lock, so a reconnecting stream gets each event either from the
+   * replay or live.
+   */
+  private static class ReplayRing {
+    private final Deque<ReplayEntry> entries = new ArrayDeque<>();
+    private final int capacity;
+
+    ReplayRing(int capacity) {
+      this.capacity = capacity;
+    }
+
+    void append(ReplayEntry entry) {
+      if (entries.size() >= capacity) {
+        entries.pollFirst();
+      }
+      entries.addLast(entry);
+    }
+
+    void markGap() {
+      if (entries.peekLast() != GAP) {
+        append(GAP);
+      }
+    }
+
+    /**
+     * The events after the given one, or null when it is no longer held or a
+     * gap follows it.
+     */
+    List<ReplayEntry> entriesAfter(long id) {
+      List<ReplayEntry> after = null;
+      for (ReplayEntry entry : entries) {
+        if (after != null) {
+          if (entry == GAP) {
+            return null;
+          }
+          after.add(entry);
+        } else if (entry != GAP && entry.id() == id) {
+          after = new ArrayList<>();
+        }
+      }
+      return after;
+    }
+  }
+
+  /**
+   * One SSE stream with a bounded queue of events waiting to be written. A
+   * single writer task at a time drains it on the delivery executor, so a slow
+   * tab only delays its own events.
+   */
+  private class Connection {
+    final String username;
+    final String emitterId;
     final SseEmitter emitter;
     final long creationTime;
-
-    Connection(SseEmitter emitter) {
+    private final Deque<QueuedEvent> queue = new ArrayDeque<>();
+    private boolean draining = false;
+    private boolean closed = false;
+    // Live events wait in the queue while missed ones are replayed.
+    private boolean held;
+
+    Connection(String username, String emitterId, SseEmitter emitter, boolean held) {
+      this.username = username;
+      this.emitterId = emitterId;
       this.emitter = emitter;
       this.creationTime = System.currentTimeMillis();
+      this.held = held;
+    }
+
+    void enqueue(QueuedEvent event) {
+      boolean startWriter = false;
+      boolean overflow = false;
+      synchronized (this) {
+        if (closed) {
+          event.onDone().run();
+          return;
+        }
+        if (queue.size() >= emitterQueueCapacity) {
+          overflow = true;
+        } else {
+          queue.addLast(event);
+          if (!draining && !held) {
+            draining = true;
+            startWriter = true;
+          }
+        }
+      }
+
+      if (overflow) {
+        event.onDone().run();
+        // The client reconnects and reads what it missed from the unread notifications.
+        logger.warn("SSE queue full for user {}, emitterId {}; closing the stream", username, emitterId);
+        removeEmitter(username, emitterId);
+      } else if (startWriter) {
+        fanOutExecutor.execute(this::drain);
+      }
+    }
+
+    /**
+     * Starts writing the live events that arrived during the replay, skipping
+     * the ones it already sent.
+     */
+    void release(Set<Long> replayedIds) {
+      boolean startWriter = false;
+      List<QueuedEvent> skipped = new ArrayList<>();
+      synchronized (this) {
+        held = false;
+        queue.removeIf(event -> {
+          boolean replayed = event.id() != null && replayedIds.contains(event.id());
+          if (replayed) {
+            skipped.add(event);
+          }
+          return replayed;
+        });
+        if (!queue.isEmpty() && !draining && !closed) {
+          draining = true;
+          startWriter = true;
+        }
+      }
+      skipped.forEach(event -> event.onDone().run());
+      if (startWriter) {
+        fanOutExecutor.execute(this::drain);
+      }
+    }
+
+    /**
+     * Writes at most {@link FanOutExecutor#getMaxWritesPerTask()} events, then
+     * submits itself again so other streams get the thread in between.
+     */
+    private void drain() {
+      for (int written = 0; written < fanOutExecutor.getMaxWritesPerTask(); written++) {
+        QueuedEvent next;
+        synchronized (this) {
+          next = queue.pollFirst();
+          if (next == null) {
+            draining = false;
+            return;
+          }
+        }
+
+        try {
+          emitter.send(toSseEvent(next.id(), next.eventName(), next.payload()));
+        } catch (IOException | IllegalStateException e) {
+          logger.error("Error sending SSE event to user {}, emitterId {}: {}", username, emitterId, e.getMessage());
+          removeEmitter(username, emitterId);
+        } finally {
+          next.onDone().run();
+        }
+      }
+      fanOutExecutor.execute(this::drain);
+    }
+
+    void close() {
+      List<QueuedEvent> discarded;
+      synchronized (this) {
+        closed = true;
+        discarded = new ArrayList<>(queue);
+        queue.clear();
+      }
+      discarded.forEach(event -> event.onDone().run());
+      emitter.complete();
     }
   }
 
-  public SseEmitter createEmitter(String username) {
+  /**
+   * Opens an SSE stream for the user. When the client sends the id of the last
+   * event it received, the persisted notifications it missed are written to
+   * the stream first.
+   */
+  public SseEmitter createEmitter(String username, String lastEventId) {
     SseEmitter emitter = new SseEmitter(Long.MAX_VALUE);
     String emitterId = UUID.randomUUID().toString();
+    Long lastNotificationId = parseEventId(lastEventId);
 
     emitter.onCompletion(() -> removeEmitter(username, emitterId));
     emitter.onTimeout(() -> removeEmitter(username, emitterId));
@@ -53,7 +288,10 @@ public class NotificationService {
       removeEmitter(username, emitterId);
     });
 
-    Map<String, Connection> userConnections = emitters.computeIfAbsent(username, k -> new ConcurrentHashMap<>());
+    Map<String, Connection> userConnections = emitters.computeIfAbsent(username, k -> {
+      realtimeBus.subscribeUser(k);
+      return new ConcurrentHashMap<>();
+    });
 
     if (userConnections.size() >= MAX_CONNECTIONS_PER_USER) {
       String oldestEmitterId = Collections
@@ -61,7 +299,7 @@ public class NotificationService {
       removeEmitter(username, oldestEmitterId);
     }
 
-    userConnections.put(emitterId, new Connection(emitter));
+    Connection connection = new Connection(username, emitterId, emitter, lastNotificationId != null);
 
     try {
 
@@ -75,23 +313,134 @@ public class NotificationService {
       logger.error("Error sending initial SSE message to user {}, emitterId {}: {}",
           username, emitterId, e.getMessage());
       removeEmitter(username, emitterId);
+      emitter.complete();
+      return emitter;
+    }
+
+    if (lastNotificationId == null) {
+      userConnections.put(emitterId, connection);
+    } else {
+      replayMissed(connection, userConnections, lastNotificationId);
     }
 
     logger.info("SSE connection established for user: {}, emitterId: {}", username, emitterId);
     return emitter;
   }
 
+  private static Long parseEventId(String lastEventId) {
+    if (lastEventId == null || lastEventId.isBlank()) {
+      return null;
+    }
+    try {
+      return Long.valueOf(lastEventId.trim());
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Sends the events after the client's last one from the user's replay ring,
+   * or from the database when the ring no longer covers them. They are written
+   * before the stream is handed to the client, ahead of the live events queued
+   * in the meantime.
+   */
+  private void replayMissed(Connection connection, Map<String, Connection> userConnections,
+      long lastNotificationId) {
+    String username = connection.username;
+    List<ReplayEntry> missed = null;
+    ReplayRing ring = replayRings.get(username);
+    if (ring != null) {
+      synchronized (ring) {
+        missed = ring.entriesAfter(lastNotificationId);
+        if (missed != null) {
+          userConnections.put(connection.emitterId, connection);
+        }
+      }
+    }
+    if (missed == null) {
+      // Registered before the query so nothing committed meanwhile is lost.
+      userConnections.put(connection.emitterId, connection);
+      missed = loadMissed(username, lastNotificationId);
+    }
+
+    Set<Long> replayedIds = new HashSet<>();
+    try {
+      for (ReplayEntry entry : missed) {
+        connection.emitter.send(toSseEvent(entry.id(), entry.eventName(), entry.payload()));
+        replayedIds.add(entry.id());
+      }
+    } catch (IOException | IllegalStateException e) {
+      logger.error("Error replaying SSE events to user {}, emitterId {}: {}", username, connection.emitterId,
+          e.getMessage());
+      removeEmitter(username, connection.emitterId);
+      return;
+    }
+    logger.info("Replayed {} SSE events to user {} after id {}", missed.size(), username, lastNotificationId);
+    connection.release(replayedIds);
+  }
+
+  /**
+   * Reads the notifications created since the client's last one, newest first
+   * so the limit keeps the latest ones, and returns them oldest first. Ids are
+   * allocated before commit, so one committed late can have a lower id than
+   * the last one the client saw; the read starts {@code replay.overlap-ms}
+   * before that notification's time instead, and the client drops the ones
+   * it already has. Falls back to the ids after it if it no longer exists.
+   */
+  private List<ReplayEntry> loadMissed(String username, long lastNotificationId) {
+    List<Notification> notifications;
+    try {
+      Notification last = notificationRepository.findById(lastNotificationId)
+          .filter(notification -> username.equals(notification.getUsername()))
+          .orElse(null);
+      if (last != null) {
+        notifications = notificationRepository.findSince(username, last.getTimestamp().minus(replayOverlap),
+            Limit.of(replayMaxEvents)).stream()
+            .filter(notification -> !notification.getId().equals(last.getId()))
+            .toList();
+      } else {
+        notifications = notificationRepository.findByUsernameAndIdGreaterThanOrderByIdDesc(username,
+            lastNotificationId, Limit.of(replayMaxEvents));
+      }
+    } catch (RuntimeException e) {
+      logger.error("Error loading missed notifications for user {}: {}", username, e.getMessage());
+      return List.of();
+    }
+
+    List<ReplayEntry> missed = new ArrayList<>(notifications.size());
+    for (int i = notifications.size() - 1; i >= 0; i--) {
+      Notification notification = notifications.get(i);
+      try {
+        NotificationResponseDto dto = notificationMapper.toDto(notification, new RawValue(notification.getData()));
+        missed.add(new ReplayEntry(notification.getId(), notification.getEventName(),
+            objectMapper.writeValueAsString(dto)));
+      } catch (JsonProcessingException e) {
+        logger.warn("Error serializing notification {} for replay: {}", notification.getId(), e.getMessage());
+      }
+    }
+    return missed;
+  }
+
+  private static SseEmitter.SseEventBuilder toSseEvent(Long id, String eventName, String payload) {
+    SseEmitter.SseEventBuilder event = SseEmitter.event();
+    if (id != null) {
+      event.id(String.valueOf(id));
+    }
+    return event.name(eventName).data(payload, MediaType.APPLICATION_JSON);
+  }
+
   public void removeEmitter(String username, String emitterId) {
     Map<String, Connection> userConnections = emitters.get(username);
     if (userConnections != null) {
       Connection connection = userConnections.remove(emitterId);
       if (connection != null) {
-        connection.emitter.complete();
+        connection.close();
         logger.info("SSE connection closed for user: {}, emitterId: {}", username, emitterId);
       }
 
-      if (userConnections.isEmpty()) {
-        emitters.remove(username);
+      if (userConnections.isEmpty() && emitters.remove(username, userConnections)) {
+        markReplayGap(username);
+        realtimeBus.unsubscribeUser(username);
         logger.info("Removed all SSE connections for user: {}", username);
       }
     }
@@ -100,71 +449,81 @@ public class NotificationService {
   public void removeAllEmitters(String username) {
     Map<String, Connection> userConnections = emitters.remove(username);
     if (userConnections != null) {
-      userConnections.values().forEach(connection -> connection.emitter.complete());
+      markReplayGap(username);
+      realtimeBus.unsubscribeUser(username);
+      userConnections.values().forEach(Connection::close);
       logger.info("Closed all SSE connections for user: {}, count: {}",
           username, userConnections.size());
     }
   }
 
   public void sendNotificationToUser(String username, String eventName, Object data) {
-    Notification savedNotification = null;
+    sendNotificationToUsers(List.of(username), eventName, data);
+  }
+
+  /**
+   * Persists one notification per user and delivers each to its user's open
+   * streams; the data is serialized once for all of them. Inside a transaction
+   * the rows are saved as part of it and only published once it commits.
+   * Otherwise they go through the {@link NotificationWriter}, which batches
+   * the inserts, and each is published as soon as its id is known. The SSE
+   * writes never run on the calling thread.
+   */
+  public void sendNotificationToUsers(Collection<String> usernames, String eventName, Object data) {
+    if (usernames.isEmpty()) {
+      return;
+    }
+    boolean inTransaction = TransactionSynchronizationManager.isActualTransactionActive();
+    String jsonData;
     try {
-      String jsonData = objectMapper.writeValueAsString(data);
-      Notification notification = Notification.builder()
+      jsonData = objectMapper.writeValueAsString(data);
+    } catch (JsonProcessingException e) {
+      if (inTransaction) {
+        // The business change and its notifications commit or roll back together.
+        throw new IllegalStateException("Could not serialize notification " + eventName, e);
+      }
+      logger.error("Error serializing notification {}: {}", eventName, e.getMessage(), e);
+      return;
+    }
+
+    LocalDateTime timestamp = LocalDateTime.now();
+    List<Notification> notifications = new ArrayList<>(usernames.size());
+    for (String username : usernames) {
+      notifications.add(Notification.builder()
           .username(username)
           .eventName(eventName)
           .data(jsonData)
-          .timestamp(LocalDateTime.now())
+          .timestamp(timestamp)
           .readStatus(false)
-          .build();
-      savedNotification = notificationRepository.save(notification);
-      logger.info("Notification persisted for user: {}, event: {}", username, eventName);
-    } catch (Exception e) {
-      logger.error("Error persisting notification for user {}: {}", username, e.getMessage(), e);
-
+          .build());
+    }
+    // Sent as raw JSON so the data is not serialized again for every recipient.
+    RawValue rawData = new RawValue(jsonData);
+
+    if (inTransaction) {
+      notificationRepository.saveAll(notifications);
+      notificationCounterService.increment(notifications.stream().map(Notification::getUsername).toList());
+      logger.info("{} notifications persisted for event: {}", notifications.size(), eventName);
+      notifications.forEach(notification -> publishAfterCommit(notification.getUsername(), eventName,
+          notificationMapper.toDto(notification, rawData)));
+      return;
     }
 
-    Map<String, Connection> userConnections = emitters.get(username);
-    if (userConnections != null && !userConnections.isEmpty()) {
-      Set<String> deadEmitterIds = ConcurrentHashMap.newKeySet();
-
-      NotificationResponseDto sseDto;
-      if (savedNotification != null) {
-        sseDto = new NotificationResponseDto(
-            savedNotification.getId(),
-            savedNotification.getUsername(),
-            savedNotification.getEventName(),
-            data,
-            savedNotification.getTimestamp(),
-            savedNotification.isReadStatus());
-      } else {
-
-        sseDto = new NotificationResponseDto(
-            null,
-            username,
-            eventName,
-            data,
-            LocalDateTime.now(),
-            false);
-        logger.warn("Sending SSE for user {} event {} without persisted ID due to prior error.", username, eventName);
-      }
-
-      userConnections.forEach((emitterId, connection) -> {
-        try {
-          connection.emitter.send(SseEmitter.event()
-              .name(eventName)
-              .data(sseDto));
-        } catch (IOException e) {
-          logger.error("Error sending SSE event to user {}, emitterId {}: {}",
-              username, emitterId, e.getMessage());
-          deadEmitterIds.add(emitterId);
+    List<CompletableFuture<Notification>> results = notificationWriter.writeAll(notifications);
+    for (int i = 0; i < notifications.size(); i++) {
+      Notification notification = notifications.get(i);
+      results.get(i).whenComplete((saved, error) -> {
+        if (error != null) {
+          logger.warn("Sending SSE for user {} event {} without persisted ID due to prior error.",
+              notification.getUsername(), eventName);
+          notification.setId(null);
         }
+        publishAfterCommit(notification.getUsername(), eventName, notificationMapper.toDto(notification, rawData));
       });
-
-      deadEmitterIds.forEach(emitterId -> removeEmitter(username, emitterId));
     }
   }
 
+
   public void sendNotificationToAll(String eventName, Object data) {
 
     NotificationResponseDto broadcastDto = new NotificationResponseDto(
@@ -175,21 +534,121 @@ public class NotificationService {
         LocalDateTime.now(),
         false);
 
-    emitters.forEach((username, userConnections) -> {
-      Set<String> deadEmitterIds = ConcurrentHashMap.newKeySet();
-      userConnections.forEach((emitterId, connection) -> {
+    publishAfterCommit(null, eventName, broadcastDto);
+  }
+
+  /**
+   * Serializes the event right away, while lazy data is still reachable, and
+   * hands it to the dispatch thread after the current transaction commits (or
+   * at once outside a transaction). Nothing is sent for a rolled back change.
+   */
+  private void publishAfterCommit(String username, String eventName, NotificationResponseDto dto) {
+    UserBusMessage message;
+    try {
+      message = new UserBusMessage(username, eventName, objectMapper.writeValueAsString(dto), dto.getId());
+    } catch (JsonProcessingException e) {
+      logger.error("Error serializing SSE event {} for user {}: {}", eventName, username, e.getMessage());
+      return;
+    }
+
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          dispatch(message);
+        }
+      });
+    } else {
+      dispatch(message);
+    }
+  }
+
+  private void dispatch(UserBusMessage message) {
+    try {
+      dispatchExecutor.execute(() -> {
         try {
-          connection.emitter.send(SseEmitter.event()
-              .name(eventName)
-              .data(broadcastDto));
-        } catch (IOException e) {
-          logger.error("Error sending broadcast SSE event to user {}, emitterId {}: {}",
-              username, emitterId, e.getMessage());
-          deadEmitterIds.add(emitterId);
+          realtimeBus.publishToUser(message);
+        } catch (RuntimeException e) {
+          logger.error("Error publishing SSE event {} for user {}: {}", message.eventName(), message.username(),
+              e.getMessage());
         }
       });
-      deadEmitterIds.forEach(emitterId -> removeEmitter(username, emitterId));
-    });
+    } catch (RejectedExecutionException e) {
+      logger.warn("Notification dispatch is shut down, dropping SSE event {} for user {}", message.eventName(),
+          message.username());
+    }
+  }
+
+  private void deliverLocally(UserBusMessage message) {
+    String username = message.username();
+    ReplayRing ring = username != null && message.notificationId() != null ? replayRingFor(username) : null;
+    if (ring == null) {
+      enqueue(recipientsOf(username), message);
+      return;
+    }
+
+    synchronized (ring) {
+      List<Connection> recipients = recipientsOf(username);
+      // With several nodes a user's events only all arrive here while they are subscribed.
+      if (!recipients.isEmpty() || !realtimeBus.isDistributed()) {
+        ring.append(new ReplayEntry(message.notificationId(), message.eventName(), message.payload()));
+      }
+      enqueue(recipients, message);
+    }
+  }
+
+  private List<Connection> recipientsOf(String username) {
+    List<Connection> recipients = new ArrayList<>();
+    if (username == null) {
+      emitters.values().forEach(userConnections -> recipients.addAll(userConnections.values()));
+    } else {
+      Map<String, Connection> userConnections = emitters.get(username);
+      if (userConnections != null) {
+        recipients.addAll(userConnections.values());
+      }
+    }
+    return recipients;
+  }
+
+  private void enqueue(List<Connection> recipients, UserBusMessage message) {
+    FanOutExecutor.FanOutTracker tracker = fanOutExecutor.track("sse", recipients.size());
+    QueuedEvent event = new QueuedEvent(message.notificationId(), message.eventName(), message.payload(),
+        tracker::recipientDone);
+    recipients.forEach(connection -> connection.enqueue(event));
+  }
+
+  private ReplayRing replayRingFor(String username) {
+    if (replayRingSize <= 0) {
+      return null;
+    }
+    ReplayRing ring = replayRings.get(username);
+    if (ring != null) {
+      return ring;
+    }
+    if (replayRings.size() >= replayMaxUsers) {
+      // Users without an open stream go first; they fall back to the database.
+      replayRings.keySet().removeIf(user -> !emitters.containsKey(user));
+      if (replayRings.size() >= replayMaxUsers) {
+        replayRings.clear();
+      }
+    }
+    return replayRings.computeIfAbsent(username, k -> new ReplayRing(replayRingSize));
+  }
+
+  /**
+   * Once a user has no stream here, a node relaying other nodes' messages no
+   * longer receives theirs, so their ring cannot tell what they missed.
+   */
+  private void markReplayGap(String username) {
+    if (!realtimeBus.isDistributed()) {
+      return;
+    }
+    ReplayRing ring = replayRings.get(username);
+    if (ring != null) {
+      synchronized (ring) {
+        ring.markGap();
+      }
+    }
   }
 
   public int getActiveUserCount() {
@@ -207,46 +666,81 @@ public class NotificationService {
     return userConnections != null ? userConnections.size() : 0;
   }
 
-  public List<NotificationResponseDto> getUnreadNotificationsForUser(String username) {
-    List<Notification> notifications = notificationRepository
-        .findByUsernameAndReadStatusFalseOrderByTimestampDesc(username);
-    return notifications.stream()
-        .map(this::convertToDto)
-        .collect(Collectors.toList());
+  /**
+   * A page of the user's unread notifications, newest first. The cursor holds
+   * the timestamp and id of the last notification of the previous page, so
+   * every page is one index range however deep it is, and only the data of
+   * the notifications returned is parsed.
+   */
+  public NotificationPageDto getUnreadNotificationsPage(String username, String cursor, int limit) {
+    // One extra row tells whether there is another page.
+    Limit fetchLimit = Limit.of(limit + 1);
+    List<Notification> notifications;
+    if (cursor == null || cursor.isBlank()) {
+      notifications = notificationRepository.findByUsernameAndReadStatusFalseOrderByTimestampDescIdDesc(username,
+          fetchLimit);
+    } else {
+      PageCursor after = decodeCursor(cursor);
+      notifications = notificationRepository.findUnreadBefore(username, after.timestamp(), after.id(), fetchLimit);
+    }
+
+    String nextCursor = null;
+    if (notifications.size() > limit) {
+      notifications = notifications.subList(0, limit);
+      nextCursor = encodeCursor(notifications.get(limit - 1));
+    }
+    return new NotificationPageDto(notifications.stream().map(notificationMapper::toDto).toList(), nextCursor);
   }
 
-  private NotificationResponseDto convertToDto(Notification notification) {
-    Object deserializedData = null;
-    if (notification.getData() != null && !notification.getData().isEmpty()) {
-      try {
+  public long getUnreadCount(String username) {
+    return notificationCounterService.getUnreadCount(username);
+  }
 
-        deserializedData = objectMapper.readValue(notification.getData(), Object.class);
-      } catch (JsonProcessingException e) {
-        logger.warn("Failed to parse notification data as JSON for notification id {}. Returning raw string. Error: {}",
-            notification.getId(), e.getMessage());
-        deserializedData = notification.getData();
-      }
-    }
-    return new NotificationResponseDto(
-        notification.getId(),
-        notification.getUsername(),
-        notification.getEventName(),
-        deserializedData,
-        notification.getTimestamp(),
-        notification.isReadStatus());
+  private record PageCursor(LocalDateTime timestamp, Long id) {
   }
 
-  public void markNotificationAsRead(Long notificationId, String username) {
-    Notification notification = notificationRepository.findById(notificationId)
-        .orElseThrow(() -> new RuntimeException("Notification not found with id: " + notificationId));
+  private static String encodeCursor(Notification notification) {
+    String position = notification.getTimestamp() + "|" + notification.getId();
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static PageCursor decodeCursor(String cursor) {
+    try {
+      String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      int separator = position.lastIndexOf('|');
+      return new PageCursor(LocalDateTime.parse(position.substring(0, separator)),
+          Long.valueOf(position.substring(separator + 1)));
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Invalid notification cursor: " + cursor);
+    }
+  }
 
-    if (!notification.getUsername().equals(username)) {
-      logger.warn("User {} attempted to mark notification {} as read, but it belongs to {}", username, notificationId,
-          notification.getUsername());
-      throw new SecurityException("User does not have permission to mark this notification as read.");
+  @PreDestroy
+  public void shutdown() {
+    dispatchExecutor.shutdown();
+    try {
+      dispatchExecutor.awaitTermination(2, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
     }
+  }
 
-    notificationRepository.deleteById(notificationId);
+  public void markNotificationAsRead(Long notificationId, String username) {
+    transactionTemplate.executeWithoutResult(status -> {
+      Notification notification = notificationRepository.findById(notificationId)
+          .orElseThrow(() -> new RuntimeException("Notification not found with id: " + notificationId));
+
+      if (!notification.getUsername().equals(username)) {
+        logger.warn("User {} attempted to mark notification {} as read, but it belongs to {}", username,
+            notificationId, notification.getUsername());
+        throw new SecurityException("User does not have permission to mark this notification as read.");
+      }
+
+      // Only the request that actually removed it lowers the counter.
+      if (notificationRepository.deleteByIdAndUsername(notificationId, username) > 0) {
+        notificationCounterService.decrement(username);
+      }
+    });
     logger.info("Notification {} removed for user {}", notificationId, username);
   }
 }
\ No newline at end of file
@@ -0,0 +1,130 @@
+package es.angelkrasimirov.timeweaver.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import es.angelkrasimirov.timeweaver.models.Notification;
+import es.angelkrasimirov.timeweaver.repositories.NotificationRepository;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Collects notifications written outside a transaction for a few milliseconds
+ * and inserts them together. Notification ids come from a pooled sequence,
+ * so Hibernate sends each batch as JDBC batches, which the MySQL driver
+ * rewrites into multi-row INSERTs. Every notification gets a future that
+ * completes with the saved row, id included.
+ */
+@Service
+public class NotificationWriter {
+
+  private static final Logger logger = LoggerFactory.getLogger(NotificationWriter.class);
+
+  private record PendingNotification(Notification notification, CompletableFuture<Notification> result) {
+  }
+
+  private final NotificationRepository notificationRepository;
+  private final NotificationCounterService notificationCounterService;
+  private final TransactionTemplate transactionTemplate;
+  private final long lingerMs;
+  private final int maxBatchSize;
+
+  private final ConcurrentLinkedQueue<PendingNotification> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pendingCount = new AtomicInteger();
+  private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "notification-writer");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public NotificationWriter(NotificationRepository notificationRepository,
+      NotificationCounterService notificationCounterService, PlatformTransactionManager transactionManager,
+      @Value("${app.notifications.writer.linger-ms:5}") long lingerMs,
+      @Value("${app.notifications.writer.max-batch-size:500}") int maxBatchSize) {
+    this.notificationRepository = notificationRepository;
+    this.notificationCounterService = notificationCounterService;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.lingerMs = lingerMs;
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  public List<CompletableFuture<Notification>> writeAll(List<Notification> notifications) {
+    List<CompletableFuture<Notification>> results = new ArrayList<>(notifications.size());
+    for (Notification notification : notifications) {
+      CompletableFuture<Notification> result = new CompletableFuture<>();
+      pending.add(new PendingNotification(notification, result));
+      results.add(result);
+    }
+
+    try {
+      if (pendingCount.addAndGet(notifications.size()) >= maxBatchSize) {
+        scheduler.execute(this::flushQuietly);
+      } else if (flushScheduled.compareAndSet(false, true)) {
+        scheduler.schedule(this::flushQuietly, lingerMs, TimeUnit.MILLISECONDS);
+      }
+    } catch (RejectedExecutionException e) {
+      // Shutting down: write on the calling thread rather than lose them.
+      flushQuietly();
+    }
+    return results;
+  }
+
+  private void flushQuietly() {
+    flushScheduled.set(false);
+    List<PendingNotification> batch = new ArrayList<>();
+    PendingNotification next;
+    while ((next = pending.poll()) != null) {
+      pendingCount.decrementAndGet();
+      batch.add(next);
+      if (batch.size() >= maxBatchSize) {
+        write(batch);
+        batch = new ArrayList<>();
+      }
+    }
+    if (!batch.isEmpty()) {
+      write(batch);
+    }
+  }
+
+  private void write(List<PendingNotification> batch) {
+    try {
+      List<Notification> notifications = batch.stream().map(PendingNotification::notification).toList();
+      transactionTemplate.executeWithoutResult(status -> {
+        notificationRepository.saveAll(notifications);
+        notificationCounterService.increment(notifications.stream().map(Notification::getUsername).toList());
+      });
+    } catch (RuntimeException e) {
+      logger.error("Error writing batch of {} notifications: {}", batch.size(), e.getMessage(), e);
+      batch.forEach(item -> item.result().completeExceptionally(e));
+      return;
+    }
+    logger.debug("Wrote batch of {} notifications", batch.size());
+    batch.forEach(item -> item.result().complete(item.notification()));
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(2, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flushQuietly();
+  }
+}
@@ -0,0 +1,526 @@
+package es.angelkrasimirov.timeweaver.services;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Append-only history of the timeline operations of every project. Each
+ * operation is logged with the full content its event had afterwards, and
+ * every few hundred operations the project is compacted into a snapshot, so
+ * the state at any version or time is one snapshot plus a bounded replay.
+ *
+ * Operations are buffered and inserted in batches by a background thread, so
+ * logging them adds no database round trip to the live edit path. The
+ * version of a state is the id of the last operation it includes. While the
+ * database is unavailable the buffer is bounded: operations past
+ * {@code max-pending}, and a batch that failed {@code max-attempts} times,
+ * are dropped from the history and counted.
+ *
+ * A drop leaves a gap in the history of every project it touched. The gap is
+ * stored once the database is back, and reads of versions after it are
+ * refused until a later flush writes a new baseline from the live state of
+ * the project, since replaying across the gap would rebuild states that never
+ * existed.
+ */
+@Service
+public class ProjectHistoryService {
+
+  private static final Logger logger = LoggerFactory.getLogger(ProjectHistoryService.class);
+  private static final TypeReference<Map<String, Object>> EVENT_DATA_TYPE = new TypeReference<>() {
+  };
+  private static final TypeReference<Map<String, Map<String, Object>>> SNAPSHOT_TYPE = new TypeReference<>() {
+  };
+
+  private record HistoryRow(Long projectId, String type, String eventId, String data, String username,
+      long timestamp) {
+  }
+
+  private record Snapshot(long version, long takenAt, String data) {
+  }
+
+  /**
+   * Events of a project at {@code version}, as they were at
+   * {@code timestamp}.
+   */
+  public record HistoryState(Long projectId, long version, long timestamp, List<Map<String, Object>> events) {
+  }
+
+  private final JdbcTemplate jdbcTemplate;
+  private final ObjectMapper objectMapper;
+  private final long flushIntervalMs;
+  private final int maxBatchSize;
+  private final int snapshotInterval;
+  private final int maxPending;
+  private final int maxAttempts;
+
+  private final ConcurrentLinkedQueue<HistoryRow> pendingRows = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pendingCount = new AtomicInteger();
+  private final AtomicLong droppedOperations = new AtomicLong();
+  private int failedAttempts;
+  private final ConcurrentHashMap<Long, Integer> operationsSinceSnapshot = new ConcurrentHashMap<>();
+  private final Set<Long> gappedProjects = ConcurrentHashMap.newKeySet();
+  private final Map<Long, Long> openGaps = new ConcurrentHashMap<>();
+  private volatile Function<Long, Optional<List<Map<String, Object>>>> liveState = projectId -> Optional.empty();
+  private List<HistoryRow> failedBatch = List.of();
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "project-history");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public ProjectHistoryService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+      @Value("${app.history.flush-interval-ms:500}") long flushIntervalMs,
+      @Value("${app.history.max-batch-size:500}") int maxBatchSize,
+      @Value("${app.history.snapshot-interval:500}") int snapshotInterval,
+      @Value("${app.history.max-pending:100000}") int maxPending,
+      @Value("${app.history.max-attempts:5}") int maxAttempts, MeterRegistry meterRegistry) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.objectMapper = objectMapper;
+    this.flushIntervalMs = flushIntervalMs;
+    this.maxBatchSize = maxBatchSize;
+    this.snapshotInterval = Math.max(1, snapshotInterval);
+    this.maxPending = maxPending;
+    this.maxAttempts = Math.max(1, maxAttempts);
+
+    Gauge.builder("timeweaver.history.pending", this, ProjectHistoryService::getPendingCount)
+        .description("History operations waiting to be written")
+        .register(meterRegistry);
+    FunctionCounter.builder("timeweaver.history.dropped", droppedOperations, AtomicLong::get)
+        .description("History operations dropped because they could not be written")
+        .register(meterRegistry);
+  }
+
+  @PostConstruct
+  public void start() {
+    jdbcTemplate.execute("""
+        CREATE TABLE IF NOT EXISTS project_operations (
+          id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+          project_id BIGINT NOT NULL,
+          op_type VARCHAR(16) NOT NULL,
+          event_id VARCHAR(255) NOT NULL,
+          data JSON NULL,
+          username VARCHAR(255) NULL,
+          created_at DATETIME(3) NOT NULL,
+          KEY idx_project_operations_project_id (project_id, id),
+          KEY idx_project_operations_created_at (project_id, created_at)
+        )""");
+    jdbcTemplate.execute("""
+        CREATE TABLE IF NOT EXISTS project_snapshots (
+          project_id BIGINT NOT NULL,
+          version BIGINT NOT NULL,
+          taken_at DATETIME(3) NOT NULL,
+          data LONGTEXT NOT NULL,
+          PRIMARY KEY (project_id, version)
+        )""");
+    jdbcTemplate.execute("""
+        CREATE TABLE IF NOT EXISTS project_history_gaps (
+          project_id BIGINT NOT NULL,
+          after_version BIGINT NOT NULL,
+          baseline_version BIGINT NULL,
+          PRIMARY KEY (project_id, after_version)
+        )""");
+    jdbcTemplate.query("SELECT project_id, after_version FROM project_history_gaps WHERE baseline_version IS NULL",
+        rs -> {
+          openGaps.put(rs.getLong("project_id"), rs.getLong("after_version"));
+        });
+
+    scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    logger.info("Project history started (interval {} ms, snapshot every {} operations)", flushIntervalMs,
+        snapshotInterval);
+  }
+
+  /**
+   * Logs an applied operation. {@code data} is the JSON content of the event
+   * after the operation, or {@code null} for a delete.
+   */
+  public void record(Long projectId, String type, String eventId, String data, String username) {
+    if (pendingCount.incrementAndGet() > maxPending) {
+      pendingCount.decrementAndGet();
+      gappedProjects.add(projectId);
+      if (droppedOperations.getAndIncrement() % 1000 == 0) {
+        logger.warn("History buffer full ({} operations), dropping operations of project {}", maxPending, projectId);
+      }
+      return;
+    }
+    pendingRows.add(new HistoryRow(projectId, type, eventId, data, username, System.currentTimeMillis()));
+  }
+
+  /**
+   * Operations buffered or waiting for a retry, not yet in the database.
+   */
+  public int getPendingCount() {
+    return pendingCount.get();
+  }
+
+  /**
+   * Sets where the current events of a project are read from when its
+   * history has to start again after a gap. The source returns nothing for a
+   * project that is not loaded.
+   */
+  public void setLiveStateSource(Function<Long, Optional<List<Map<String, Object>>>> liveState) {
+    this.liveState = liveState;
+  }
+
+  /**
+   * Stores the state a project was loaded with as its first snapshot, unless
+   * its history has already started. Operations logged later all replay on
+   * top of it.
+   */
+  public void ensureBaseline(Long projectId, Map<String, Map<String, Object>> events) {
+    try {
+      Integer snapshots = jdbcTemplate.queryForObject(
+          "SELECT COUNT(*) FROM project_snapshots WHERE project_id = ?", Integer.class, projectId);
+      if (snapshots == null || snapshots == 0) {
+        jdbcTemplate.update(
+            "INSERT IGNORE INTO project_snapshots (project_id, version, taken_at, data) VALUES (?, 0, ?, ?)",
+            projectId, new Timestamp(System.currentTimeMillis()), objectMapper.writeValueAsString(events));
+      }
+    } catch (RuntimeException | JsonProcessingException e) {
+      logger.error("Error writing the baseline snapshot of project {}: {}", projectId, e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Empty if there is no state at {@code version} or it lies in a gap of the
+   * history that no baseline has closed yet.
+   */
+  public Optional<HistoryState> getStateAtVersion(Long projectId, long version) {
+    if (isInGap(projectId, version)) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(replay(projectId, version));
+  }
+
+  public Optional<HistoryState> getStateAt(Long projectId, Instant time) {
+    Timestamp timestamp = Timestamp.from(time);
+    Long version = jdbcTemplate.queryForObject(
+        "SELECT MAX(id) FROM project_operations WHERE project_id = ? AND created_at <= ?", Long.class, projectId,
+        timestamp);
+    if (version == null) {
+      // Before the first logged operation only a baseline can describe the project.
+      version = jdbcTemplate.query("""
+          SELECT MAX(version) FROM project_snapshots WHERE project_id = ? AND taken_at <= ?""",
+          rs -> rs.next() ? rs.getObject(1, Long.class) : null, projectId, timestamp);
+    }
+    return version != null ? getStateAtVersion(projectId, version) : Optional.empty();
+  }
+
+  /**
+   * Deletes the history of a project along with the operations still
+   * buffered for it. Holds the flush lock, so a batch being written cannot
+   * insert them back afterwards.
+   */
+  public synchronized void deleteHistory(Long projectId) {
+    int purged = 0;
+    for (Iterator<HistoryRow> iterator = pendingRows.iterator(); iterator.hasNext();) {
+      if (iterator.next().projectId().equals(projectId)) {
+        iterator.remove();
+        purged++;
+      }
+    }
+    List<HistoryRow> retried = failedBatch.stream().filter(row -> !row.projectId().equals(projectId)).toList();
+    purged += failedBatch.size() - retried.size();
+    failedBatch = retried;
+    pendingCount.addAndGet(-purged);
+
+    jdbcTemplate.update("DELETE FROM project_operations WHERE project_id = ?", projectId);
+    jdbcTemplate.update("DELETE FROM project_snapshots WHERE project_id = ?", projectId);
+    jdbcTemplate.update("DELETE FROM project_history_gaps WHERE project_id = ?", projectId);
+    operationsSinceSnapshot.remove(projectId);
+    gappedProjects.remove(projectId);
+    openGaps.remove(projectId);
+  }
+
+  private boolean isInGap(Long projectId, long version) {
+    Integer gaps = jdbcTemplate.queryForObject("""
+        SELECT COUNT(*) FROM project_history_gaps
+        WHERE project_id = ? AND after_version < ? AND (baseline_version IS NULL OR baseline_version > ?)""",
+        Integer.class, projectId, version, version);
+    return gaps != null && gaps > 0;
+  }
+
+  /**
+   * Rebuilds a project from its latest snapshot at or before
+   * {@code version}, replaying the operations logged after it.
+   */
+  private HistoryState replay(Long projectId, long version) {
+    Snapshot snapshot = jdbcTemplate.query("""
+        SELECT version, taken_at, data FROM project_snapshots
+        WHERE project_id = ? AND version <= ? ORDER BY version DESC LIMIT 1""",
+        rs -> rs.next()
+            ? new Snapshot(rs.getLong("version"), rs.getTimestamp("taken_at").getTime(), rs.getString("data"))
+            : null,
+        projectId, version);
+    if (snapshot == null) {
+      return null;
+    }
+
+    Map<String, Map<String, Object>> events;
+    try {
+      events = new LinkedHashMap<>(objectMapper.readValue(snapshot.data(), SNAPSHOT_TYPE));
+    } catch (JsonProcessingException e) {
+      logger.error("Error deserializing snapshot {} of project {}: {}", snapshot.version(), projectId,
+          e.getMessage());
+      return null;
+    }
+
+    long[] replayed = { snapshot.version(), snapshot.takenAt() };
+    jdbcTemplate.query("""
+        SELECT id, op_type, event_id, data, created_at FROM project_operations
+        WHERE project_id = ? AND id > ? AND id <= ? ORDER BY id""",
+        rs -> {
+          String eventId = rs.getString("event_id");
+          String data = rs.getString("data");
+          if ("delete".equals(rs.getString("op_type")) || data == null) {
+            events.remove(eventId);
+          } else {
+            events.put(eventId, parseEventData(eventId, data));
+          }
+          replayed[0] = rs.getLong("id");
+          replayed[1] = rs.getTimestamp("created_at").getTime();
+        },
+        projectId, replayed[0], version);
+
+    return new HistoryState(projectId, replayed[0], replayed[1], new ArrayList<>(events.values()));
+  }
+
+  private Map<String, Object> parseEventData(String eventId, String data) {
+    Map<String, Object> content;
+    try {
+      content = objectMapper.readValue(data, EVENT_DATA_TYPE);
+    } catch (JsonProcessingException e) {
+      logger.warn("Error deserializing logged data of event {}: {}", eventId, e.getMessage());
+      content = new LinkedHashMap<>();
+    }
+    content.put("id", eventId);
+    return content;
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (Exception e) {
+      logger.error("Unexpected error writing project history: {}", e.getMessage(), e);
+    }
+  }
+
+  private synchronized void flush() {
+    while (true) {
+      if (!storeGaps()) {
+        return;
+      }
+      List<HistoryRow> batch = failedBatch.isEmpty() ? drainBatch() : failedBatch;
+      if (batch.isEmpty()) {
+        rebaseline();
+        return;
+      }
+      try {
+        jdbcTemplate.batchUpdate("""
+            INSERT INTO project_operations (project_id, op_type, event_id, data, username, created_at)
+            VALUES (?, ?, ?, ?, ?, ?)""",
+            batch.stream().map(row -> new Object[] { row.projectId(), row.type(), row.eventId(), row.data(),
+                row.username(), new Timestamp(row.timestamp()) }).toList());
+        failedBatch = List.of();
+        failedAttempts = 0;
+        pendingCount.addAndGet(-batch.size());
+      } catch (RuntimeException e) {
+        if (++failedAttempts >= maxAttempts) {
+          failedBatch = List.of();
+          failedAttempts = 0;
+          pendingCount.addAndGet(-batch.size());
+          droppedOperations.addAndGet(batch.size());
+          batch.forEach(row -> gappedProjects.add(row.projectId()));
+          logger.error("Error writing {} history operations, dropping them after {} attempts: {}", batch.size(),
+              maxAttempts, e.getMessage(), e);
+        } else {
+          // Retried first on the next run, so the log keeps its order.
+          failedBatch = batch;
+          logger.error("Error writing {} history operations, will retry: {}", batch.size(), e.getMessage(), e);
+        }
+        return;
+      }
+      compact(batch);
+    }
+  }
+
+  private List<HistoryRow> drainBatch() {
+    List<HistoryRow> batch = new ArrayList<>();
+    HistoryRow row;
+    while (batch.size() < maxBatchSize && (row = pendingRows.poll()) != null) {
+      batch.add(row);
+    }
+    return batch;
+  }
+
+  /**
+   * Stores a gap for every project that lost operations, before anything
+   * logged after them is inserted. The gap starts at the last version already
+   * written, which may leave out operations queued before the lost ones but
+   * never includes one queued after them.
+   *
+   * @return whether the gaps could be stored
+   */
+  private boolean storeGaps() {
+    for (Iterator<Long> iterator = gappedProjects.iterator(); iterator.hasNext();) {
+      Long projectId = iterator.next();
+      if (!openGaps.containsKey(projectId)) {
+        try {
+          long afterVersion = lastVersion(projectId);
+          jdbcTemplate.update("INSERT IGNORE INTO project_history_gaps (project_id, after_version) VALUES (?, ?)",
+              projectId, afterVersion);
+          openGaps.put(projectId, afterVersion);
+          logger.warn("History of project {} has a gap after version {}", projectId, afterVersion);
+        } catch (RuntimeException e) {
+          logger.error("Error storing the history gap of project {}: {}", projectId, e.getMessage(), e);
+          return false;
+        }
+      }
+      iterator.remove();
+    }
+    return true;
+  }
+
+  /**
+   * Closes the open gaps of loaded projects with a baseline of their live
+   * state, once an operation logged after the gap gives the baseline a
+   * version of its own. Operations applied while the state is read replay on
+   * top of it again, which is harmless since each carries the full content of
+   * its event.
+   */
+  private void rebaseline() {
+    openGaps.forEach((projectId, afterVersion) -> {
+      Optional<List<Map<String, Object>>> state = liveState.apply(projectId);
+      if (state.isEmpty()) {
+        return;
+      }
+      try {
+        long version = lastVersion(projectId);
+        if (version <= afterVersion) {
+          return;
+        }
+        Map<String, Map<String, Object>> events = new LinkedHashMap<>();
+        for (Map<String, Object> event : state.get()) {
+          events.put((String) event.get("id"), event);
+        }
+        jdbcTemplate.update("REPLACE INTO project_snapshots (project_id, version, taken_at, data) VALUES (?, ?, ?, ?)",
+            projectId, version, new Timestamp(System.currentTimeMillis()), objectMapper.writeValueAsString(events));
+        jdbcTemplate.update("""
+            UPDATE project_history_gaps SET baseline_version = ?
+            WHERE project_id = ? AND after_version = ?""", version, projectId, afterVersion);
+        openGaps.remove(projectId);
+        operationsSinceSnapshot.put(projectId, 0);
+        logger.info("History of project {} restarted from a baseline at version {}", projectId, version);
+      } catch (RuntimeException | JsonProcessingException e) {
+        logger.error("Error writing a baseline of project {}: {}", projectId, e.getMessage(), e);
+      }
+    });
+  }
+
+  private long lastVersion(Long projectId) {
+    Long version = jdbcTemplate.queryForObject("SELECT MAX(id) FROM project_operations WHERE project_id = ?",
+        Long.class, projectId);
+    return version != null ? version : 0;
+  }
+
+  /**
+   * Snapshots every project of the batch that has logged enough operations
+   * since its last snapshot.
+   */
+  private void compact(List<HistoryRow> batch) {
+    Map<Long, Integer> counts = new LinkedHashMap<>();
+    batch.forEach(row -> counts.merge(row.projectId(), 1, Integer::sum));
+
+    Set<Long> due = new LinkedHashSet<>();
+    counts.forEach((projectId, count) -> {
+      Integer known = operationsSinceSnapshot.get(projectId);
+      int total = known != null ? known + count : countOperationsSinceSnapshot(projectId);
+      operationsSinceSnapshot.put(projectId, total);
+      if (total >= snapshotInterval) {
+        due.add(projectId);
+      }
+    });
+
+    for (Long projectId : due) {
+      try {
+        writeSnapshot(projectId);
+        operationsSinceSnapshot.put(projectId, 0);
+      } catch (RuntimeException | JsonProcessingException e) {
+        logger.error("Error writing a snapshot of project {}: {}", projectId, e.getMessage(), e);
+      }
+    }
+  }
+
+  /**
+   * Counted once per project and node, so a restart does not let the replay
+   * grow past the interval. Includes the rows just inserted.
+   */
+  private int countOperationsSinceSnapshot(Long projectId) {
+    Integer count = jdbcTemplate.queryForObject("""
+        SELECT COUNT(*) FROM project_operations
+        WHERE project_id = ? AND id > (SELECT COALESCE(MAX(version), 0) FROM project_snapshots WHERE project_id = ?)""",
+        Integer.class, projectId, projectId);
+    return count != null ? count : 0;
+  }
+
+  private void writeSnapshot(Long projectId) throws JsonProcessingException {
+    HistoryState state = replay(projectId, Long.MAX_VALUE);
+    if (state == null) {
+      return;
+    }
+    Map<String, Map<String, Object>> events = new LinkedHashMap<>();
+    for (Map<String, Object> event : state.events()) {
+      events.put((String) event.get("id"), event);
+    }
+    jdbcTemplate.update(
+        "INSERT IGNORE INTO project_snapshots (project_id, version, taken_at, data) VALUES (?, ?, ?, ?)", projectId,
+        state.version(), new Timestamp(state.timestamp()), objectMapper.writeValueAsString(events));
+    logger.debug("Snapshot of project {} taken at version {} ({} events)", projectId, state.version(),
+        events.size());
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(flushIntervalMs, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flushQuietly();
+    if (pendingCount.get() > 0) {
+      logger.warn("{} history operations could not be written before shutdown", pendingCount.get());
+    }
+  }
+}
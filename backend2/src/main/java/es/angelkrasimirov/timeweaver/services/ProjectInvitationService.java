@@ -5,6 +5,7 @@ import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.servlet.resource.NoResourceFoundException;
 
 import es.angelkrasimirov.timeweaver.models.Project;
@@ -25,23 +26,30 @@ public class ProjectInvitationService {
   @Autowired
   private NotificationService notificationService;
 
+  // Each change is saved with its notification in one transaction; the
+  // notification is only pushed to the user's streams after it commits.
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
   public ProjectInvitation createInvitation(User inviter, User invited, Project project, ProjectRole projectRole) {
-    boolean existingInvitation = projectInvitationRepository.existsByInvitedUser_IdAndProject_Id(
-        invited.getId(), project.getId());
+    return transactionTemplate.execute(status -> {
+      boolean existingInvitation = projectInvitationRepository.existsByInvitedUser_IdAndProject_Id(
+          invited.getId(), project.getId());
 
-    if (existingInvitation) {
-      throw new IllegalStateException("An invitation already exists for this user and project");
-    }
+      if (existingInvitation) {
+        throw new IllegalStateException("An invitation already exists for this user and project");
+      }
 
-    ProjectInvitation invitation = new ProjectInvitation(invited, inviter, project, projectRole);
-    invitation = projectInvitationRepository.save(invitation);
+      ProjectInvitation invitation = new ProjectInvitation(invited, inviter, project, projectRole);
+      invitation = projectInvitationRepository.save(invitation);
 
-    notificationService.sendNotificationToUser(
-        invited.getUsername(),
-        "project_invitation",
-        invitation);
+      notificationService.sendNotificationToUser(
+          invited.getUsername(),
+          "project_invitation",
+          invitation);
 
-    return invitation;
+      return invitation;
+    });
   }
 
   public List<ProjectInvitation> getProjectInvitationsByUserId(Long userId) {
@@ -60,18 +68,19 @@ public class ProjectInvitationService {
   }
 
   public void acceptInvitation(ProjectInvitation invitation) throws NoResourceFoundException {
-
-    userProjectRoleService.createUserProjectRole(
-        invitation.getInvitedUser(),
-        invitation.getProject(),
-        invitation.getProjectRole());
-
-    projectInvitationRepository.delete(invitation);
-
-    notificationService.sendNotificationToUser(
-        invitation.getInviterUser().getUsername(),
-        "invitation_accepted",
-        invitation);
+    transactionTemplate.executeWithoutResult(status -> {
+      userProjectRoleService.createUserProjectRole(
+          invitation.getInvitedUser(),
+          invitation.getProject(),
+          invitation.getProjectRole());
+
+      projectInvitationRepository.delete(invitation);
+
+      notificationService.sendNotificationToUser(
+          invitation.getInviterUser().getUsername(),
+          "invitation_accepted",
+          invitation);
+    });
   }
 
   public void acceptInvitation(Long invitationId) throws NoResourceFoundException {
@@ -81,12 +90,14 @@ public class ProjectInvitationService {
   }
 
   public void declineInvitation(ProjectInvitation invitation) throws NoResourceFoundException {
-    projectInvitationRepository.delete(invitation);
-
-    notificationService.sendNotificationToUser(
-        invitation.getInviterUser().getUsername(),
-        "invitation_declined",
-        invitation);
+    transactionTemplate.executeWithoutResult(status -> {
+      projectInvitationRepository.delete(invitation);
+
+      notificationService.sendNotificationToUser(
+          invitation.getInviterUser().getUsername(),
+          "invitation_declined",
+          invitation);
+    });
   }
 
   public void declineInvitation(Long invitationId) throws NoResourceFoundException {
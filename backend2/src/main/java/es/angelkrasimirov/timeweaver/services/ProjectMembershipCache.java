@@ -0,0 +1,86 @@
+package es.angelkrasimirov.timeweaver.services;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import es.angelkrasimirov.timeweaver.models.ProjectRole;
+import es.angelkrasimirov.timeweaver.repositories.UserProjectRoleRepository;
+
+/**
+ * Short-lived cache of the role each user has in each project, so handshakes
+ * and authorization checks do not hit the membership table every time.
+ * Entries are dropped as soon as a membership changes on this node; other
+ * nodes pick the change up when their entry expires.
+ */
+@Service
+public class ProjectMembershipCache {
+
+  private record Key(Long projectId, Long userId) {
+  }
+
+  /** A {@code null} role caches the absence of a membership. */
+  private record Entry(ProjectRole role, long expiresAtNanos) {
+  }
+
+  private final UserProjectRoleRepository userProjectRoleRepository;
+  private final long ttlNanos;
+  private final int maxEntries;
+
+  private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+  private final AtomicLong invalidations = new AtomicLong();
+
+  public ProjectMembershipCache(UserProjectRoleRepository userProjectRoleRepository,
+      @Value("${app.security.membership-cache.ttl-seconds:30}") long ttlSeconds,
+      @Value("${app.security.membership-cache.max-entries:10000}") int maxEntries) {
+    this.userProjectRoleRepository = userProjectRoleRepository;
+    this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    this.maxEntries = maxEntries;
+  }
+
+  public Optional<ProjectRole> getRole(Long projectId, Long userId) {
+    Key key = new Key(projectId, userId);
+    long now = System.nanoTime();
+    Entry entry = entries.get(key);
+    if (entry != null && entry.expiresAtNanos() - now > 0) {
+      return Optional.ofNullable(entry.role());
+    }
+
+    long invalidationsBefore = invalidations.get();
+    ProjectRole role = userProjectRoleRepository.findProjectRole(projectId, userId).orElse(null);
+    // A membership change during the query may not be visible in its result.
+    if (invalidations.get() == invalidationsBefore) {
+      if (entries.size() >= maxEntries) {
+        evict(now);
+      }
+      entries.put(key, new Entry(role, now + ttlNanos));
+    }
+    return Optional.ofNullable(role);
+  }
+
+  public void invalidate(Long projectId, Long userId) {
+    invalidations.incrementAndGet();
+    entries.remove(new Key(projectId, userId));
+  }
+
+  public void invalidateProject(Long projectId) {
+    invalidations.incrementAndGet();
+    entries.keySet().removeIf(key -> key.projectId().equals(projectId));
+  }
+
+  public void invalidateUser(Long userId) {
+    invalidations.incrementAndGet();
+    entries.keySet().removeIf(key -> key.userId().equals(userId));
+  }
+
+  private void evict(long now) {
+    entries.values().removeIf(entry -> entry.expiresAtNanos() - now <= 0);
+    if (entries.size() >= maxEntries) {
+      entries.clear();
+    }
+  }
+}
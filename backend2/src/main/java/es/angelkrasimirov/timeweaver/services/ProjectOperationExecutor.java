@@ -0,0 +1,88 @@
+package es.angelkrasimirov.timeweaver.services;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs the timeline operations of each project one at a time and in arrival
+ * order. Projects are striped across a fixed set of single-threaded
+ * executors, so different projects still run in parallel while every
+ * operation of one project goes through the same mailbox.
+ *
+ * Each mailbox holds at most {@code queue-capacity} operations; past that,
+ * new ones are refused instead of piling up behind a project that cannot
+ * keep up.
+ */
+@Service
+public class ProjectOperationExecutor {
+
+  private static final Logger logger = LoggerFactory.getLogger(ProjectOperationExecutor.class);
+
+  private final ExecutorService[] stripes;
+
+  public ProjectOperationExecutor(@Value("${app.websocket.operations.stripes:8}") int stripeCount,
+      @Value("${app.websocket.operations.queue-capacity:10000}") int queueCapacity) {
+    this.stripes = new ExecutorService[Math.max(1, stripeCount)];
+    for (int i = 0; i < stripes.length; i++) {
+      String threadName = "project-ops-" + i;
+      stripes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+          new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+          });
+    }
+    logger.info("Project operations serialized on {} stripes ({} queued operations each)", stripes.length,
+        queueCapacity);
+  }
+
+  /**
+   * Queues an operation of the project.
+   *
+   * @return whether it was queued; {@code false} when the project's mailbox
+   *         is full or shut down
+   */
+  public boolean execute(Long projectId, Runnable operation) {
+    try {
+      stripes[stripeFor(projectId)].execute(() -> {
+        try {
+          operation.run();
+        } catch (RuntimeException e) {
+          logger.error("Error running operation for project {}: {}", projectId, e.getMessage(), e);
+        }
+      });
+      return true;
+    } catch (RejectedExecutionException e) {
+      logger.warn("Operation queue full for project {}, refusing operation", projectId);
+      return false;
+    }
+  }
+
+  private int stripeFor(Long projectId) {
+    return Math.floorMod(Long.hashCode(projectId), stripes.length);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    for (ExecutorService stripe : stripes) {
+      stripe.shutdown();
+    }
+    try {
+      for (ExecutorService stripe : stripes) {
+        stripe.awaitTermination(2, TimeUnit.SECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
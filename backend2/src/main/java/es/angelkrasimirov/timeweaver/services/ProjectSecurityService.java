@@ -7,20 +7,20 @@ import org.springframework.stereotype.Service;
 
 import es.angelkrasimirov.timeweaver.models.User;
 import es.angelkrasimirov.timeweaver.models.ProjectRole;
-import es.angelkrasimirov.timeweaver.repositories.UserProjectRoleRepository;
 import es.angelkrasimirov.timeweaver.repositories.UserRepository;
 
+import java.util.Arrays;
 import java.util.Optional;
 
 @Service("projectSecurityService")
 public class ProjectSecurityService {
 
-  private final UserProjectRoleRepository userProjectRoleRepository;
+  private final ProjectMembershipCache projectMembershipCache;
   private final UserRepository userRepository;
 
   @Autowired
-  public ProjectSecurityService(UserProjectRoleRepository userProjectRoleRepository, UserRepository userRepository) {
-    this.userProjectRoleRepository = userProjectRoleRepository;
+  public ProjectSecurityService(ProjectMembershipCache projectMembershipCache, UserRepository userRepository) {
+    this.projectMembershipCache = projectMembershipCache;
     this.userRepository = userRepository;
   }
 
@@ -45,17 +45,18 @@ public class ProjectSecurityService {
     } catch (IllegalArgumentException e) {
       return false;
     }
-    return userProjectRoleRepository.existsByProject_IdAndUser_IdAndProjectRole(
-        projectId, user.getId(), projectRole);
+    return projectMembershipCache.getRole(projectId, user.getId())
+        .map(role -> role == projectRole)
+        .orElse(false);
   }
 
   public boolean hasAnyProjectRole(Long projectId, String... roleNames) {
-    for (String roleName : roleNames) {
-      if (hasProjectRole(projectId, roleName)) {
-        return true;
-      }
+    Optional<User> userOpt = getAuthenticatedUser();
+    if (!userOpt.isPresent()) {
+      return false;
     }
-    return false;
+    Optional<ProjectRole> projectRole = projectMembershipCache.getRole(projectId, userOpt.get().getId());
+    return projectRole.isPresent() && Arrays.asList(roleNames).contains(projectRole.get().name());
   }
 
   public boolean hasAnyProjectRole(Long projectId) {
@@ -64,6 +65,6 @@ public class ProjectSecurityService {
       return false;
     }
     User user = userOpt.get();
-    return userProjectRoleRepository.existsByProject_IdAndUser_Id(projectId, user.getId());
+    return projectMembershipCache.getRole(projectId, user.getId()).isPresent();
   }
 }
\ No newline at end of file
@@ -13,6 +13,15 @@ public class ProjectService {
   @Autowired
   private ProjectRepository projectRepository;
 
+  @Autowired
+  private ProjectMembershipCache projectMembershipCache;
+
+  @Autowired
+  private ProjectHistoryService projectHistoryService;
+
+  @Autowired
+  private EventWriteBehindService eventWriteBehindService;
+
   public Page<Project> getProjectsByUserId(Long userId, Pageable pageable) {
     return projectRepository.findByUserProjectRoles_User_Id(userId, pageable);
   }
@@ -26,7 +35,10 @@ public class ProjectService {
   }
 
   public void deleteProject(Long projectId) {
+    eventWriteBehindService.discardProject(projectId);
     projectRepository.deleteById(projectId);
+    projectMembershipCache.invalidateProject(projectId);
+    projectHistoryService.deleteHistory(projectId);
   }
 
   public Project updateProject(Long projectId, Project projectDetails) {
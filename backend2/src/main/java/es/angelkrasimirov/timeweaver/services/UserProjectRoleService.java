@@ -1,8 +1,12 @@
 package es.angelkrasimirov.timeweaver.services;
 
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.servlet.resource.NoResourceFoundException;
 
 import es.angelkrasimirov.timeweaver.models.Project;
@@ -18,8 +22,11 @@ public class UserProjectRoleService {
   @Autowired
   private UserProjectRoleRepository userProjectRoleRepository;
 
+  @Autowired
+  private ProjectMembershipCache projectMembershipCache;
+
   public UserProjectRole createUserProjectRole(UserProjectRole userProjectRole) {
-    return userProjectRoleRepository.save(userProjectRole);
+    return save(userProjectRole);
   }
 
   public UserProjectRole createUserProjectRole(User user, Project project, ProjectRole projectRole) {
@@ -27,7 +34,7 @@ public class UserProjectRoleService {
     userProjectRole.setUser(user);
     userProjectRole.setProject(project);
     userProjectRole.setProjectRole(projectRole);
-    return userProjectRoleRepository.save(userProjectRole);
+    return save(userProjectRole);
   }
 
   public UserProjectRole createUserProjectRole(User user, Project project) throws NoResourceFoundException {
@@ -35,7 +42,30 @@ public class UserProjectRoleService {
     userProjectRole.setUser(user);
     userProjectRole.setProject(project);
     userProjectRole.setProjectRole(ProjectRole.ROLE_PROJECT_MANAGER);
-    return userProjectRoleRepository.save(userProjectRole);
+    return save(userProjectRole);
+  }
+
+  private UserProjectRole save(UserProjectRole userProjectRole) {
+    UserProjectRole saved = userProjectRoleRepository.save(userProjectRole);
+    Long projectId = saved.getProject().getId();
+    Long userId = saved.getUser().getId();
+    // Inside a transaction a lookup before the commit would cache the old
+    // membership again, so the entry is only dropped once it is visible.
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          projectMembershipCache.invalidate(projectId, userId);
+        }
+      });
+    } else {
+      projectMembershipCache.invalidate(projectId, userId);
+    }
+    return saved;
+  }
+
+  public List<String> getUsernamesByProjectId(Long projectId) {
+    return userProjectRoleRepository.findUsernamesByProjectId(projectId);
   }
 
   public UserProjectRole getUserProjectRoleById(UserProjectRoleId id) throws NoResourceFoundException {
@@ -0,0 +1,13 @@
+package es.angelkrasimirov.timeweaver.websockets;
+
+/**
+ * Operation sent by a client over the project socket. {@code body} is the
+ * JSON text of its {@code data.data} object exactly as the client sent it, or
+ * {@code null} when there was no object there.
+ */
+public record ClientOperation(String type, String opId, String eventId, String body) {
+
+  public boolean hasEventId() {
+    return eventId != null && !eventId.isEmpty();
+  }
+}
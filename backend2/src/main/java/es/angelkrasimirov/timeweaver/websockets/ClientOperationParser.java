@@ -0,0 +1,131 @@
+package es.angelkrasimirov.timeweaver.websockets;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads inbound operations with Jackson's streaming parser. Only the fields
+ * the server routes on are read; the operation body is cut out of the frame
+ * as a raw JSON slice, so it can be stored and rebroadcast without building a
+ * tree for it.
+ */
+@Component
+public class ClientOperationParser {
+
+  private static final TypeReference<Map<String, Object>> BODY_TYPE = new TypeReference<>() {
+  };
+
+  private final ObjectMapper objectMapper;
+
+  public ClientOperationParser(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Parses a JSON text frame, or returns {@code null} when its {@code data}
+   * member is not an object.
+   */
+  public ClientOperation parse(String frame) throws IOException {
+    try (JsonParser parser = objectMapper.getFactory().createParser(frame)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new JsonParseException(parser, "Expected a JSON object");
+      }
+
+      String type = null;
+      String[] envelope = null;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.currentName();
+        JsonToken value = parser.nextToken();
+        if ("type".equals(field) && value == JsonToken.VALUE_STRING) {
+          type = parser.getText();
+        } else if ("data".equals(field) && value == JsonToken.START_OBJECT) {
+          envelope = readEnvelope(parser, frame);
+        } else {
+          parser.skipChildren();
+        }
+      }
+
+      if (envelope == null) {
+        return null;
+      }
+      String opId = envelope[0];
+      String envelopeId = envelope[1];
+      String bodyId = envelope[2];
+      String body = envelope[3];
+      // Deletes may carry the id next to the body instead of inside it.
+      String eventId = "delete".equals(type) && envelopeId != null ? envelopeId : bodyId;
+      return new ClientOperation(type, opId, eventId, body);
+    }
+  }
+
+  /**
+   * Builds the operation from a message already decoded from a binary frame.
+   */
+  public ClientOperation fromMessage(Map<String, Object> message) throws IOException {
+    if (!(message.get("data") instanceof Map<?, ?> envelope)) {
+      return null;
+    }
+    String type = message.get("type") instanceof String value ? value : null;
+    Object opId = envelope.get("opId");
+    Object body = envelope.get("data");
+    String bodyId = body instanceof Map<?, ?> bodyMap && bodyMap.get("id") instanceof String id ? id : null;
+    String envelopeId = envelope.get("id") instanceof String id ? id : null;
+    return new ClientOperation(type, opId != null ? String.valueOf(opId) : null,
+        "delete".equals(type) && envelopeId != null ? envelopeId : bodyId,
+        body instanceof Map ? objectMapper.writeValueAsString(body) : null);
+  }
+
+  public Map<String, Object> readBody(ClientOperation operation) throws IOException {
+    return objectMapper.readValue(operation.body(), BODY_TYPE);
+  }
+
+  /**
+   * Reads the {@code data} object and returns its opId, id, body id and raw
+   * body, in that order.
+   */
+  private static String[] readEnvelope(JsonParser parser, String frame) throws IOException {
+    String[] envelope = new String[4];
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken value = parser.nextToken();
+      if ("data".equals(field) && value == JsonToken.START_OBJECT) {
+        int start = (int) parser.currentTokenLocation().getCharOffset();
+        envelope[2] = readBodyId(parser);
+        int end = (int) parser.currentLocation().getCharOffset();
+        envelope[3] = frame.substring(start, end);
+      } else if ("opId".equals(field) && value.isScalarValue() && value != JsonToken.VALUE_NULL) {
+        envelope[0] = parser.getValueAsString();
+      } else if ("id".equals(field) && value == JsonToken.VALUE_STRING) {
+        envelope[1] = parser.getText();
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return envelope;
+  }
+
+  /**
+   * Consumes the body object, reading only its top-level {@code id}.
+   */
+  private static String readBodyId(JsonParser parser) throws IOException {
+    String id = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken value = parser.nextToken();
+      if ("id".equals(field) && value == JsonToken.VALUE_STRING) {
+        id = parser.getText();
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return id;
+  }
+}
@@ -0,0 +1,69 @@
+package es.angelkrasimirov.timeweaver.websockets;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+/**
+ * Time span and group of a timeline event, in epoch milliseconds. Items
+ * without an end are points, so their end equals their start.
+ */
+public record EventInterval(long start, long end, String group) {
+
+  /**
+   * Reads the interval from the content of an event, or returns {@code null}
+   * when its start cannot be parsed.
+   */
+  public static EventInterval of(Map<String, Object> content) {
+    if (content == null) {
+      return null;
+    }
+    Long start = parseTime(content.get("start"));
+    if (start == null) {
+      return null;
+    }
+    Long end = parseTime(content.get("end"));
+    Object group = content.get("group");
+    return new EventInterval(start, end != null && end >= start ? end : start,
+        group != null ? String.valueOf(group) : null);
+  }
+
+  public boolean overlaps(long windowStart, long windowEnd) {
+    return start <= windowEnd && end >= windowStart;
+  }
+
+  /**
+   * Accepts epoch milliseconds and ISO-8601 instants, date-times and dates,
+   * including the expanded years JavaScript uses before year 0.
+   */
+  public static Long parseTime(Object value) {
+    if (value instanceof Number number) {
+      return number.longValue();
+    }
+    if (!(value instanceof String text) || text.isBlank()) {
+      return null;
+    }
+
+    try {
+      return Instant.parse(text).toEpochMilli();
+    } catch (DateTimeParseException ignored) {
+    }
+    try {
+      return OffsetDateTime.parse(text).toInstant().toEpochMilli();
+    } catch (DateTimeParseException ignored) {
+    }
+    try {
+      return LocalDateTime.parse(text).toInstant(ZoneOffset.UTC).toEpochMilli();
+    } catch (DateTimeParseException ignored) {
+    }
+    try {
+      return LocalDate.parse(text).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    } catch (DateTimeParseException ignored) {
+    }
+    return null;
+  }
+}
@@ -0,0 +1,196 @@
+package es.angelkrasimirov.timeweaver.websockets;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interval tree over the events of a project: an AVL tree ordered by start
+ * time where every node also keeps the latest end of its subtree, so overlap
+ * and point queries skip every subtree that ends before the window. Updates
+ * take O(log n) and queries O(log n + k) for k matching events.
+ */
+public class EventIntervalIndex {
+
+  private static final class Node {
+    private final String eventId;
+    private final EventInterval interval;
+    private Node left;
+    private Node right;
+    private int height = 1;
+    private long maxEnd;
+
+    private Node(String eventId, EventInterval interval) {
+      this.eventId = eventId;
+      this.interval = interval;
+      this.maxEnd = interval.end();
+    }
+  }
+
+  private final Map<String, EventInterval> intervals = new HashMap<>();
+  private Node root;
+
+  public synchronized EventInterval get(String eventId) {
+    return intervals.get(eventId);
+  }
+
+  public synchronized int size() {
+    return intervals.size();
+  }
+
+  /**
+   * Indexes the interval of an event, replacing its previous one. A
+   * {@code null} interval removes the event from the index.
+   */
+  public synchronized void put(String eventId, EventInterval interval) {
+    EventInterval previous = interval != null ? intervals.put(eventId, interval) : intervals.remove(eventId);
+    if (previous != null) {
+      root = delete(root, previous.start(), eventId);
+    }
+    if (interval != null) {
+      root = insert(root, new Node(eventId, interval));
+    }
+  }
+
+  public synchronized EventInterval remove(String eventId) {
+    EventInterval previous = intervals.remove(eventId);
+    if (previous != null) {
+      root = delete(root, previous.start(), eventId);
+    }
+    return previous;
+  }
+
+  /**
+   * Ids of the events overlapping {@code [start, end]}, both inclusive, in
+   * start order.
+   */
+  public synchronized List<String> findOverlapping(long start, long end) {
+    List<String> eventIds = new ArrayList<>();
+    collectOverlapping(root, start, end, eventIds);
+    return eventIds;
+  }
+
+  public List<String> findContaining(long time) {
+    return findOverlapping(time, time);
+  }
+
+  private static void collectOverlapping(Node node, long start, long end, List<String> eventIds) {
+    if (node == null || node.maxEnd < start) {
+      return;
+    }
+    collectOverlapping(node.left, start, end, eventIds);
+    if (node.interval.start() > end) {
+      // Everything to the right starts even later.
+      return;
+    }
+    if (node.interval.end() >= start) {
+      eventIds.add(node.eventId);
+    }
+    collectOverlapping(node.right, start, end, eventIds);
+  }
+
+  private static int compare(long start, String eventId, Node node) {
+    int byStart = Long.compare(start, node.interval.start());
+    return byStart != 0 ? byStart : eventId.compareTo(node.eventId);
+  }
+
+  private static Node insert(Node node, Node inserted) {
+    if (node == null) {
+      return inserted;
+    }
+    if (compare(inserted.interval.start(), inserted.eventId, node) < 0) {
+      node.left = insert(node.left, inserted);
+    } else {
+      node.right = insert(node.right, inserted);
+    }
+    return balance(node);
+  }
+
+  private static Node delete(Node node, long start, String eventId) {
+    if (node == null) {
+      return null;
+    }
+    int comparison = compare(start, eventId, node);
+    if (comparison < 0) {
+      node.left = delete(node.left, start, eventId);
+    } else if (comparison > 0) {
+      node.right = delete(node.right, start, eventId);
+    } else {
+      if (node.left == null) {
+        return node.right;
+      }
+      if (node.right == null) {
+        return node.left;
+      }
+      Node successor = node.right;
+      while (successor.left != null) {
+        successor = successor.left;
+      }
+      successor.right = deleteMin(node.right);
+      successor.left = node.left;
+      return balance(successor);
+    }
+    return balance(node);
+  }
+
+  private static Node deleteMin(Node node) {
+    if (node.left == null) {
+      return node.right;
+    }
+    node.left = deleteMin(node.left);
+    return balance(node);
+  }
+
+  private static Node balance(Node node) {
+    update(node);
+    int balanceFactor = height(node.left) - height(node.right);
+    if (balanceFactor > 1) {
+      if (height(node.left.left) < height(node.left.right)) {
+        node.left = rotateLeft(node.left);
+      }
+      return rotateRight(node);
+    }
+    if (balanceFactor < -1) {
+      if (height(node.right.right) < height(node.right.left)) {
+        node.right = rotateRight(node.right);
+      }
+      return rotateLeft(node);
+    }
+    return node;
+  }
+
+  private static Node rotateRight(Node node) {
+    Node pivot = node.left;
+    node.left = pivot.right;
+    pivot.right = node;
+    update(node);
+    update(pivot);
+    return pivot;
+  }
+
+  private static Node rotateLeft(Node node) {
+    Node pivot = node.right;
+    node.right = pivot.left;
+    pivot.left = node;
+    update(node);
+    update(pivot);
+    return pivot;
+  }
+
+  private static void update(Node node) {
+    node.height = 1 + Math.max(height(node.left), height(node.right));
+    long maxEnd = node.interval.end();
+    if (node.left != null) {
+      maxEnd = Math.max(maxEnd, node.left.maxEnd);
+    }
+    if (node.right != null) {
+      maxEnd = Math.max(maxEnd, node.right.maxEnd);
+    }
+    node.maxEnd = maxEnd;
+  }
+
+  private static int height(Node node) {
+    return node != null ? node.height : 0;
+  }
+}
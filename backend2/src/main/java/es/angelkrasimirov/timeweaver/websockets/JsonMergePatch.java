@@ -0,0 +1,34 @@
+package es.angelkrasimirov.timeweaver.websockets;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Applies JSON merge patches (RFC 7386) to event content held as maps. A
+ * {@code null} member removes the field, an object member is merged
+ * recursively and any other value replaces the field.
+ */
+public final class JsonMergePatch {
+
+  private JsonMergePatch() {
+  }
+
+  @SuppressWarnings("unchecked")
+  public static Map<String, Object> apply(Map<String, Object> target, Map<String, Object> patch) {
+    Map<String, Object> result = target != null ? new HashMap<>(target) : new HashMap<>();
+
+    patch.forEach((field, value) -> {
+      if (value == null) {
+        result.remove(field);
+      } else if (value instanceof Map) {
+        Object current = result.get(field);
+        result.put(field, apply(current instanceof Map ? (Map<String, Object>) current : null,
+            (Map<String, Object>) value));
+      } else {
+        result.put(field, value);
+      }
+    });
+
+    return result;
+  }
+}
@@ -14,10 +14,10 @@ import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.server.HandshakeInterceptor;
 
 import es.angelkrasimirov.timeweaver.models.ProjectRole;
-import es.angelkrasimirov.timeweaver.models.User;
-import es.angelkrasimirov.timeweaver.repositories.UserProjectRoleRepository;
-import es.angelkrasimirov.timeweaver.repositories.UserRepository;
+import es.angelkrasimirov.timeweaver.services.ProjectMembershipCache;
 import es.angelkrasimirov.timeweaver.utils.JwtTokenProvider;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.http.HttpServletRequest;
 
 @Component
@@ -29,10 +29,7 @@ public class JwtWebSocketInterceptor implements HandshakeInterceptor {
   private JwtTokenProvider jwtTokenProvider;
 
   @Autowired
-  private UserRepository userRepository;
-
-  @Autowired
-  private UserProjectRoleRepository userProjectRoleRepository;
+  private ProjectMembershipCache projectMembershipCache;
 
   @Override
   public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
@@ -52,30 +49,23 @@ public class JwtWebSocketInterceptor implements HandshakeInterceptor {
       ServletServerHttpRequest servletRequest = (ServletServerHttpRequest) request;
       String token = extractToken(servletRequest.getServletRequest());
 
-      if (token != null && jwtTokenProvider.validateToken(token)) {
-        String username = jwtTokenProvider.getUsername(token);
-
-        Optional<User> userOpt = userRepository.findByUsername(username);
-        if (userOpt.isPresent()) {
-          User user = userOpt.get();
-
-          boolean hasAccess = userProjectRoleRepository.existsByProject_IdAndUser_IdAndProjectRole(
-              projectId, user.getId(), ProjectRole.ROLE_PROJECT_MANAGER) ||
-              userProjectRoleRepository.existsByProject_IdAndUser_IdAndProjectRole(
-                  projectId, user.getId(), ProjectRole.ROLE_PROJECT_CONTRIBUTOR)
-              ||
-              userProjectRoleRepository.existsByProject_IdAndUser_IdAndProjectRole(
-                  projectId, user.getId(), ProjectRole.ROLE_PROJECT_VIEWER);
-
-          if (hasAccess) {
-            attributes.put("username", username);
-            attributes.put("userId", user.getId());
-            logger.info("Authenticated WebSocket connection for user: {} to project: {}", username, projectId);
-            return true;
-          } else {
-            logger.warn("User {} attempted to access unauthorized project: {}", username, projectId);
-            return false;
-          }
+      Claims claims = token != null ? parseClaims(token) : null;
+      if (claims != null) {
+        // The token carries the user id as its subject, so no user lookup is needed.
+        String username = claims.get("username", String.class);
+        Long userId = Long.parseLong(claims.getSubject());
+
+        Optional<ProjectRole> projectRole = projectMembershipCache.getRole(projectId, userId);
+        if (projectRole.isPresent()) {
+          attributes.put("username", username);
+          attributes.put("userId", userId);
+          attributes.put("projectRole", projectRole.get());
+          logger.info("Authenticated WebSocket connection for user: {} to project: {} as {}", username, projectId,
+              projectRole.get());
+          return true;
+        } else {
+          logger.warn("User {} attempted to access unauthorized project: {}", username, projectId);
+          return false;
         }
       }
 
@@ -90,6 +80,17 @@ public class JwtWebSocketInterceptor implements HandshakeInterceptor {
       WebSocketHandler wsHandler, Exception exception) {
   }
 
+  private Claims parseClaims(String token) {
+    try {
+      Claims claims = jwtTokenProvider.parseClaims(token);
+      Long.parseLong(claims.getSubject());
+      return claims.get("username", String.class) != null ? claims : null;
+    } catch (JwtException | IllegalArgumentException e) {
+      logger.debug("Rejected WebSocket token: {}", e.getMessage());
+      return null;
+    }
+  }
+
   private Long extractProjectId(String path) {
     String[] segments = path.split("/");
     if (segments.length >= 4) {
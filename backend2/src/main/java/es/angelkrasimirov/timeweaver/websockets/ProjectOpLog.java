@@ -0,0 +1,58 @@
+package es.angelkrasimirov.timeweaver.websockets;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded ring of the most recent timeline operations broadcast to a
+ * project, numbered with a per-project sequence. A reconnecting session that
+ * is still inside the ring replays the operations it missed instead of
+ * receiving a new snapshot.
+ *
+ * Callers synchronize on the log while they assign a sequence number and
+ * enqueue the frame, so every session receives operations in sequence order.
+ */
+public class ProjectOpLog {
+
+  /**
+   * An operation as broadcast. {@code eventId} is {@code null} for a batch.
+   */
+  public record Entry(long seq, SharedFrame frame, String type, String eventId) {
+  }
+
+  private final Entry[] entries;
+  private long lastSeq = 0;
+
+  public ProjectOpLog(int capacity) {
+    this.entries = new Entry[Math.max(1, capacity)];
+  }
+
+  public synchronized long getLastSeq() {
+    return lastSeq;
+  }
+
+  public synchronized void append(Entry entry) {
+    if (entry.seq() != lastSeq + 1) {
+      throw new IllegalArgumentException("Expected sequence " + (lastSeq + 1) + " but got " + entry.seq());
+    }
+    entries[(int) (entry.seq() % entries.length)] = entry;
+    lastSeq = entry.seq();
+  }
+
+  /**
+   * Returns the operations after {@code seq} in order, or {@code null} when
+   * some of them are no longer in the ring.
+   */
+  public synchronized List<Entry> entriesAfter(long seq) {
+    long oldestSeq = Math.max(1, lastSeq - entries.length + 1);
+    if (seq < oldestSeq - 1 || seq > lastSeq) {
+      return null;
+    }
+
+    List<Entry> missed = new ArrayList<>((int) (lastSeq - seq));
+    for (long next = seq + 1; next <= lastSeq; next++) {
+      missed.add(entries[(int) (next % entries.length)]);
+    }
+    return missed;
+  }
+}
@@ -0,0 +1,38 @@
+package es.angelkrasimirov.timeweaver.websockets;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for frames that could not be delivered as-is to the sessions of a
+ * project because their outbound queue was full.
+ */
+public class ProjectOutboundStats {
+
+  private final AtomicLong droppedFrames = new AtomicLong();
+  private final AtomicLong coalescedFrames = new AtomicLong();
+  private final AtomicLong disconnectedSessions = new AtomicLong();
+
+  public void recordDropped() {
+    droppedFrames.incrementAndGet();
+  }
+
+  public void recordCoalesced() {
+    coalescedFrames.incrementAndGet();
+  }
+
+  public void recordDisconnected() {
+    disconnectedSessions.incrementAndGet();
+  }
+
+  public long getDroppedFrames() {
+    return droppedFrames.get();
+  }
+
+  public long getCoalescedFrames() {
+    return coalescedFrames.get();
+  }
+
+  public long getDisconnectedSessions() {
+    return disconnectedSessions.get();
+  }
+}
@@ -0,0 +1,164 @@
+package es.angelkrasimirov.timeweaver.websockets;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * In-memory view of the timeline events of a project while at least one
+ * WebSocket session is connected to it.
+ */
+public class ProjectState {
+
+  private final Long projectId;
+  private final Map<String, Map<String, Object>> events = new ConcurrentHashMap<>();
+  private final EventIntervalIndex intervalIndex = new EventIntervalIndex();
+  private final Set<String> unplacedEventIds = ConcurrentHashMap.newKeySet();
+  private final Set<String> sessionIds = ConcurrentHashMap.newKeySet();
+  private final ProjectOutboundStats outboundStats = new ProjectOutboundStats();
+  private final String epoch = UUID.randomUUID().toString();
+  private final ProjectOpLog opLog;
+  private final Executor writerLane;
+  private volatile boolean loaded = false;
+
+  public ProjectState(Long projectId, int opLogCapacity, Executor writerLane) {
+    this.projectId = projectId;
+    this.opLog = new ProjectOpLog(opLogCapacity);
+    this.writerLane = writerLane;
+  }
+
+  public synchronized void ensureLoaded(Function<Long, Map<String, Map<String, Object>>> loader) {
+    if (!loaded) {
+      loader.apply(projectId).forEach(this::putEvent);
+      loaded = true;
+    }
+  }
+
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  public Long getProjectId() {
+    return projectId;
+  }
+
+  public ProjectOutboundStats getOutboundStats() {
+    return outboundStats;
+  }
+
+  /**
+   * Identifies this in-memory copy of the project. Sequence numbers restart
+   * when the state is evicted and loaded again, so they are only comparable
+   * within one epoch.
+   */
+  public String getEpoch() {
+    return epoch;
+  }
+
+  public ProjectOpLog getOpLog() {
+    return opLog;
+  }
+
+  /**
+   * Executor the session writers of this project run on, which bounds how
+   * many of them a broadcast keeps busy at once.
+   */
+  public Executor getWriterLane() {
+    return writerLane;
+  }
+
+  public boolean containsEvent(String eventId) {
+    return events.containsKey(eventId);
+  }
+
+  public Map<String, Object> getEvent(String eventId) {
+    return events.get(eventId);
+  }
+
+  public List<Map<String, Object>> getEvents() {
+    return new ArrayList<>(events.values());
+  }
+
+  /**
+   * Weakly consistent view of the events, for readers that must not copy
+   * the whole project.
+   */
+  public Iterator<Map<String, Object>> eventIterator() {
+    return events.values().iterator();
+  }
+
+  public Set<String> getEventIds() {
+    return Collections.unmodifiableSet(events.keySet());
+  }
+
+  public int getEventCount() {
+    return events.size();
+  }
+
+  public EventInterval getInterval(String eventId) {
+    return intervalIndex.get(eventId);
+  }
+
+  /**
+   * Ids of the events overlapping {@code [start, end]}, plus the events whose
+   * time cannot be parsed, which have no position to filter them by.
+   */
+  public List<String> findEventIdsOverlapping(long start, long end) {
+    List<String> eventIds = intervalIndex.findOverlapping(start, end);
+    eventIds.addAll(unplacedEventIds);
+    return eventIds;
+  }
+
+  public void putEvent(String eventId, Map<String, Object> content) {
+    events.put(eventId, Collections.unmodifiableMap(content));
+    updateInterval(eventId, content);
+  }
+
+  /**
+   * Applies a merge patch to the stored content of an event and returns the
+   * merged content, or {@code null} when the event does not exist.
+   */
+  public Map<String, Object> patchEvent(String eventId, Map<String, Object> patch) {
+    Map<String, Object> merged = events.computeIfPresent(eventId,
+        (id, current) -> Collections.unmodifiableMap(JsonMergePatch.apply(current, patch)));
+    if (merged != null && (patch.containsKey("start") || patch.containsKey("end") || patch.containsKey("group"))) {
+      updateInterval(eventId, merged);
+    }
+    return merged;
+  }
+
+  public Map<String, Object> removeEvent(String eventId) {
+    intervalIndex.remove(eventId);
+    unplacedEventIds.remove(eventId);
+    return events.remove(eventId);
+  }
+
+  private void updateInterval(String eventId, Map<String, Object> content) {
+    EventInterval interval = EventInterval.of(content);
+    intervalIndex.put(eventId, interval);
+    if (interval != null) {
+      unplacedEventIds.remove(eventId);
+    } else {
+      unplacedEventIds.add(eventId);
+    }
+  }
+
+  void addSession(String sessionId) {
+    sessionIds.add(sessionId);
+  }
+
+  void removeSession(String sessionId) {
+    sessionIds.remove(sessionId);
+  }
+
+  boolean hasSessions() {
+    return !sessionIds.isEmpty();
+  }
+}
@@ -0,0 +1,138 @@
+package es.angelkrasimirov.timeweaver.websockets;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.angelkrasimirov.timeweaver.repositories.EventRepository;
+import es.angelkrasimirov.timeweaver.repositories.EventRepository.EventDataView;
+import es.angelkrasimirov.timeweaver.services.EventWriteBehindService;
+import es.angelkrasimirov.timeweaver.services.FanOutExecutor;
+import es.angelkrasimirov.timeweaver.services.ProjectHistoryService;
+
+/**
+ * Keeps one {@link ProjectState} per project with connected sessions. The
+ * state is loaded from the database by the first session that joins and
+ * evicted when the last one leaves.
+ */
+@Component
+public class ProjectStateRegistry {
+
+  private static final Logger logger = LoggerFactory.getLogger(ProjectStateRegistry.class);
+  private static final TypeReference<Map<String, Object>> EVENT_DATA_TYPE = new TypeReference<>() {
+  };
+
+  private final ConcurrentHashMap<Long, ProjectState> states = new ConcurrentHashMap<>();
+  private final EventRepository eventRepository;
+  private final EventWriteBehindService eventWriteBehindService;
+  private final ProjectHistoryService projectHistoryService;
+  private final FanOutExecutor fanOutExecutor;
+  private final ObjectMapper objectMapper;
+  private final TransactionTemplate readOnlyTransaction;
+  private final int opLogCapacity;
+
+  public ProjectStateRegistry(EventRepository eventRepository, EventWriteBehindService eventWriteBehindService,
+      ProjectHistoryService projectHistoryService, FanOutExecutor fanOutExecutor, ObjectMapper objectMapper,
+      PlatformTransactionManager transactionManager, @Value("${app.websocket.op-log.capacity:1024}") int opLogCapacity) {
+    this.eventRepository = eventRepository;
+    this.eventWriteBehindService = eventWriteBehindService;
+    this.projectHistoryService = projectHistoryService;
+    this.fanOutExecutor = fanOutExecutor;
+    this.objectMapper = objectMapper;
+    this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+    this.readOnlyTransaction.setReadOnly(true);
+    this.opLogCapacity = opLogCapacity;
+    projectHistoryService.setLiveStateSource(
+        projectId -> get(projectId).filter(ProjectState::isLoaded).map(ProjectState::getEvents));
+  }
+
+  public ProjectState join(Long projectId, String sessionId) {
+    ProjectState state = states.compute(projectId, (id, existing) -> {
+      ProjectState projectState = existing != null ? existing
+          : new ProjectState(id, opLogCapacity, fanOutExecutor.newLane());
+      projectState.addSession(sessionId);
+      return projectState;
+    });
+
+    state.ensureLoaded(this::loadEvents);
+    return state;
+  }
+
+  public void leave(Long projectId, String sessionId) {
+    states.computeIfPresent(projectId, (id, state) -> {
+      state.removeSession(sessionId);
+      if (state.hasSessions()) {
+        return state;
+      }
+      logger.info("Evicting in-memory state for project {}", id);
+      return null;
+    });
+  }
+
+  public Optional<ProjectState> get(Long projectId) {
+    return Optional.ofNullable(states.get(projectId));
+  }
+
+  private Map<String, Map<String, Object>> loadEvents(Long projectId) {
+    Map<String, Map<String, Object>> events = new HashMap<>();
+
+    readOnlyTransaction.executeWithoutResult(status -> {
+      try (Stream<EventDataView> rows = eventRepository.streamDataByProjectId(projectId)) {
+        rows.forEach(row -> {
+          Map<String, Object> eventContent = parseEventData(row.getId(), row.getData());
+          if (eventContent != null) {
+            events.put(row.getId(), eventContent);
+          }
+        });
+      }
+    });
+
+    // Events added or deleted since the last write-behind flush are not in the table yet.
+    eventWriteBehindService.getPendingInsertsAndDeletes(projectId).forEach((eventId, data) -> {
+      Map<String, Object> eventContent = data != null ? parseEventData(eventId, data) : null;
+      if (eventContent != null) {
+        events.put(eventId, eventContent);
+      } else {
+        events.remove(eventId);
+      }
+    });
+
+    logger.info("Loaded {} events into memory for project {}", events.size(), projectId);
+    projectHistoryService.ensureBaseline(projectId, events);
+    return events;
+  }
+
+  private Map<String, Object> parseEventData(String eventId, String storedData) {
+    Map<String, Object> eventContent = new HashMap<>();
+    String jsonData = eventWriteBehindService.getPendingData(eventId).orElse(storedData);
+
+    if (jsonData != null && !jsonData.trim().isEmpty()) {
+      try {
+        eventContent = objectMapper.readValue(jsonData, EVENT_DATA_TYPE);
+      } catch (IOException e) {
+        logger.error("Error deserializing event data for event ID {}: {}. Raw data: '{}'",
+            eventId, e.getMessage(), jsonData, e);
+        return null;
+      }
+    } else {
+      logger.warn("Event data is {} for event ID {}. Sending event with ID and empty data.",
+          jsonData == null ? "null" : "blank", eventId);
+    }
+
+    eventContent.put("id", eventId);
+    return eventContent;
+  }
+}
@@ -1,45 +1,114 @@
 package es.angelkrasimirov.timeweaver.websockets;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import es.angelkrasimirov.timeweaver.dtos.ProjectWebSocketStatsDto;
 import es.angelkrasimirov.timeweaver.dtos.WebSocketMessage;
-import es.angelkrasimirov.timeweaver.models.Event;
-import es.angelkrasimirov.timeweaver.models.Project;
-import es.angelkrasimirov.timeweaver.models.User;
-import es.angelkrasimirov.timeweaver.repositories.EventRepository;
+import es.angelkrasimirov.timeweaver.messaging.ProjectBusMessage;
+import es.angelkrasimirov.timeweaver.messaging.RealtimeBus;
+import es.angelkrasimirov.timeweaver.models.ProjectRole;
+import es.angelkrasimirov.timeweaver.services.EventBatchWriter;
+import es.angelkrasimirov.timeweaver.services.EventWriteBehindService;
+import es.angelkrasimirov.timeweaver.services.FanOutExecutor;
+import es.angelkrasimirov.timeweaver.services.ProjectHistoryService;
+import es.angelkrasimirov.timeweaver.services.ProjectOperationExecutor;
 // import es.angelkrasimirov.timeweaver.repositories.UserRepository;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.List;
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import jakarta.annotation.PostConstruct;
+
 @Component
-public class ProjectWebSocketHandler extends TextWebSocketHandler {
+public class ProjectWebSocketHandler extends AbstractWebSocketHandler implements SubProtocolCapable {
 
   private static final Logger logger = LoggerFactory.getLogger(ProjectWebSocketHandler.class);
+  private static final String PRESENCE_COALESCE_KEY = "presence";
+  private static final Set<String> TIMELINE_OPERATIONS = Set.of("add", "update", "patch", "delete", "batch");
+  private static final Set<String> BATCH_OPERATIONS = Set.of("add", "update", "patch", "delete");
   private final ObjectMapper objectMapper;
-  private final EventRepository eventRepository;
+  private final EventWriteBehindService eventWriteBehindService;
+  private final EventBatchWriter eventBatchWriter;
+  private final ProjectHistoryService projectHistoryService;
+  private final ProjectStateRegistry projectStateRegistry;
+  private final WebSocketFrameEncoder frameEncoder;
+  private final ClientOperationParser operationParser;
+  private final int outboundQueueCapacity;
+  private final int snapshotChunkSize;
+  private final int maxBatchOperations;
+  private final SlowConsumerPolicy slowConsumerPolicy;
+  private final FanOutExecutor fanOutExecutor;
+  private final ProjectOperationExecutor operationExecutor;
+  private final RealtimeBus realtimeBus;
+  private final WebSocketMetrics webSocketMetrics;
 
-  private final ConcurrentHashMap<Long, ConcurrentHashMap<String, WebSocketSession>> projectSessions = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Long, ConcurrentHashMap<String, SessionOutbox>> projectSessions = new ConcurrentHashMap<>();
 
-  public ProjectWebSocketHandler(ObjectMapper objectMapper, EventRepository eventRepository) {
+  public ProjectWebSocketHandler(ObjectMapper objectMapper, EventWriteBehindService eventWriteBehindService,
+      EventBatchWriter eventBatchWriter,
+      ProjectHistoryService projectHistoryService, ProjectStateRegistry projectStateRegistry,
+      WebSocketFrameEncoder frameEncoder, ClientOperationParser operationParser, FanOutExecutor fanOutExecutor, ProjectOperationExecutor operationExecutor,
+      RealtimeBus realtimeBus, WebSocketMetrics webSocketMetrics,
+      @Value("${app.websocket.outbound.queue-capacity:256}") int outboundQueueCapacity,
+      @Value("${app.websocket.outbound.slow-consumer-policy:COALESCE}") SlowConsumerPolicy slowConsumerPolicy,
+      @Value("${app.websocket.snapshot.chunk-size:500}") int snapshotChunkSize,
+      @Value("${app.websocket.batch.max-operations:1000}") int maxBatchOperations) {
     this.objectMapper = objectMapper;
-    this.eventRepository = eventRepository;
+    this.eventWriteBehindService = eventWriteBehindService;
+    this.eventBatchWriter = eventBatchWriter;
+    this.projectHistoryService = projectHistoryService;
+    this.projectStateRegistry = projectStateRegistry;
+    this.frameEncoder = frameEncoder;
+    this.operationParser = operationParser;
+    this.outboundQueueCapacity = outboundQueueCapacity;
+    this.snapshotChunkSize = snapshotChunkSize;
+    this.maxBatchOperations = maxBatchOperations;
+    this.slowConsumerPolicy = slowConsumerPolicy;
+    this.fanOutExecutor = fanOutExecutor;
+    this.operationExecutor = operationExecutor;
+    this.realtimeBus = realtimeBus;
+    this.webSocketMetrics = webSocketMetrics;
+    webSocketMetrics.registerSessions(this::getSessionCount, projectSessions::size);
+    webSocketMetrics.registerTopProjects(this::getSessionCounts);
+  }
 
+  @PostConstruct
+  public void registerBusListener() {
+    realtimeBus.addProjectListener(this::onProjectMessage);
+  }
+
+  @Override
+  public List<String> getSubProtocols() {
+    return Arrays.stream(WebSocketCodec.values()).map(WebSocketCodec::getSubprotocol).toList();
   }
 
   @Override
@@ -48,69 +117,271 @@ public class ProjectWebSocketHandler extends TextWebSocketHandler {
     Long projectId = (Long) session.getAttributes().get("projectId");
 
     if (username != null && projectId != null) {
-      projectSessions
-          .computeIfAbsent(projectId, k -> new ConcurrentHashMap<>())
-          .put(username, session);
-
-      logger.info("WebSocket connection established for user {} in project {}", username, projectId);
-
-      List<Event> projectEventEntities = eventRepository.findByProjectId(projectId);
-      List<Map<String, Object>> projectEventsPayloads = projectEventEntities.stream()
-          .map(eventEntity -> {
-            Map<String, Object> eventContent = new HashMap<>();
-            String jsonData = eventEntity.getData();
-
-            if (jsonData != null && !jsonData.trim().isEmpty()) {
-              try {
-
-                eventContent = objectMapper.readValue(jsonData,
-                    new TypeReference<Map<String, Object>>() {
-                    });
-              } catch (IOException e) {
-                logger.error("Error deserializing event data for event ID {}: {}. Raw data: '{}'",
-                    eventEntity.getId(), e.getMessage(), jsonData, e);
-                return null;
-              }
-            } else {
-              if (jsonData == null) {
-                logger.warn("Event data is null for event ID {}. Sending event with ID and empty data.",
-                    eventEntity.getId());
-              } else {
-                logger.warn("Event data is blank for event ID {}. Sending event with ID and empty data.",
-                    eventEntity.getId());
-              }
+      ProjectState projectState = projectStateRegistry.join(projectId, session.getId());
 
-            }
+      WebSocketCodec codec = WebSocketCodec.fromSubprotocol(session.getAcceptedProtocol());
+      SessionOutbox outbox = new SessionOutbox(session, username, codec, outboundQueueCapacity, slowConsumerPolicy,
+          projectState.getOutboundStats(), webSocketMetrics, projectState.getWriterLane(),
+          fanOutExecutor.getMaxWritesPerTask());
+      ProjectOpLog opLog = projectState.getOpLog();
 
-            eventContent.put("id", eventEntity.getId());
+      MultiValueMap<String, String> params = getQueryParams(session);
+      SessionViewport viewport = parseViewport(params.getFirst("viewportStart"), params.getFirst("viewportEnd"),
+          params.getFirst("viewportGroups") != null ? Arrays.asList(params.getFirst("viewportGroups").split(","))
+              : null);
+      outbox.setViewport(viewport);
 
-            return eventContent;
-          })
-          .filter(Objects::nonNull)
-          .collect(Collectors.toList());
+      // Holding the op log keeps operations from being broadcast between the
+      // snapshot (or replay) and the registration of the new outbox.
+      synchronized (opLog) {
+        // Subscribing inside compute keeps it ordered with the unsubscribe of a last session leaving.
+        projectSessions.compute(projectId, (id, sessions) -> {
+          if (sessions == null) {
+            realtimeBus.subscribeProject(id);
+            sessions = new ConcurrentHashMap<>();
+          }
+          sessions.put(session.getId(), outbox);
+          return sessions;
+        });
 
-      WebSocketMessage connectionSuccessMessage = new WebSocketMessage("connection_success", Map.of(
-          "projectId", projectId,
-          "username", username,
-          "activeUsers", getActiveUsers(projectId),
-          "projectEvents", projectEventsPayloads));
+        logger.info("WebSocket connection established for user {} in project {} ({})", username, projectId, codec);
+
+        List<ProjectOpLog.Entry> missedOps = getMissedOps(params, projectState);
+        List<Map<String, Object>> visibleEvents = viewport != null && missedOps == null
+            ? getVisibleEvents(projectState, viewport)
+            : null;
+        if (missedOps != null) {
+          logger.info("Resuming session {} of user {} in project {} with {} missed operations", session.getId(),
+              username, projectId, missedOps.size());
+          sendMessage(session, new WebSocketMessage("connection_resumed", Map.of(
+              "projectId", projectId,
+              "username", username,
+              "activeUsers", getActiveUsers(projectId),
+              "epoch", projectState.getEpoch(),
+              "seq", opLog.getLastSeq())));
+          outbox.advanceSequence(Long.parseLong(params.getFirst("lastSeq")));
+          if (viewport == null) {
+            missedOps.forEach(entry -> enqueueOperation(outbox, entry.frame(), entry.seq(), null));
+          } else {
+            replayInViewport(outbox, projectState, viewport, missedOps);
+          }
+        } else if ("chunked".equals(params.getFirst("snapshot"))) {
+          outbox.advanceSequence(opLog.getLastSeq());
+          sendMessage(session, new WebSocketMessage("connection_success", Map.of(
+              "projectId", projectId,
+              "username", username,
+              "activeUsers", getActiveUsers(projectId),
+              "epoch", projectState.getEpoch(),
+              "seq", opLog.getLastSeq(),
+              "snapshot", "chunked",
+              "eventCount", visibleEvents != null ? visibleEvents.size() : projectState.getEventCount())));
+          outbox.enqueueStream(new SnapshotChunkIterator(projectId,
+              visibleEvents != null ? visibleEvents.iterator() : projectState.eventIterator(), snapshotChunkSize,
+              codec, frameEncoder, size -> webSocketMetrics.recordSnapshot(codec, "chunked", size)));
+        } else {
+          outbox.advanceSequence(opLog.getLastSeq());
+          WebSocketMessage connectionSuccessMessage = new WebSocketMessage("connection_success", Map.of(
+              "projectId", projectId,
+              "username", username,
+              "activeUsers", getActiveUsers(projectId),
+              "epoch", projectState.getEpoch(),
+              "seq", opLog.getLastSeq(),
+              "projectEvents", visibleEvents != null ? visibleEvents : projectState.getEvents()));
 
-      sendMessage(session, connectionSuccessMessage);
+          org.springframework.web.socket.WebSocketMessage<?> snapshotFrame = encodeFrame(connectionSuccessMessage,
+              codec);
+          if (snapshotFrame != null) {
+            webSocketMetrics.recordSnapshot(codec, "full", WebSocketMetrics.frameSize(snapshotFrame));
+            outbox.enqueue(snapshotFrame);
+          }
+        }
+      }
 
       WebSocketMessage userJoinedMessage = new WebSocketMessage("user_joined", Map.of(
           "username", username,
           "activeUsers", getActiveUsers(projectId)));
 
-      broadcastToProject(projectId, username, userJoinedMessage);
+      broadcastLocally(projectId, userJoinedMessage, PRESENCE_COALESCE_KEY);
     } else {
       logger.warn("WebSocket connection attempt without proper authentication or project ID");
       session.close();
     }
   }
 
+  /**
+   * Returns the operations a reconnecting session missed, or {@code null} when
+   * it has to start from a full snapshot. The client passes the epoch and the
+   * last sequence number it applied as the {@code epoch} and {@code lastSeq}
+   * query parameters.
+   */
+  private List<ProjectOpLog.Entry> getMissedOps(MultiValueMap<String, String> params, ProjectState projectState) {
+    String epoch = params.getFirst("epoch");
+    String lastSeq = params.getFirst("lastSeq");
+    if (!projectState.getEpoch().equals(epoch) || lastSeq == null) {
+      return null;
+    }
+
+    List<ProjectOpLog.Entry> missedOps;
+    try {
+      missedOps = projectState.getOpLog().entriesAfter(Long.parseLong(lastSeq));
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    // A replay that would overflow the outbox costs more than a snapshot.
+    return missedOps != null && missedOps.size() < outboundQueueCapacity ? missedOps : null;
+  }
+
+  /**
+   * Replays missed operations to a session with a viewport. The ids the client
+   * held are not known yet, so the events now in the viewport are assumed to
+   * be held and operations are filtered against them; batches are replayed
+   * whole. The client then declares the ids it actually holds with a
+   * {@code viewport} message, which sends it what it still lacks.
+   */
+  private void replayInViewport(SessionOutbox outbox, ProjectState projectState, SessionViewport viewport,
+      List<ProjectOpLog.Entry> missedOps) {
+    for (String eventId : projectState.findEventIdsOverlapping(viewport.getStart(), viewport.getEnd())) {
+      if (viewport.isVisible(projectState.getInterval(eventId))) {
+        viewport.markKnown(eventId);
+      }
+    }
+
+    for (ProjectOpLog.Entry entry : missedOps) {
+      if (entry.eventId() == null) {
+        enqueueOperation(outbox, entry.frame(), entry.seq(), null);
+        continue;
+      }
+      switch (viewport.deliveryFor(entry.type(), entry.eventId(), projectState.getInterval(entry.eventId()))) {
+        case FORWARD -> enqueueOperation(outbox, entry.frame(), entry.seq(), null);
+        case FORWARD_FULL -> {
+          SharedFrame fullFrame = currentEventFrame(projectState.getProjectId(), entry.eventId(), entry.seq()).get();
+          if (fullFrame != null) {
+            enqueueOperation(outbox, fullFrame, entry.seq(), null);
+          }
+        }
+        case SKIP -> {
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the events inside the viewport and marks them as known by the
+   * session.
+   */
+  private List<Map<String, Object>> getVisibleEvents(ProjectState projectState, SessionViewport viewport) {
+    List<Map<String, Object>> visibleEvents = new ArrayList<>();
+    for (String eventId : projectState.findEventIdsOverlapping(viewport.getStart(), viewport.getEnd())) {
+      Map<String, Object> eventContent = projectState.getEvent(eventId);
+      if (eventContent != null && viewport.isVisible(projectState.getInterval(eventId))) {
+        viewport.markKnown(eventId);
+        visibleEvents.add(eventContent);
+      }
+    }
+    return visibleEvents;
+  }
+
+  /**
+   * Builds a viewport from its bounds (epoch milliseconds or ISO-8601) and
+   * optional groups, or returns {@code null} when the bounds are missing or
+   * invalid.
+   */
+  private static SessionViewport parseViewport(Object start, Object end, Collection<?> groups) {
+    Long startMillis = EventInterval.parseTime(start);
+    Long endMillis = EventInterval.parseTime(end);
+    if (startMillis == null || endMillis == null || endMillis < startMillis) {
+      return null;
+    }
+    Set<String> groupIds = groups != null
+        ? groups.stream().filter(Objects::nonNull).map(String::valueOf).filter(group -> !group.isBlank())
+            .collect(Collectors.toSet())
+        : null;
+    return new SessionViewport(startMillis, endMillis, groupIds);
+  }
+
+  /**
+   * Replaces the viewport of a session. The client receives the events that
+   * entered the new viewport and the ids of the ones it should drop; a window
+   * without bounds clears the viewport and sends every event it lacks. A
+   * client that resumed passes the ids it holds as {@code known}, since the
+   * server could only guess them.
+   */
+  private void updateViewport(WebSocketSession session, ProjectState projectState, Map<String, Object> window) {
+    SessionOutbox outbox = getOutbox(session);
+    if (outbox == null) {
+      return;
+    }
+    SessionViewport viewport = null;
+    if (window.get("start") != null || window.get("end") != null) {
+      viewport = parseViewport(window.get("start"), window.get("end"),
+          window.get("groups") instanceof Collection<?> groups ? groups : null);
+      if (viewport == null) {
+        sendMessage(session, new WebSocketMessage("error", Map.of("message", "Invalid viewport.")));
+        return;
+      }
+    }
+
+    synchronized (projectState.getOpLog()) {
+      SessionViewport previous = outbox.getViewport();
+      // Without a previous viewport the client was sent every event.
+      Set<String> heldEventIds = window.get("known") instanceof Collection<?> known
+          ? known.stream().filter(Objects::nonNull).map(String::valueOf).collect(Collectors.toSet())
+          : previous != null ? previous.getKnownEventIds() : projectState.getEventIds();
+
+      List<String> removedEventIds = new ArrayList<>();
+      List<Map<String, Object>> enteredEvents = new ArrayList<>();
+      for (String eventId : heldEventIds) {
+        if (!projectState.containsEvent(eventId)) {
+          removedEventIds.add(eventId);
+        } else if (viewport == null || viewport.isVisible(projectState.getInterval(eventId))) {
+          if (viewport != null) {
+            viewport.markKnown(eventId);
+          }
+        } else {
+          removedEventIds.add(eventId);
+        }
+      }
+      Collection<String> candidateEventIds = viewport != null
+          ? projectState.findEventIdsOverlapping(viewport.getStart(), viewport.getEnd())
+          : projectState.getEventIds();
+      for (String eventId : candidateEventIds) {
+        if (heldEventIds.contains(eventId)) {
+          continue;
+        }
+        Map<String, Object> eventContent = projectState.getEvent(eventId);
+        if (eventContent != null && (viewport == null || viewport.isVisible(projectState.getInterval(eventId)))) {
+          if (viewport != null) {
+            viewport.markKnown(eventId);
+          }
+          enteredEvents.add(eventContent);
+        }
+      }
+
+      outbox.setViewport(viewport);
+      sendMessage(session, new WebSocketMessage("viewport_events", Map.of(
+          "events", enteredEvents,
+          "removed", removedEventIds)));
+    }
+  }
+
+  private MultiValueMap<String, String> getQueryParams(WebSocketSession session) {
+    if (session.getUri() == null) {
+      return new LinkedMultiValueMap<>();
+    }
+    return UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams();
+  }
+
   @Override
   protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
-    String payload = message.getPayload();
+    handleClientMessage(session, message);
+  }
+
+  @Override
+  protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+    handleClientMessage(session, message);
+  }
+
+  private void handleClientMessage(WebSocketSession session, org.springframework.web.socket.WebSocketMessage<?> message) {
     String senderUsername = (String) session.getAttributes().get("username");
     Long projectId = (Long) session.getAttributes().get("projectId");
 
@@ -121,255 +392,802 @@ public class ProjectWebSocketHandler extends TextWebSocketHandler {
       return;
     }
 
-    logger.debug("Received message from user {} in project {}: {}", senderUsername, projectId, payload);
+    if (logger.isDebugEnabled()) {
+      logger.debug("Received message from user {} in project {}: {}", senderUsername, projectId,
+          message instanceof TextMessage textMessage ? textMessage.getPayload()
+              : message.getPayloadLength() + " bytes (binary)");
+    }
 
+    long receivedNanos = System.nanoTime();
     try {
-      Map<String, Object> receivedMessage = objectMapper.readValue(payload, new TypeReference<Map<String, Object>>() {
-      });
-      String type = (String) receivedMessage.get("type");
-      Object rawOuterData = receivedMessage.get("data");
+      ClientOperation operation = message instanceof BinaryMessage binaryMessage
+          ? operationParser.fromMessage(
+              frameEncoder.decode(binaryMessage, WebSocketCodec.fromSubprotocol(session.getAcceptedProtocol())))
+          : operationParser.parse(((TextMessage) message).getPayload());
 
-      if (!(rawOuterData instanceof Map)) {
-        logger.warn("Received outer data field is not a Map: {}", rawOuterData);
+      if (operation == null) {
+        logger.warn("Received outer data field is not an object from user {}", senderUsername);
         sendMessage(session,
             new WebSocketMessage("error", Map.of("message", "Invalid data format in message (outer data)")));
         return;
       }
+      webSocketMetrics.recordInbound(operation.type());
 
-      Map<String, Object> eventDataMap = (Map<String, Object>) rawOuterData;
-
-      Map<String, Object> innerEventData;
-      Object rawInnerData = eventDataMap.get("data");
-
-      if ("delete".equals(type)) {
-        if (eventDataMap.containsKey("id")) {
-          innerEventData = eventDataMap;
-        } else if (rawInnerData instanceof Map) {
-          innerEventData = (Map<String, Object>) rawInnerData;
-        } else {
-          logger.warn("Delete message for user {} missing event ID in 'data' or 'data.data'. Payload: {}",
-              senderUsername, eventDataMap);
+      if ("delete".equals(operation.type())) {
+        if (!operation.hasEventId()) {
+          logger.warn("Delete message for user {} missing event ID in 'data' or 'data.data'.", senderUsername);
           sendMessage(session, new WebSocketMessage("error", Map.of("message", "Event ID missing for delete.")));
           return;
         }
-      } else {
-        if (!(rawInnerData instanceof Map)) {
-          logger.warn("Received inner event data field is not a Map: {}. Outer data: {}", rawInnerData, eventDataMap);
-          sendMessage(session, new WebSocketMessage("error", Map.of("message", "Invalid event data structure.")));
-          return;
-        }
-        innerEventData = (Map<String, Object>) rawInnerData;
+      } else if (operation.body() == null) {
+        logger.warn("Received inner event data field is not an object from user {}", senderUsername);
+        sendMessage(session, new WebSocketMessage("error", Map.of("message", "Invalid event data structure.")));
+        return;
       }
 
-      Map<String, Object> eventContentForBroadcast;
+      ProjectState projectState = projectStateRegistry.get(projectId).orElse(null);
+      if (projectState == null) {
+        logger.warn("No in-memory state for project {} while handling message from user {}", projectId,
+            senderUsername);
+        sendMessage(session, new WebSocketMessage("error", Map.of("message", "Project is not loaded.")));
+        return;
+      }
 
+      // The role was resolved during the handshake, so this check needs no query.
+      if (isTimelineOperation(operation.type())
+          && session.getAttributes().get("projectRole") == ProjectRole.ROLE_PROJECT_VIEWER) {
+        rejectOperation(session, operation.opId(), "Viewers cannot edit this project.");
+        return;
+      }
+      boolean queued = operationExecutor.execute(projectId, () -> {
+        applyOperation(session, senderUsername, projectId, projectState, operation);
+        webSocketMetrics.recordOperation(operation.type(), System.nanoTime() - receivedNanos);
+      });
+      if (!queued) {
+        rejectOperation(session, operation.opId(), "Server is busy, try again.");
+      }
+    } catch (Exception e) {
+      logger.error("Error processing WebSocket message from user {}: {}", senderUsername, e.getMessage(), e);
+      sendMessage(session, new WebSocketMessage("error", Map.of("message", "Invalid message format or server error")));
+    }
+  }
+
+  /**
+   * Applies one client operation. Runs on the project's stripe of the
+   * {@link ProjectOperationExecutor}, so operations on a project are applied,
+   * persisted and sequenced in the order they arrived. Event bodies are stored
+   * and rebroadcast as the JSON text the client sent; they are only parsed for
+   * the in-memory state.
+   */
+  private void applyOperation(WebSocketSession session, String senderUsername, Long projectId,
+      ProjectState projectState, ClientOperation operation) {
+    String type = operation.type();
+    String opId = operation.opId();
+    try {
       switch (type) {
         case "add":
-          if (!innerEventData.containsKey("id") || innerEventData.get("id") == null
-              || ((String) innerEventData.get("id")).isEmpty()) {
-            logger.warn("Add message missing event ID in inner data for user {}: {}", senderUsername, innerEventData);
-            sendMessage(session,
-                new WebSocketMessage("error", Map.of("message", "Event ID missing in 'data.data' for add.")));
+          if (!operation.hasEventId()) {
+            logger.warn("Add message missing event ID in inner data for user {}: {}", senderUsername,
+                operation.body());
+            rejectOperation(session, opId, "Event ID missing in 'data.data' for add.");
             return;
           }
-          String newEventId = (String) innerEventData.get("id");
-
-          Event newEvent = new Event();
-          newEvent.setId(newEventId);
-
-          Project projectRefAdd = new Project();
-          projectRefAdd.setId(projectId);
-          newEvent.setProject(projectRefAdd);
-
-          newEvent.setData(objectMapper.writeValueAsString(innerEventData));
-          Event savedEvent = eventRepository.save(newEvent);
+          String newEventId = operation.eventId();
+          if (projectState.containsEvent(newEventId)) {
+            eventWriteBehindService.enqueueUpdate(newEventId, operation.body());
+          } else {
+            eventWriteBehindService.enqueueInsert(projectId, newEventId, operation.body());
+          }
 
-          eventContentForBroadcast = new HashMap<>(innerEventData);
+          projectState.putEvent(newEventId, operationParser.readBody(operation));
+          projectHistoryService.record(projectId, type, newEventId, operation.body(), senderUsername);
 
-          broadcastToProject(projectId, senderUsername,
-              new WebSocketMessage(type, Map.of("data", eventContentForBroadcast, "username", senderUsername)));
+          publishOperation(projectId, type, operation.body(), senderUsername, newEventId);
+          acknowledge(session, opId, type, newEventId, projectState);
           break;
 
         case "update":
-          System.out.println("eventDataMap (outer) = " + eventDataMap);
-          System.out.println("innerEventData = " + innerEventData);
-
-          if (!innerEventData.containsKey("id") || innerEventData.get("id") == null
-              || ((String) innerEventData.get("id")).isEmpty()) {
+          if (!operation.hasEventId()) {
             logger.warn("Update message missing event ID in inner data for user {}: {}", senderUsername,
-                innerEventData);
-            sendMessage(session,
-                new WebSocketMessage("error", Map.of("message", "Event ID missing in 'data.data' for update.")));
+                operation.body());
+            rejectOperation(session, opId, "Event ID missing in 'data.data' for update.");
             return;
           }
-          String eventIdUpdate = (String) innerEventData.get("id");
-          Optional<Event> existingEventOpt = eventRepository.findById(eventIdUpdate);
-
-          if (existingEventOpt.isPresent()) {
-            Event eventToUpdate = existingEventOpt.get();
-            if (!eventToUpdate.getProject().getId().equals(projectId)) {
-              logger.warn("User {} attempted to update event {} not belonging to project {}", senderUsername,
-                  eventIdUpdate, projectId);
-              sendMessage(session,
-                  new WebSocketMessage("error", Map.of("message", "Permission denied to update event.")));
-              return;
-            }
-
-            eventToUpdate.setData(objectMapper.writeValueAsString(innerEventData));
-
-            Project projectRefUpdate = new Project();
-            projectRefUpdate.setId(projectId);
-            eventToUpdate.setProject(projectRefUpdate);
+          String eventIdUpdate = operation.eventId();
+          if (projectState.containsEvent(eventIdUpdate)) {
+            projectState.putEvent(eventIdUpdate, operationParser.readBody(operation));
+            eventWriteBehindService.enqueueUpdate(eventIdUpdate, operation.body());
+            projectHistoryService.record(projectId, type, eventIdUpdate, operation.body(), senderUsername);
 
-            Event updatedEvent = eventRepository.save(eventToUpdate);
+            publishOperation(projectId, type, operation.body(), senderUsername, eventIdUpdate);
+            acknowledge(session, opId, type, eventIdUpdate, projectState);
+          } else {
+            logger.warn("Event with ID {} not found in project {} for update by user {}.", eventIdUpdate, projectId,
+                senderUsername);
+            rejectOperation(session, opId, "Event not found for update.");
+          }
+          break;
 
-            eventContentForBroadcast = new HashMap<>(innerEventData);
+        case "patch":
+          if (!operation.hasEventId()) {
+            logger.warn("Patch message missing event ID in inner data for user {}: {}", senderUsername,
+                operation.body());
+            rejectOperation(session, opId, "Event ID missing in 'data.data' for patch.");
+            return;
+          }
+          String eventIdPatch = operation.eventId();
+          Map<String, Object> mergedContent = projectState.patchEvent(eventIdPatch,
+              operationParser.readBody(operation));
+          if (mergedContent != null) {
+            String mergedData = objectMapper.writeValueAsString(mergedContent);
+            eventWriteBehindService.enqueueUpdate(eventIdPatch, mergedData);
+            projectHistoryService.record(projectId, type, eventIdPatch, mergedData, senderUsername);
 
-            broadcastToProject(projectId, senderUsername,
-                new WebSocketMessage(type, Map.of("data", eventContentForBroadcast, "username", senderUsername)));
+            publishOperation(projectId, type, operation.body(), senderUsername, eventIdPatch);
+            acknowledge(session, opId, type, eventIdPatch, projectState);
           } else {
-            logger.warn("Event with ID {} not found for update by user {}.", eventIdUpdate, senderUsername);
-            sendMessage(session, new WebSocketMessage("error", Map.of("message", "Event not found for update.")));
+            logger.warn("Event with ID {} not found in project {} for patch by user {}.", eventIdPatch, projectId,
+                senderUsername);
+            rejectOperation(session, opId, "Event not found for patch.");
           }
           break;
 
         case "delete":
-          if (!innerEventData.containsKey("id") || innerEventData.get("id") == null
-              || ((String) innerEventData.get("id")).isEmpty()) {
-            logger.warn("Delete message missing event ID for user {}: {}", senderUsername, innerEventData);
-            sendMessage(session, new WebSocketMessage("error", Map.of("message", "Event ID missing for delete.")));
-            return;
-          }
-          String eventIdDelete = (String) innerEventData.get("id");
-
-          Optional<Event> eventToDeleteOpt = eventRepository.findById(eventIdDelete);
-          if (eventToDeleteOpt.isPresent()) {
-            Event eventToDelete = eventToDeleteOpt.get();
-            if (!eventToDelete.getProject().getId().equals(projectId)) {
-              logger.warn("User {} attempted to delete event {} not belonging to project {}", senderUsername,
-                  eventIdDelete, projectId);
-              sendMessage(session,
-                  new WebSocketMessage("error", Map.of("message", "Permission denied to delete event.")));
-              return;
-            }
-            eventRepository.deleteById(eventIdDelete);
+          String eventIdDelete = operation.eventId();
+
+          if (projectState.removeEvent(eventIdDelete) != null) {
+            eventWriteBehindService.enqueueDelete(projectId, eventIdDelete);
+            projectHistoryService.record(projectId, type, eventIdDelete, null, senderUsername);
             Map<String, Object> deleteConfirmationData = Map.of("id", eventIdDelete);
             broadcastToProject(projectId, senderUsername,
-                new WebSocketMessage(type, Map.of("data", deleteConfirmationData, "username", senderUsername)));
+                new WebSocketMessage(type, Map.of("data", deleteConfirmationData, "username", senderUsername)),
+                eventIdDelete);
+            acknowledge(session, opId, type, eventIdDelete, projectState);
           } else {
-            logger.warn("Event with ID {} not found for deletion by user {}", eventIdDelete, senderUsername);
-            sendMessage(session, new WebSocketMessage("error", Map.of("message", "Event not found for deletion.")));
+            logger.warn("Event with ID {} not found in project {} for deletion by user {}", eventIdDelete, projectId,
+                senderUsername);
+            rejectOperation(session, opId, "Event not found for deletion.");
           }
           break;
+        case "batch":
+          applyBatch(session, senderUsername, projectId, projectState, operationParser.readBody(operation), opId);
+          break;
+
+        case "viewport":
+          updateViewport(session, projectState, operationParser.readBody(operation));
+          break;
+
         default:
           logger.warn("Unknown event type received from user {}: {}", senderUsername, type);
 
           break;
       }
     } catch (Exception e) {
-      logger.error("Error processing WebSocket message from user {}: {}", senderUsername, e.getMessage(), e);
-      sendMessage(session, new WebSocketMessage("error", Map.of("message", "Invalid message format or server error")));
+      logger.error("Error applying {} operation from user {} in project {}: {}", type, senderUsername, projectId,
+          e.getMessage(), e);
+      rejectOperation(session, opId, "Invalid message format or server error");
     }
   }
 
-  private void broadcastToProject(Long projectId, String senderUsername, WebSocketMessage message) {
-    ConcurrentHashMap<String, WebSocketSession> sessions = projectSessions.get(projectId);
-    if (sessions != null) {
-      sessions.forEach((username, session) -> {
+  /**
+   * Confirms an operation to its sender with the sequence number it was
+   * committed at. Every sequence number of a project is assigned on its
+   * operation stripe, so the last one is the one of this operation.
+   */
+  private void acknowledge(WebSocketSession session, String opId, String type, String eventId,
+      ProjectState projectState) {
+    Map<String, Object> ack = new HashMap<>();
+    ack.put("type", type);
+    ack.put("id", eventId);
+    ack.put("seq", projectState.getOpLog().getLastSeq());
+    sendAck(session, opId, ack);
+  }
+
+  private void sendAck(WebSocketSession session, String opId, Map<String, Object> ack) {
+    if (opId != null) {
+      ack.put("opId", opId);
+    }
+    sendMessage(session, new WebSocketMessage("ack", ack));
+  }
+
+  /**
+   * Applies a list of add, update, patch and delete operations as one unit:
+   * their net effect is written in a single transaction and broadcast as one
+   * frame. Invalid operations are skipped and reported in the ack, one result
+   * per operation.
+   */
+  @SuppressWarnings("unchecked")
+  private void applyBatch(WebSocketSession session, String senderUsername, Long projectId,
+      ProjectState projectState, Map<String, Object> batchData, String opId) throws JsonProcessingException {
+    if (!(batchData.get("ops") instanceof List<?> ops) || ops.isEmpty()) {
+      rejectOperation(session, opId, "Batch has no operations.");
+      return;
+    }
+    if (ops.size() > maxBatchOperations) {
+      rejectOperation(session, opId, "Batch exceeds " + maxBatchOperations + " operations.");
+      return;
+    }
+
+    String[] eventIds = new String[ops.size()];
+    String[] errors = new String[ops.size()];
+    List<Map<String, Object>> appliedOps = new ArrayList<>();
+    // Content of every touched event once the batch is applied, null if deleted.
+    Map<String, Map<String, Object>> finalContents = new LinkedHashMap<>();
+    Set<String> existingEventIds = new HashSet<>();
+
+    for (int index = 0; index < ops.size(); index++) {
+      if (!(ops.get(index) instanceof Map<?, ?> op) || !(op.get("type") instanceof String opType)
+          || !BATCH_OPERATIONS.contains(opType) || !(op.get("data") instanceof Map<?, ?> rawOpData)) {
+        errors[index] = "Invalid operation.";
+        continue;
+      }
+      if (!(rawOpData.get("id") instanceof String eventId) || eventId.isEmpty()) {
+        errors[index] = "Event ID missing.";
+        continue;
+      }
+      eventIds[index] = eventId;
 
-        if (session.isOpen()) {
-          try {
-            sendMessage(session, message);
-          } catch (Exception e) {
-            logger.error("Error broadcasting message to user {}: {}", username, e.getMessage());
+      Map<String, Object> opData = (Map<String, Object>) rawOpData;
+      Map<String, Object> currentContent = finalContents.containsKey(eventId) ? finalContents.get(eventId)
+          : projectState.getEvent(eventId);
+      if (currentContent == null && !"add".equals(opType)) {
+        errors[index] = "Event not found.";
+        continue;
+      }
+
+      if (!finalContents.containsKey(eventId) && currentContent != null) {
+        existingEventIds.add(eventId);
+      }
+      finalContents.put(eventId, switch (opType) {
+        case "add", "update" -> new HashMap<>(opData);
+        case "patch" -> JsonMergePatch.apply(currentContent, opData);
+        default -> null;
+      });
+      appliedOps.add(Map.of("type", opType, "data", "delete".equals(opType) ? Map.of("id", eventId) : opData));
+    }
+
+    Long seq = null;
+    if (!appliedOps.isEmpty()) {
+      Map<String, String> inserts = new LinkedHashMap<>();
+      Map<String, String> updates = new HashMap<>();
+      Set<String> deletes = new HashSet<>();
+      for (Map.Entry<String, Map<String, Object>> entry : finalContents.entrySet()) {
+        boolean existing = existingEventIds.contains(entry.getKey());
+        if (entry.getValue() == null) {
+          if (existing) {
+            deletes.add(entry.getKey());
+          }
+        } else if (existing) {
+          updates.put(entry.getKey(), objectMapper.writeValueAsString(entry.getValue()));
+        } else {
+          inserts.put(entry.getKey(), objectMapper.writeValueAsString(entry.getValue()));
+        }
+      }
+
+      try {
+        eventBatchWriter.write(projectId, inserts, updates, deletes);
+        inserts.forEach((eventId, data) -> projectHistoryService.record(projectId, "add", eventId, data,
+            senderUsername));
+        updates.forEach((eventId, data) -> projectHistoryService.record(projectId, "update", eventId, data,
+            senderUsername));
+        deletes.forEach(eventId -> projectHistoryService.record(projectId, "delete", eventId, null, senderUsername));
+      } catch (RuntimeException e) {
+        logger.error("Error saving batch of {} operations from user {} in project {}: {}", appliedOps.size(),
+            senderUsername, projectId, e.getMessage(), e);
+        for (int index = 0; index < errors.length; index++) {
+          if (errors[index] == null) {
+            errors[index] = "Batch could not be saved.";
           }
         }
+        appliedOps.clear();
+      }
+    }
+
+    if (!appliedOps.isEmpty()) {
+      finalContents.forEach((eventId, content) -> {
+        if (content != null) {
+          projectState.putEvent(eventId, content);
+        } else {
+          projectState.removeEvent(eventId);
+        }
       });
+      broadcastToProject(projectId, senderUsername,
+          new WebSocketMessage("batch", Map.of("data", Map.of("ops", appliedOps), "username", senderUsername)),
+          null);
+      seq = projectState.getOpLog().getLastSeq();
     }
+
+    List<Map<String, Object>> results = new ArrayList<>(ops.size());
+    for (int index = 0; index < ops.size(); index++) {
+      Map<String, Object> result = new HashMap<>();
+      result.put("index", index);
+      result.put("id", eventIds[index]);
+      result.put("ok", errors[index] == null);
+      if (errors[index] != null) {
+        result.put("error", errors[index]);
+      }
+      results.add(result);
+    }
+
+    Map<String, Object> ack = new HashMap<>();
+    ack.put("type", "batch");
+    ack.put("results", results);
+    if (seq != null) {
+      ack.put("seq", seq);
+    }
+    sendAck(session, opId, ack);
+  }
+
+  private void rejectOperation(WebSocketSession session, String opId, String errorMessage) {
+    sendMessage(session, new WebSocketMessage("error", opId != null
+        ? Map.of("message", errorMessage, "opId", opId)
+        : Map.of("message", errorMessage)));
+  }
+
+  private void broadcastToProject(Long projectId, String senderUsername, WebSocketMessage message,
+      String coalesceKey) {
+    TextMessage frame = encodeFrame(message);
+    if (frame != null) {
+      realtimeBus.publishToProject(
+          new ProjectBusMessage(projectId, message.getType(), frame.getPayload(), coalesceKey));
+    }
+  }
+
+  /**
+   * Publishes a client operation whose body is still the raw JSON it arrived
+   * as.
+   */
+  private void publishOperation(Long projectId, String type, String rawData, String senderUsername,
+      String coalesceKey) throws IOException {
+    TextMessage frame = frameEncoder.encodeOperation(type, rawData, senderUsername);
+    realtimeBus.publishToProject(new ProjectBusMessage(projectId, type, frame.getPayload(), coalesceKey));
   }
 
   public void broadcastToAllInProject(Long projectId, WebSocketMessage message) {
-    ConcurrentHashMap<String, WebSocketSession> sessions = projectSessions.get(projectId);
-    if (sessions != null) {
-      sessions.forEach((username, session) -> {
-        if (session.isOpen()) {
-          try {
-            sendMessage(session, message);
-          } catch (Exception e) {
-            logger.error("Error broadcasting message to user {}: {}", username, e.getMessage());
+    broadcastToProject(projectId, null, message, null);
+  }
+
+  private void broadcastLocally(Long projectId, WebSocketMessage message, String coalesceKey) {
+    TextMessage frame = encodeFrame(message);
+    if (frame != null) {
+      broadcastFrame(projectId, frameEncoder.share(frame), coalesceKey);
+    }
+  }
+
+  private void onProjectMessage(ProjectBusMessage message, boolean remote) {
+    if (!projectSessions.containsKey(message.projectId())) {
+      return;
+    }
+    if (remote) {
+      // Remote operations are sequenced on the same stripe as local ones.
+      boolean queued = operationExecutor.execute(message.projectId(), () -> {
+        applyRemoteOperation(message);
+        deliverProjectMessage(message);
+      });
+      if (!queued) {
+        disconnectProject(message.projectId());
+      }
+    } else {
+      deliverProjectMessage(message);
+    }
+  }
+
+  /**
+   * Closes every session of a project whose in-memory state missed a remote
+   * operation. Once the last one is gone the state is evicted, and the
+   * clients reconnect to a fresh load from the database.
+   */
+  private void disconnectProject(Long projectId) {
+    ConcurrentHashMap<String, SessionOutbox> sessions = projectSessions.get(projectId);
+    if (sessions == null) {
+      return;
+    }
+    logger.warn("Project {} missed a remote operation, disconnecting its {} sessions to resync", projectId,
+        sessions.size());
+    for (SessionOutbox outbox : sessions.values()) {
+      try {
+        outbox.getSession().close(CloseStatus.SESSION_NOT_RELIABLE);
+      } catch (IOException e) {
+        logger.error("Error closing WebSocket session {}: {}", outbox.getSession().getId(), e.getMessage());
+      }
+    }
+  }
+
+  private void deliverProjectMessage(ProjectBusMessage message) {
+    ProjectState projectState = projectStateRegistry.get(message.projectId()).orElse(null);
+    if (projectState == null || !isTimelineOperation(message.type())) {
+      broadcastFrame(message.projectId(), frameEncoder.share(message.frame()), message.coalesceKey());
+      return;
+    }
+
+    ProjectOpLog opLog = projectState.getOpLog();
+    synchronized (opLog) {
+      long seq = opLog.getLastSeq() + 1;
+      SharedFrame frame = frameEncoder.share(withSequence(message.frame(), seq));
+      opLog.append(new ProjectOpLog.Entry(seq, frame, message.type(),
+          "batch".equals(message.type()) ? null : message.coalesceKey()));
+
+      if ("batch".equals(message.type())) {
+        broadcastBatch(projectState, message, frame, seq);
+        return;
+      }
+      Supplier<SharedFrame> fullFrame = "patch".equals(message.type())
+          ? currentEventFrame(message.projectId(), message.coalesceKey(), seq)
+          : null;
+      broadcastOperation(projectState, message.type(), frame, seq, message.coalesceKey(), fullFrame);
+    }
+  }
+
+  /**
+   * Sends a batch to every session. A session whose viewport would not get
+   * every operation of the batch on its own receives a frame with only its
+   * share, where patches of events it does not hold become full updates.
+   */
+  @SuppressWarnings("unchecked")
+  private void broadcastBatch(ProjectState projectState, ProjectBusMessage message, SharedFrame frame, long seq) {
+    ConcurrentHashMap<String, SessionOutbox> sessions = projectSessions.get(projectState.getProjectId());
+    if (sessions == null) {
+      return;
+    }
+
+    String username = null;
+    List<Map<String, Object>> ops = null;
+    List<SessionOutbox> recipients = new ArrayList<>();
+    Map<SessionOutbox, SharedFrame> filteredRecipients = new HashMap<>();
+    for (SessionOutbox outbox : sessions.values()) {
+      if (!outbox.getSession().isOpen()) {
+        continue;
+      }
+      SessionViewport viewport = outbox.getViewport();
+      if (viewport == null) {
+        recipients.add(outbox);
+        continue;
+      }
+
+      if (ops == null) {
+        try {
+          Map<String, Object> outerData = (Map<String, Object>) objectMapper.readValue(message.frame(),
+              new TypeReference<Map<String, Object>>() {
+              }).get("data");
+          username = (String) outerData.get("username");
+          ops = (List<Map<String, Object>>) ((Map<String, Object>) outerData.get("data")).get("ops");
+        } catch (JsonProcessingException | RuntimeException e) {
+          logger.error("Error reading batch for project {}: {}", message.projectId(), e.getMessage());
+          return;
+        }
+      }
+
+      List<Map<String, Object>> sessionOps = new ArrayList<>(ops.size());
+      boolean complete = true;
+      for (Map<String, Object> op : ops) {
+        String opType = (String) op.get("type");
+        String eventId = (String) ((Map<String, Object>) op.get("data")).get("id");
+        switch (viewport.deliveryFor(opType, eventId, projectState.getInterval(eventId))) {
+          case FORWARD -> sessionOps.add(op);
+          case FORWARD_FULL -> {
+            complete = false;
+            Map<String, Object> eventContent = projectState.getEvent(eventId);
+            if (eventContent != null) {
+              sessionOps.add(Map.of("type", "update", "data", eventContent));
+            }
           }
+          case SKIP -> complete = false;
+        }
+      }
+
+      if (complete) {
+        recipients.add(outbox);
+      } else if (!sessionOps.isEmpty()) {
+        TextMessage sessionFrame = encodeFrame(new WebSocketMessage("batch",
+            Map.of("data", Map.of("ops", sessionOps), "username", username != null ? username : "")));
+        if (sessionFrame != null) {
+          filteredRecipients.put(outbox, frameEncoder.share(withSequence(sessionFrame.getPayload(), seq)));
         }
+      }
+    }
+
+    FanOutExecutor.FanOutTracker tracker = fanOutExecutor.track("websocket",
+        recipients.size() + filteredRecipients.size());
+    recipients.forEach(outbox -> enqueueOperation(outbox, frame, seq, tracker::recipientDone));
+    filteredRecipients.forEach((outbox, sessionFrame) -> enqueueOperation(outbox, sessionFrame, seq,
+        tracker::recipientDone));
+  }
+
+  /**
+   * Sends a timeline operation to the sessions whose viewport contains the
+   * event (or which already hold it). A session that has not seen a patched
+   * event gets its full current content instead of the patch.
+   */
+  private void broadcastOperation(ProjectState projectState, String type, SharedFrame frame, long seq,
+      String eventId, Supplier<SharedFrame> currentFrame) {
+    ConcurrentHashMap<String, SessionOutbox> sessions = projectSessions.get(projectState.getProjectId());
+    if (sessions == null) {
+      return;
+    }
+
+    EventInterval interval = projectState.getInterval(eventId);
+    List<SessionOutbox> recipients = new ArrayList<>();
+    List<SessionOutbox> fullRecipients = new ArrayList<>();
+    for (SessionOutbox outbox : sessions.values()) {
+      if (!outbox.getSession().isOpen()) {
+        continue;
+      }
+      SessionViewport viewport = outbox.getViewport();
+      SessionViewport.Delivery delivery = viewport != null
+          ? viewport.deliveryFor(type, eventId, interval)
+          : SessionViewport.Delivery.FORWARD;
+      switch (delivery) {
+        case FORWARD -> recipients.add(outbox);
+        case FORWARD_FULL -> fullRecipients.add(outbox);
+        case SKIP -> {
+        }
+      }
+    }
+
+    FanOutExecutor.FanOutTracker tracker = fanOutExecutor.track("websocket",
+        recipients.size() + fullRecipients.size());
+    recipients.forEach(outbox -> enqueueOperation(outbox, frame, seq, tracker::recipientDone));
+    if (!fullRecipients.isEmpty()) {
+      SharedFrame fullFrame = currentFrame != null ? currentFrame.get() : null;
+      fullRecipients.forEach(outbox -> {
+        if (fullFrame != null) {
+          enqueueOperation(outbox, fullFrame, seq, tracker::recipientDone);
+        } else {
+          tracker.recipientDone();
+        }
+      });
+    }
+  }
+
+  /**
+   * Queues an operation for a session. Operations its viewport filtered out
+   * since the last one it was sent are announced first with a single skip
+   * frame, so the client sees every sequence number and can tell a filtered
+   * operation from a lost one. Must be called while holding the op log.
+   */
+  private void enqueueOperation(SessionOutbox outbox, SharedFrame frame, long seq, Runnable onDone) {
+    long previousSeq = outbox.advanceSequence(seq);
+    if (seq > previousSeq + 1) {
+      outbox.enqueueOperation(frameEncoder.share(
+          "{\"seq\":" + (seq - 1) + ",\"type\":\"skip\",\"data\":{\"from\":" + (previousSeq + 1) + "}}"), null);
+    }
+    outbox.enqueueOperation(frame, onDone);
+  }
+
+  private static boolean isTimelineOperation(String type) {
+    return type != null && TIMELINE_OPERATIONS.contains(type);
+  }
+
+  /**
+   * Adds the sequence number as the first member of an encoded JSON message.
+   */
+  private static String withSequence(String frame, long seq) {
+    return "{\"seq\":" + seq + "," + frame.substring(1);
+  }
+
+  /**
+   * Lazily encodes an update frame with the current content of an event, shared
+   * by every session that gets it instead of a patch.
+   */
+  private Supplier<SharedFrame> currentEventFrame(Long projectId, String eventId, long seq) {
+    AtomicReference<SharedFrame> encoded = new AtomicReference<>();
+    return () -> encoded.updateAndGet(frame -> {
+      if (frame != null) {
+        return frame;
+      }
+      Map<String, Object> eventContent = projectStateRegistry.get(projectId)
+          .map(projectState -> projectState.getEvent(eventId))
+          .orElse(null);
+      TextMessage updateFrame = eventContent != null
+          ? encodeFrame(new WebSocketMessage("update", Map.of("data", eventContent, "username", "")))
+          : null;
+      return updateFrame != null ? frameEncoder.share(withSequence(updateFrame.getPayload(), seq)) : null;
+    });
+  }
+
+  @SuppressWarnings("unchecked")
+  private void applyRemoteOperation(ProjectBusMessage message) {
+    String type = message.type();
+    ProjectState projectState = projectStateRegistry.get(message.projectId()).orElse(null);
+    if (!isTimelineOperation(type) || projectState == null) {
+      return;
+    }
+
+    try {
+      Map<String, Object> frame = objectMapper.readValue(message.frame(), new TypeReference<Map<String, Object>>() {
       });
+      Object outerData = frame.get("data");
+      if (!(outerData instanceof Map) || !(((Map<String, Object>) outerData).get("data") instanceof Map)) {
+        return;
+      }
+      Map<String, Object> eventContent = (Map<String, Object>) ((Map<String, Object>) outerData).get("data");
+      if (!"batch".equals(type)) {
+        applyToState(projectState, type, eventContent);
+      } else if (eventContent.get("ops") instanceof List<?> ops) {
+        for (Object op : ops) {
+          if (op instanceof Map<?, ?> batchOp && batchOp.get("type") instanceof String opType
+              && batchOp.get("data") instanceof Map<?, ?> opData) {
+            applyToState(projectState, opType, (Map<String, Object>) opData);
+          }
+        }
+      }
+    } catch (JsonProcessingException e) {
+      logger.error("Error applying remote operation for project {}: {}", message.projectId(), e.getMessage());
+    }
+  }
+
+  private static void applyToState(ProjectState projectState, String type, Map<String, Object> eventContent) {
+    if (!(eventContent.get("id") instanceof String eventId)) {
+      return;
+    }
+
+    switch (type) {
+      case "add", "update" -> projectState.putEvent(eventId, eventContent);
+      case "patch" -> projectState.patchEvent(eventId, eventContent);
+      default -> projectState.removeEvent(eventId);
+    }
+  }
+
+  private void broadcastFrame(Long projectId, SharedFrame frame, String coalesceKey) {
+    ConcurrentHashMap<String, SessionOutbox> sessions = projectSessions.get(projectId);
+    if (sessions != null) {
+      List<SessionOutbox> recipients = sessions.values().stream()
+          .filter(outbox -> outbox.getSession().isOpen())
+          .toList();
+      FanOutExecutor.FanOutTracker tracker = fanOutExecutor.track("websocket", recipients.size());
+      recipients.forEach(outbox -> outbox.enqueue(frame, coalesceKey, tracker::recipientDone));
     }
   }
 
   private void sendMessage(WebSocketSession session, WebSocketMessage message) {
+    SessionOutbox outbox = getOutbox(session);
+    WebSocketCodec codec = outbox != null ? outbox.getCodec()
+        : WebSocketCodec.fromSubprotocol(session.getAcceptedProtocol());
+    org.springframework.web.socket.WebSocketMessage<?> frame = encodeFrame(message, codec);
+    if (frame == null) {
+      return;
+    }
+
+    if (outbox != null) {
+      outbox.enqueue(frame);
+      return;
+    }
+
     try {
       if (session.isOpen()) {
-        session.sendMessage(new TextMessage(objectMapper.writeValueAsString(message)));
+        session.sendMessage(frame);
       }
     } catch (IOException e) {
+      webSocketMetrics.recordSendFailure(WebSocketMetrics.SEND_ERROR);
       logger.error("Error sending message to WebSocket client {}: {}", session.getId(), e.getMessage());
     }
   }
 
-  @Override
-  public void afterConnectionClosed(WebSocketSession session, org.springframework.web.socket.CloseStatus status)
-      throws Exception {
-    String username = (String) session.getAttributes().get("username");
+  private SessionOutbox getOutbox(WebSocketSession session) {
     Long projectId = (Long) session.getAttributes().get("projectId");
+    if (projectId == null) {
+      return null;
+    }
+    ConcurrentHashMap<String, SessionOutbox> sessions = projectSessions.get(projectId);
+    return sessions != null ? sessions.get(session.getId()) : null;
+  }
 
-    if (username != null && projectId != null) {
-      ConcurrentHashMap<String, WebSocketSession> sessions = projectSessions.get(projectId);
-      if (sessions != null) {
-        sessions.remove(username);
-        logger.info("User {} removed from project {} sessions.", username, projectId);
-
-        if (sessions.isEmpty()) {
-          projectSessions.remove(projectId);
-          logger.info("Project {} has no more active sessions, removing from map.", projectId);
-        } else {
-          WebSocketMessage userLeftMessage = new WebSocketMessage("user_left", Map.of(
-              "username", username,
-              "activeUsers", getActiveUsers(projectId)));
+  private TextMessage encodeFrame(WebSocketMessage message) {
+    try {
+      return frameEncoder.encode(message);
+    } catch (JsonProcessingException e) {
+      logger.error("Error serializing WebSocket message of type {}: {}", message.getType(), e.getMessage());
+      return null;
+    }
+  }
 
-          broadcastToAllInProject(projectId, userLeftMessage);
-        }
-      }
+  private org.springframework.web.socket.WebSocketMessage<?> encodeFrame(WebSocketMessage message,
+      WebSocketCodec codec) {
+    try {
+      return frameEncoder.encode(message, codec);
+    } catch (JsonProcessingException e) {
+      logger.error("Error serializing WebSocket message of type {}: {}", message.getType(), e.getMessage());
+      return null;
     }
-    logger.info("WebSocket connection closed for user {} in project {}, session id: {}, reason: {}", username,
-        projectId, session.getId(), status);
+  }
+
+  @Override
+  public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+    cleanUpSession(session);
+    logger.info("WebSocket connection closed for user {} in project {}, session id: {}, reason: {}",
+        session.getAttributes().get("username"), session.getAttributes().get("projectId"), session.getId(), status);
   }
 
   @Override
   public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
     logger.error("WebSocket transport error for session {}: {}", session.getId(), exception.getMessage(), exception);
+    cleanUpSession(session);
+  }
+
+  /**
+   * Releases everything held for a session. A transport error is usually
+   * followed by the close callback, so running it twice is harmless.
+   */
+  private void cleanUpSession(WebSocketSession session) {
     String username = (String) session.getAttributes().get("username");
     Long projectId = (Long) session.getAttributes().get("projectId");
 
     if (username != null && projectId != null) {
-      ConcurrentHashMap<String, WebSocketSession> sessions = projectSessions.get(projectId);
-      if (sessions != null) {
-        sessions.remove(username, session);
-        logger.info("User {} removed from project {} sessions due to transport error.", username, projectId);
-        if (sessions.isEmpty()) {
-          projectSessions.remove(projectId);
-          logger.info("Project {} has no more active sessions after transport error, removing from map.", projectId);
-        } else {
-          WebSocketMessage userLeftMessage = new WebSocketMessage("user_left", Map.of(
-              "username", username,
-              "activeUsers", getActiveUsers(projectId)));
-          broadcastToAllInProject(projectId, userLeftMessage);
-        }
+      removeSession(session, username, projectId);
+      projectStateRegistry.leave(projectId, session.getId());
+    }
+  }
+
+  private void removeSession(WebSocketSession session, String username, Long projectId) {
+    SessionOutbox[] removed = new SessionOutbox[1];
+    boolean[] lastSession = new boolean[1];
+    // The session map is only dropped and unsubscribed while no join can add to it.
+    projectSessions.computeIfPresent(projectId, (id, sessions) -> {
+      removed[0] = sessions.remove(session.getId());
+      if (sessions.isEmpty()) {
+        realtimeBus.unsubscribeProject(id);
+        lastSession[0] = true;
+        return null;
       }
+      return sessions;
+    });
+
+    SessionOutbox outbox = removed[0];
+    if (outbox == null) {
+      return;
     }
+    outbox.close();
+    logger.info("User {} removed from project {} sessions.", username, projectId);
+
+    if (lastSession[0]) {
+      logger.info("Project {} has no more active sessions, removing from map.", projectId);
+    } else {
+      WebSocketMessage userLeftMessage = new WebSocketMessage("user_left", Map.of(
+          "username", username,
+          "activeUsers", getActiveUsers(projectId)));
+
+      broadcastLocally(projectId, userLeftMessage, PRESENCE_COALESCE_KEY);
+    }
+  }
+
+  private int getSessionCount() {
+    return projectSessions.values().stream().mapToInt(Map::size).sum();
+  }
+
+  private Map<Long, Integer> getSessionCounts() {
+    Map<Long, Integer> counts = new HashMap<>();
+    projectSessions.forEach((projectId, sessions) -> counts.put(projectId, sessions.size()));
+    return counts;
   }
 
   private List<String> getActiveUsers(Long projectId) {
-    ConcurrentHashMap<String, WebSocketSession> sessions = projectSessions.get(projectId);
+    ConcurrentHashMap<String, SessionOutbox> sessions = projectSessions.get(projectId);
     if (sessions != null) {
-      return new ArrayList<>(sessions.keySet());
+      return sessions.values().stream()
+          .map(SessionOutbox::getUsername)
+          .distinct()
+          .toList();
     }
     return Collections.emptyList();
   }
-}
\ No newline at end of file
+
+  public ProjectWebSocketStatsDto getStats(Long projectId) {
+    ConcurrentHashMap<String, SessionOutbox> sessions = projectSessions.get(projectId);
+    ProjectOutboundStats outboundStats = projectStateRegistry.get(projectId)
+        .map(ProjectState::getOutboundStats)
+        .orElseGet(ProjectOutboundStats::new);
+
+    int activeSessions = 0;
+    int queuedFrames = 0;
+    if (sessions != null) {
+      for (SessionOutbox outbox : sessions.values()) {
+        activeSessions++;
+        queuedFrames += outbox.size();
+      }
+    }
+
+    return new ProjectWebSocketStatsDto(projectId, activeSessions, queuedFrames,
+        outboundStats.getDroppedFrames(), outboundStats.getCoalescedFrames(),
+        outboundStats.getDisconnectedSessions());
+  }
+}
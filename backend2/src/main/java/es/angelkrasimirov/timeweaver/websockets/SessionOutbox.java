@@ -0,0 +1,339 @@
+package es.angelkrasimirov.timeweaver.websockets;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.ListIterator;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * Bounded queue of frames waiting to be written to one WebSocket session.
+ * Frames are written by a single writer task at a time, so a slow client only
+ * delays its own messages. The task gives its thread back after
+ * {@code maxWritesPerTask} frames and is submitted again if more are queued.
+ *
+ * When the queue is full the {@link SlowConsumerPolicy} decides what to do,
+ * but only with frames that can be lost without harm: presence updates and
+ * other broadcasts outside the op log. Sequenced operations are never dropped
+ * or reordered, since the client could not tell it missed one; when one does
+ * not fit the session is closed with {@link CloseStatus#SESSION_NOT_RELIABLE}
+ * and the client reconnects for a fresh snapshot. Replies to the session are
+ * never dropped either, but only {@code capacity} of them may be queued at
+ * once.
+ */
+public class SessionOutbox {
+
+  private static final Logger logger = LoggerFactory.getLogger(SessionOutbox.class);
+
+  private final WebSocketSession session;
+  private final String username;
+  private final WebSocketCodec codec;
+  private final int capacity;
+  private final SlowConsumerPolicy policy;
+  private final ProjectOutboundStats stats;
+  private final WebSocketMetrics metrics;
+  private final Executor writerExecutor;
+  private final int maxWritesPerTask;
+
+  private final LinkedList<OutboundFrame> queue = new LinkedList<>();
+  private int pinnedFrames = 0;
+  private long lastSeq = 0;
+  private boolean draining = false;
+  private boolean closed = false;
+  private volatile SessionViewport viewport;
+
+  /**
+   * A queued frame. Pinned frames are replies to this session and sequenced
+   * frames are operations from the op log; neither may be dropped.
+   */
+  private record OutboundFrame(SharedFrame frame, String coalesceKey, Runnable onDone,
+      Iterator<? extends WebSocketMessage<?>> stream, boolean pinned, boolean sequenced) {
+
+    boolean droppable() {
+      return !pinned && !sequenced;
+    }
+
+    void done() {
+      if (onDone != null) {
+        onDone.run();
+      }
+    }
+  }
+
+  public SessionOutbox(WebSocketSession session, String username, WebSocketCodec codec, int capacity,
+      SlowConsumerPolicy policy, ProjectOutboundStats stats, WebSocketMetrics metrics, Executor writerExecutor,
+      int maxWritesPerTask) {
+    this.session = session;
+    this.username = username;
+    this.codec = codec;
+    this.capacity = capacity;
+    this.policy = policy;
+    this.stats = stats;
+    this.metrics = metrics;
+    this.writerExecutor = writerExecutor;
+    this.maxWritesPerTask = Math.max(1, maxWritesPerTask);
+  }
+
+  public WebSocketSession getSession() {
+    return session;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public WebSocketCodec getCodec() {
+    return codec;
+  }
+
+  /**
+   * The declared viewport of the session, or {@code null} when it receives
+   * every event of the project.
+   */
+  public SessionViewport getViewport() {
+    return viewport;
+  }
+
+  public void setViewport(SessionViewport viewport) {
+    this.viewport = viewport;
+  }
+
+  /**
+   * Queues a frame already encoded for this session's codec. These are the
+   * replies sent to this session alone (the connection snapshot, acks,
+   * errors), so they are never dropped to make room for newer frames.
+   */
+  public void enqueue(WebSocketMessage<?> frame) {
+    offer(new OutboundFrame(SharedFrame.encoded(codec, frame), null, null, null, true, false));
+  }
+
+  /**
+   * Queues a broadcast that is not part of the op log. Frames sharing a
+   * non-null coalesce key describe the same thing, so when the queue is full
+   * under {@link SlowConsumerPolicy#COALESCE} a newer frame takes the place of
+   * the queued one. {@code onDone} runs once the frame has been written,
+   * dropped or superseded.
+   */
+  public void enqueue(SharedFrame frame, String coalesceKey, Runnable onDone) {
+    offer(new OutboundFrame(frame, coalesceKey, onDone, null, false, false));
+  }
+
+  /**
+   * Queues an operation carrying a sequence number of the project's op log.
+   * It is written in order with the other operations or, if it does not fit,
+   * the session is closed.
+   */
+  public void enqueueOperation(SharedFrame frame, Runnable onDone) {
+    offer(new OutboundFrame(frame, null, onDone, null, false, true));
+  }
+
+  /**
+   * Records {@code seq} as the last operation accounted for in this session,
+   * whether it was queued or filtered out, and returns the previous one.
+   */
+  public synchronized long advanceSequence(long seq) {
+    long previousSeq = lastSeq;
+    lastSeq = seq;
+    return previousSeq;
+  }
+
+  /**
+   * Queues a sequence of frames that is produced while it is being written,
+   * so only the frame being sent is held in memory. The whole stream takes
+   * one slot of the queue and frames queued after it wait until it ends. Like
+   * direct replies, a stream is never dropped to make room for newer frames.
+   */
+  public void enqueueStream(Iterator<? extends WebSocketMessage<?>> frames) {
+    offer(new OutboundFrame(null, null, null, frames, true, false));
+  }
+
+  private void offer(OutboundFrame outboundFrame) {
+    boolean startWriter = false;
+    boolean disconnect = false;
+
+    synchronized (this) {
+      if (closed) {
+        outboundFrame.done();
+        return;
+      }
+
+      if (outboundFrame.pinned()) {
+        disconnect = pinnedFrames >= capacity;
+      } else if (queue.size() >= capacity) {
+        if (policy == SlowConsumerPolicy.COALESCE && replaceQueued(outboundFrame)) {
+          stats.recordCoalesced();
+          return;
+        }
+        if (policy == SlowConsumerPolicy.DISCONNECT) {
+          disconnect = true;
+        } else if (!dropOldest()) {
+          if (outboundFrame.droppable()) {
+            recordDropped(outboundFrame);
+            return;
+          }
+          disconnect = true;
+        }
+      }
+
+      if (disconnect) {
+        outboundFrame.done();
+        clear();
+      } else {
+        queue.addLast(outboundFrame);
+        if (outboundFrame.pinned()) {
+          pinnedFrames++;
+        }
+        if (!draining) {
+          draining = true;
+          startWriter = true;
+        }
+      }
+    }
+
+    if (disconnect) {
+      disconnectSlowConsumer();
+    } else if (startWriter) {
+      writerExecutor.execute(this::drain);
+    }
+  }
+
+  public synchronized int size() {
+    return queue.size();
+  }
+
+  public synchronized void close() {
+    clear();
+  }
+
+  private void clear() {
+    closed = true;
+    pinnedFrames = 0;
+    OutboundFrame queued;
+    while ((queued = queue.pollFirst()) != null) {
+      queued.done();
+    }
+  }
+
+  /**
+   * Drops the oldest queued frame that may be dropped.
+   *
+   * @return whether a frame was dropped
+   */
+  private boolean dropOldest() {
+    Iterator<OutboundFrame> iterator = queue.iterator();
+    while (iterator.hasNext()) {
+      OutboundFrame queued = iterator.next();
+      if (queued.droppable()) {
+        iterator.remove();
+        recordDropped(queued);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void recordDropped(OutboundFrame dropped) {
+    dropped.done();
+    stats.recordDropped();
+    metrics.recordSendFailure(WebSocketMetrics.SEND_DROPPED);
+  }
+
+  /**
+   * Puts a droppable frame in the place of the newest queued frame with the
+   * same coalesce key, so it is written where the one it supersedes would
+   * have been.
+   */
+  private boolean replaceQueued(OutboundFrame outboundFrame) {
+    if (outboundFrame.coalesceKey() == null || !outboundFrame.droppable()) {
+      return false;
+    }
+    ListIterator<OutboundFrame> iterator = queue.listIterator(queue.size());
+    while (iterator.hasPrevious()) {
+      OutboundFrame queued = iterator.previous();
+      if (queued.droppable() && Objects.equals(queued.coalesceKey(), outboundFrame.coalesceKey())) {
+        iterator.set(outboundFrame);
+        queued.done();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void drain() {
+    int written = 0;
+    while (written < maxWritesPerTask) {
+      OutboundFrame next;
+      synchronized (this) {
+        next = queue.peekFirst();
+        if (next == null) {
+          draining = false;
+          return;
+        }
+        // A stream stays at the head until it ends, so it can be resumed by the next task.
+        if (next.stream() == null) {
+          poll(next);
+        }
+      }
+
+      boolean finished = true;
+      try {
+        if (next.stream() != null) {
+          while (session.isOpen() && next.stream().hasNext()) {
+            if (written >= maxWritesPerTask) {
+              finished = false;
+              break;
+            }
+            session.sendMessage(next.stream().next());
+            written++;
+          }
+        } else {
+          if (session.isOpen()) {
+            session.sendMessage(next.frame().forCodec(codec));
+          }
+          written++;
+        }
+      } catch (IOException | RuntimeException e) {
+        metrics.recordSendFailure(WebSocketMetrics.SEND_ERROR);
+        logger.error("Error sending message to WebSocket client {}: {}", session.getId(), e.getMessage());
+      }
+
+      if (finished) {
+        if (next.stream() != null) {
+          synchronized (this) {
+            if (queue.peekFirst() == next) {
+              poll(next);
+            }
+          }
+        }
+        next.done();
+      }
+    }
+    writerExecutor.execute(this::drain);
+  }
+
+  private void poll(OutboundFrame head) {
+    queue.pollFirst();
+    if (head.pinned()) {
+      pinnedFrames--;
+    }
+  }
+
+  private void disconnectSlowConsumer() {
+    stats.recordDisconnected();
+    metrics.recordSendFailure(WebSocketMetrics.SEND_SLOW_CONSUMER);
+    logger.warn("Outbound queue full for user {} (session {}), disconnecting slow consumer to resync", username,
+        session.getId());
+    try {
+      session.close(CloseStatus.SESSION_NOT_RELIABLE);
+    } catch (IOException e) {
+      logger.error("Error closing slow WebSocket session {}: {}", session.getId(), e.getMessage());
+    }
+  }
+}
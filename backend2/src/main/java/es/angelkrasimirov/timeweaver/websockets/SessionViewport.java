@@ -0,0 +1,86 @@
+package es.angelkrasimirov.timeweaver.websockets;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Visible time window (and optionally groups) declared by a session, plus
+ * the ids of the events the client currently holds. Operations on events the
+ * client neither holds nor can see are not sent to it.
+ *
+ * Deliveries are decided while the project's op log is locked, so the known
+ * ids always match the frames queued for the session.
+ */
+public class SessionViewport {
+
+  public enum Delivery {
+    SKIP,
+    FORWARD,
+    /** The client does not hold the event, so a delta is not enough. */
+    FORWARD_FULL
+  }
+
+  private final long start;
+  private final long end;
+  private final Set<String> groups;
+  private final Set<String> knownEventIds = ConcurrentHashMap.newKeySet();
+
+  public SessionViewport(long start, long end, Set<String> groups) {
+    this.start = start;
+    this.end = end;
+    this.groups = groups != null && !groups.isEmpty() ? Set.copyOf(groups) : null;
+  }
+
+  public long getStart() {
+    return start;
+  }
+
+  public long getEnd() {
+    return end;
+  }
+
+  /**
+   * Events whose time cannot be parsed are always visible, so a filter never
+   * hides them for good. Events without a group pass the group filter but are
+   * still limited to the time window.
+   */
+  public boolean isVisible(EventInterval interval) {
+    if (interval == null) {
+      return true;
+    }
+    if (groups != null && interval.group() != null && !groups.contains(interval.group())) {
+      return false;
+    }
+    return interval.overlaps(start, end);
+  }
+
+  public boolean isKnown(String eventId) {
+    return knownEventIds.contains(eventId);
+  }
+
+  public void markKnown(String eventId) {
+    knownEventIds.add(eventId);
+  }
+
+  public boolean forget(String eventId) {
+    return knownEventIds.remove(eventId);
+  }
+
+  public Set<String> getKnownEventIds() {
+    return knownEventIds;
+  }
+
+  public Delivery deliveryFor(String type, String eventId, EventInterval interval) {
+    if ("delete".equals(type)) {
+      return forget(eventId) ? Delivery.FORWARD : Delivery.SKIP;
+    }
+    if (isKnown(eventId)) {
+      return Delivery.FORWARD;
+    }
+    if (!isVisible(interval)) {
+      return Delivery.SKIP;
+    }
+    markKnown(eventId);
+    return "patch".equals(type) ? Delivery.FORWARD_FULL : Delivery.FORWARD;
+  }
+}
@@ -0,0 +1,49 @@
+package es.angelkrasimirov.timeweaver.websockets;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiFunction;
+
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+/**
+ * One broadcast message shared by every recipient. The JSON text is the
+ * source of truth; the frame of each codec is encoded the first time a
+ * session of that codec needs it, and then reused for the rest of the
+ * fan-out.
+ */
+public final class SharedFrame {
+
+  private static final WebSocketCodec[] CODECS = WebSocketCodec.values();
+
+  private final String json;
+  private final BiFunction<String, WebSocketCodec, WebSocketMessage<?>> binaryEncoder;
+  private final AtomicReferenceArray<WebSocketMessage<?>> frames = new AtomicReferenceArray<>(CODECS.length);
+
+  SharedFrame(String json, BiFunction<String, WebSocketCodec, WebSocketMessage<?>> binaryEncoder) {
+    this.json = json;
+    this.binaryEncoder = binaryEncoder;
+  }
+
+  /**
+   * Wraps a frame that was already encoded for the codec of its only
+   * recipient.
+   */
+  public static SharedFrame encoded(WebSocketCodec codec, WebSocketMessage<?> frame) {
+    SharedFrame sharedFrame = new SharedFrame(null, null);
+    sharedFrame.frames.set(codec.ordinal(), frame);
+    return sharedFrame;
+  }
+
+  public WebSocketMessage<?> forCodec(WebSocketCodec codec) {
+    WebSocketMessage<?> frame = frames.get(codec.ordinal());
+    if (frame == null) {
+      if (json == null) {
+        throw new IllegalStateException("Frame was not encoded for " + codec);
+      }
+      frame = codec.isBinary() ? binaryEncoder.apply(json, codec) : new TextMessage(json);
+      frames.set(codec.ordinal(), frame);
+    }
+    return frame;
+  }
+}
@@ -0,0 +1,7 @@
+package es.angelkrasimirov.timeweaver.websockets;
+
+public enum SlowConsumerPolicy {
+  DROP_OLDEST,
+  COALESCE,
+  DISCONNECT;
+}
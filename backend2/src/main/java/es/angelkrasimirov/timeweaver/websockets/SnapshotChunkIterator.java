@@ -0,0 +1,87 @@
+package es.angelkrasimirov.timeweaver.websockets;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.LongConsumer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import es.angelkrasimirov.timeweaver.dtos.WebSocketMessage;
+
+/**
+ * Produces the chunked snapshot of a project one frame at a time: a
+ * {@code snapshot_chunk} frame per {@code chunkSize} events followed by a
+ * {@code snapshot_end} terminator. Events are read from the live project
+ * state while the frames are written; operations applied in the meantime are
+ * queued behind the snapshot and replayed on top of it. The total size of
+ * the frames is reported to {@code onComplete} once the terminator is built.
+ */
+public class SnapshotChunkIterator implements Iterator<org.springframework.web.socket.WebSocketMessage<?>> {
+
+  private final Long projectId;
+  private final Iterator<Map<String, Object>> events;
+  private final int chunkSize;
+  private final WebSocketCodec codec;
+  private final WebSocketFrameEncoder frameEncoder;
+  private final LongConsumer onComplete;
+  private int chunks = 0;
+  private long size = 0;
+  private int eventCount = 0;
+  private boolean ended = false;
+
+  public SnapshotChunkIterator(Long projectId, Iterator<Map<String, Object>> events, int chunkSize,
+      WebSocketCodec codec, WebSocketFrameEncoder frameEncoder, LongConsumer onComplete) {
+    this.projectId = projectId;
+    this.events = events;
+    this.chunkSize = chunkSize;
+    this.codec = codec;
+    this.frameEncoder = frameEncoder;
+    this.onComplete = onComplete;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return !ended;
+  }
+
+  @Override
+  public org.springframework.web.socket.WebSocketMessage<?> next() {
+    if (ended) {
+      throw new NoSuchElementException();
+    }
+
+    if (!events.hasNext()) {
+      ended = true;
+      org.springframework.web.socket.WebSocketMessage<?> end = encode(new WebSocketMessage("snapshot_end", Map.of(
+          "projectId", projectId,
+          "chunks", chunks,
+          "eventCount", eventCount)));
+      onComplete.accept(size);
+      return end;
+    }
+
+    List<Map<String, Object>> chunk = new ArrayList<>(chunkSize);
+    while (chunk.size() < chunkSize && events.hasNext()) {
+      chunk.add(events.next());
+    }
+    eventCount += chunk.size();
+    return encode(new WebSocketMessage("snapshot_chunk", Map.of(
+        "projectId", projectId,
+        "index", chunks++,
+        "events", chunk)));
+  }
+
+  private org.springframework.web.socket.WebSocketMessage<?> encode(WebSocketMessage message) {
+    try {
+      org.springframework.web.socket.WebSocketMessage<?> frame = frameEncoder.encode(message, codec);
+      size += WebSocketMetrics.frameSize(frame);
+      return frame;
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package es.angelkrasimirov.timeweaver.websockets;
+
+/**
+ * Wire format of a WebSocket session, negotiated through the
+ * {@code Sec-WebSocket-Protocol} header. Sessions that do not ask for a
+ * subprotocol keep using JSON text frames; CBOR and Smile use binary frames
+ * with the same message structure.
+ */
+public enum WebSocketCodec {
+  JSON("timeweaver.json"),
+  CBOR("timeweaver.cbor"),
+  SMILE("timeweaver.smile");
+
+  private final String subprotocol;
+
+  WebSocketCodec(String subprotocol) {
+    this.subprotocol = subprotocol;
+  }
+
+  public String getSubprotocol() {
+    return subprotocol;
+  }
+
+  public boolean isBinary() {
+    return this != JSON;
+  }
+
+  public static WebSocketCodec fromSubprotocol(String subprotocol) {
+    for (WebSocketCodec codec : values()) {
+      if (codec.subprotocol.equals(subprotocol)) {
+        return codec;
+      }
+    }
+    return JSON;
+  }
+}
@@ -0,0 +1,121 @@
+package es.angelkrasimirov.timeweaver.websockets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+import es.angelkrasimirov.timeweaver.dtos.WebSocketMessage;
+
+/**
+ * Encodes outgoing messages into frames and decodes incoming binary frames. A
+ * frame is immutable, so a broadcast encodes its message once per codec and
+ * hands the same frame to every recipient.
+ */
+@Component
+public class WebSocketFrameEncoder {
+
+  private static final TypeReference<Map<String, Object>> MESSAGE_TYPE = new TypeReference<>() {
+  };
+
+  private final ObjectMapper objectMapper;
+  private final Map<WebSocketCodec, ObjectMapper> binaryMappers = new EnumMap<>(WebSocketCodec.class);
+
+  public WebSocketFrameEncoder(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+    // Copies keep the modules and features of the JSON mapper, so every codec
+    // writes the same fields and dates in the same shape.
+    binaryMappers.put(WebSocketCodec.CBOR, objectMapper.copyWith(new CBORFactory()));
+    binaryMappers.put(WebSocketCodec.SMILE, objectMapper.copyWith(SmileFactory.builder()
+        .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+        .build()));
+  }
+
+  public TextMessage encode(WebSocketMessage message) throws JsonProcessingException {
+    return new TextMessage(objectMapper.writeValueAsString(message));
+  }
+
+  public org.springframework.web.socket.WebSocketMessage<?> encode(WebSocketMessage message, WebSocketCodec codec)
+      throws JsonProcessingException {
+    if (codec.isBinary()) {
+      return new BinaryMessage(binaryMappers.get(codec).writeValueAsBytes(message));
+    }
+    return encode(message);
+  }
+
+  /**
+   * Encodes a client operation for broadcast, writing its body verbatim from
+   * the raw JSON the client sent instead of serializing a tree.
+   */
+  public TextMessage encodeOperation(String type, String rawData, String username) throws IOException {
+    StringWriter writer = new StringWriter(rawData.length() + 96);
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)) {
+      generator.writeStartObject();
+      generator.writeStringField("type", type);
+      generator.writeObjectFieldStart("data");
+      generator.writeFieldName("data");
+      generator.writeRawValue(rawData);
+      generator.writeStringField("username", username);
+      generator.writeNumberField("timestamp", System.currentTimeMillis());
+      generator.writeEndObject();
+      generator.writeEndObject();
+    }
+    return new TextMessage(writer.toString());
+  }
+
+  /**
+   * Wraps an encoded JSON frame so it can be delivered to sessions of any
+   * codec.
+   */
+  public SharedFrame share(String json) {
+    return new SharedFrame(json, this::transcode);
+  }
+
+  public SharedFrame share(TextMessage frame) {
+    return share(frame.getPayload());
+  }
+
+  public Map<String, Object> decode(BinaryMessage message, WebSocketCodec codec) throws IOException {
+    ObjectMapper mapper = binaryMappers.get(codec);
+    if (mapper == null) {
+      throw new IOException("Binary frames are not supported by the " + codec + " codec");
+    }
+
+    ByteBuffer payload = message.getPayload();
+    if (payload.hasArray()) {
+      return mapper.readValue(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining(),
+          MESSAGE_TYPE);
+    }
+    byte[] bytes = new byte[payload.remaining()];
+    payload.duplicate().get(bytes);
+    return mapper.readValue(bytes, MESSAGE_TYPE);
+  }
+
+  private BinaryMessage transcode(String json, WebSocketCodec codec) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream(json.length());
+    try (JsonParser parser = objectMapper.getFactory().createParser(json);
+        JsonGenerator generator = binaryMappers.get(codec).getFactory().createGenerator(output)) {
+      parser.nextToken();
+      generator.copyCurrentStructure(parser);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return new BinaryMessage(output.toByteArray());
+  }
+}
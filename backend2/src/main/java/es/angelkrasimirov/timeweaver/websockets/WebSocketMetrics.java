@@ -0,0 +1,175 @@
+package es.angelkrasimirov.timeweaver.websockets;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Micrometer meters of the project WebSocket endpoint. Message types are
+ * limited to the known ones so clients cannot create new time series.
+ */
+@Component
+public class WebSocketMetrics {
+
+  private static final Logger logger = LoggerFactory.getLogger(WebSocketMetrics.class);
+  private static final long TOP_PROJECTS_REFRESH_SECONDS = 10;
+
+  public static final String SEND_ERROR = "error";
+  public static final String SEND_DROPPED = "dropped";
+  public static final String SEND_SLOW_CONSUMER = "slow_consumer";
+
+  private static final Set<String> MESSAGE_TYPES = Set.of("add", "update", "patch", "delete", "batch", "viewport");
+  private static final Set<String> TIMED_OPERATIONS = Set.of("add", "update", "patch", "delete", "batch");
+
+  private final MeterRegistry registry;
+  private final int topProjects;
+  private ScheduledExecutorService topProjectsRefresher;
+  private final ConcurrentHashMap<String, Counter> inboundMessages = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Timer> operationTimers = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Counter> sendFailures = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, DistributionSummary> snapshotSizes = new ConcurrentHashMap<>();
+
+  public WebSocketMetrics(MeterRegistry registry,
+      @Value("${app.metrics.websocket.top-projects:10}") int topProjects) {
+    this.registry = registry;
+    this.topProjects = topProjects;
+  }
+
+  public void recordInbound(String type) {
+    String tag = type != null && MESSAGE_TYPES.contains(type) ? type : "other";
+    inboundMessages.computeIfAbsent(tag, key -> Counter.builder("timeweaver.websocket.messages.inbound")
+        .description("Operations received from WebSocket clients")
+        .tag("type", key)
+        .register(registry))
+        .increment();
+  }
+
+  /**
+   * Records the time from receiving a timeline operation until it was applied,
+   * persisted (or buffered) and handed to the broadcast, including the wait
+   * behind earlier operations of the same project.
+   */
+  public void recordOperation(String type, long nanos) {
+    if (type == null || !TIMED_OPERATIONS.contains(type)) {
+      return;
+    }
+    operationTimers.computeIfAbsent(type, key -> Timer.builder("timeweaver.websocket.operation.duration")
+        .description("Time to handle a timeline operation from receipt to broadcast")
+        .tag("type", key)
+        .publishPercentileHistogram()
+        .minimumExpectedValue(Duration.ofNanos(100_000))
+        .maximumExpectedValue(Duration.ofSeconds(10))
+        .register(registry))
+        .record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  public void recordSendFailure(String reason) {
+    sendFailures.computeIfAbsent(reason, key -> Counter.builder("timeweaver.websocket.send.failures")
+        .description("Frames that could not be delivered to a WebSocket session")
+        .tag("reason", key)
+        .register(registry))
+        .increment();
+  }
+
+  /**
+   * Records the size of the initial snapshot sent to a session. JSON frames are
+   * measured in characters, which matches their size in bytes for ASCII
+   * content without encoding them again.
+   */
+  public void recordSnapshot(WebSocketCodec codec, String mode, long size) {
+    snapshotSizes.computeIfAbsent(codec.name() + ":" + mode,
+        key -> DistributionSummary.builder("timeweaver.websocket.snapshot.size")
+            .description("Size of the initial project snapshot sent to a session")
+            .baseUnit("bytes")
+            .tag("codec", codec.name().toLowerCase())
+            .tag("mode", mode)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(1024.0)
+            .maximumExpectedValue(64.0 * 1024 * 1024)
+            .register(registry))
+        .record(size);
+  }
+
+  public static long frameSize(WebSocketMessage<?> frame) {
+    return frame instanceof TextMessage textFrame
+        ? textFrame.getPayload().length()
+        : frame.getPayloadLength();
+  }
+
+  /**
+   * Publishes the open sessions and the projects that have any as totals;
+   * project ids are not exposed as tags.
+   */
+  public void registerSessions(Supplier<Number> activeSessions, Supplier<Number> activeProjects) {
+    Gauge.builder("timeweaver.websocket.sessions", activeSessions)
+        .description("Open WebSocket sessions")
+        .strongReference(true)
+        .register(registry);
+    Gauge.builder("timeweaver.websocket.projects", activeProjects)
+        .description("Projects with open WebSocket sessions")
+        .strongReference(true)
+        .register(registry);
+  }
+
+  /**
+   * Publishes the open sessions of the {@code top-projects} projects that
+   * have the most, tagged by project id and refreshed every few seconds. The
+   * limit keeps the number of time series from growing with the projects; 0
+   * turns the gauge off.
+   */
+  public synchronized void registerTopProjects(Supplier<Map<Long, Integer>> sessionsByProject) {
+    if (topProjects <= 0 || topProjectsRefresher != null) {
+      return;
+    }
+    MultiGauge gauge = MultiGauge.builder("timeweaver.websocket.project.sessions")
+        .description("Open WebSocket sessions of the projects with the most")
+        .register(registry);
+    topProjectsRefresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "websocket-top-projects");
+      thread.setDaemon(true);
+      return thread;
+    });
+    topProjectsRefresher.scheduleWithFixedDelay(() -> {
+      try {
+        List<MultiGauge.Row<?>> rows = sessionsByProject.get().entrySet().stream()
+            .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed())
+            .limit(topProjects)
+            .<MultiGauge.Row<?>>map(entry -> MultiGauge.Row.of(Tags.of("project", String.valueOf(entry.getKey())),
+                entry.getValue()))
+            .toList();
+        gauge.register(rows, true);
+      } catch (RuntimeException e) {
+        logger.error("Error refreshing the sessions of the top projects: {}", e.getMessage(), e);
+      }
+    }, 0, TOP_PROJECTS_REFRESH_SECONDS, TimeUnit.SECONDS);
+  }
+
+  @PreDestroy
+  public synchronized void shutdown() {
+    if (topProjectsRefresher != null) {
+      topProjectsRefresher.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,310 @@
+package es.angelkrasimirov.timeweaver.config.initializers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import es.angelkrasimirov.timeweaver.websockets.EventInterval;
+
+/**
+ * Checks the arithmetic of the generated time columns. The expression is MySQL
+ * specific (booleans used as numbers, decimal division), so it is evaluated
+ * here with those semantics instead of on an embedded database.
+ */
+class EventSchemaInitializerTest {
+
+  /** Range of JavaScript dates, about 273,790 years either side of 1970. */
+  private static final long MAX_JS_MILLIS = 8_640_000_000_000_000L;
+
+  private static final String ISO_PATTERN = constant("ISO_PATTERN");
+  private static final String ISO_MILLIS = constant("ISO_MILLIS");
+
+  @Test
+  void readsCanonicalInstants() {
+    assertThat(isoMillis("1970-01-01T00:00:00.000Z")).isZero();
+    assertThat(isoMillis("1969-12-31T23:59:59.999Z")).isEqualTo(-1);
+    assertThat(isoMillis("2000-03-01T00:00:00.000Z")).isEqualTo(951_868_800_000L);
+    assertThat(isoMillis("2024-02-29T12:34:56.789Z"))
+        .isEqualTo(Instant.parse("2024-02-29T12:34:56.789Z").toEpochMilli());
+  }
+
+  @Test
+  void readsInstantsWithoutMillisAndPlainDates() {
+    assertThat(isoMillis("2024-05-14T10:30:15Z")).isEqualTo(Instant.parse("2024-05-14T10:30:15Z").toEpochMilli());
+    assertThat(isoMillis("1453-05-29")).isEqualTo(EventInterval.parseTime("1453-05-29"));
+    assertThat(isoMillis("0000-01-01")).isEqualTo(EventInterval.parseTime("0000-01-01"));
+  }
+
+  @Test
+  void readsExpandedAndNegativeYears() {
+    assertThat(isoMillis("-000044-03-15T00:00:00.000Z"))
+        .isEqualTo(Instant.parse("-000044-03-15T00:00:00.000Z").toEpochMilli());
+    assertThat(isoMillis("-000001-12-31T23:59:59.999Z"))
+        .isEqualTo(Instant.parse("-000001-12-31T23:59:59.999Z").toEpochMilli());
+    assertThat(isoMillis("+010000-01-01T00:00:00.000Z"))
+        .isEqualTo(Instant.parse("+10000-01-01T00:00:00Z").toEpochMilli());
+    assertThat(isoMillis("-271821-04-20T00:00:00.000Z")).isEqualTo(-MAX_JS_MILLIS);
+    assertThat(isoMillis("+275760-09-13T00:00:00.000Z")).isEqualTo(MAX_JS_MILLIS);
+    assertThat(isoMillis("-004713-11-24")).isEqualTo(EventInterval.parseTime("-004713-11-24"));
+  }
+
+  @Test
+  void handlesLeapDaysAndCenturies() {
+    for (String date : List.of("1900-02-28", "1900-03-01", "2000-02-29", "2100-03-01", "-000400-02-29",
+        "-000100-03-01", "0004-02-29")) {
+      assertThat(isoMillis(date)).as(date).isEqualTo(EventInterval.parseTime(date));
+    }
+  }
+
+  @Test
+  void matchesJavaTimeOverTheWholeJavaScriptRange() {
+    Random random = new Random(7);
+    for (int i = 0; i < 2_000; i++) {
+      long millis = random.nextLong(-MAX_JS_MILLIS, MAX_JS_MILLIS + 1);
+      String iso = toJavaScriptIso(millis);
+
+      assertThat(iso).matches(ISO_PATTERN);
+      assertThat(isoMillis(iso)).as(iso).isEqualTo(millis);
+    }
+  }
+
+  @Test
+  void patternOnlyAcceptsTheCanonicalForms() {
+    for (String valid : List.of("2024-05-14", "2024-05-14T10:30:15Z", "2024-05-14T10:30:15.123Z",
+        "-000044-03-15T00:00:00.000Z", "+010000-01-01")) {
+      assertThat(valid).matches(ISO_PATTERN);
+    }
+    for (String invalid : List.of("2024-5-14", "2024-05-14T10:30Z", "2024-05-14T10:30:15+02:00",
+        "2024-05-14T10:30:15.1Z", "-0044-03-15", "10000-01-01", "1715682615000")) {
+      assertThat(invalid).doesNotMatch(ISO_PATTERN);
+    }
+  }
+
+  private static String constant(String name) {
+    return (String) ReflectionTestUtils.getField(EventSchemaInitializer.class, name);
+  }
+
+  /** Formats like {@code Date.prototype.toISOString()}. */
+  private static String toJavaScriptIso(long millis) {
+    ZonedDateTime time = Instant.ofEpochMilli(millis).atZone(ZoneOffset.UTC);
+    int year = time.getYear();
+    String yearText = year >= 0 && year <= 9999 ? "%04d".formatted(year)
+        : (year < 0 ? "-" : "+") + "%06d".formatted(Math.abs(year));
+    return "%s-%02d-%02dT%02d:%02d:%02d.%03dZ".formatted(yearText, time.getMonthValue(), time.getDayOfMonth(),
+        time.getHour(), time.getMinute(), time.getSecond(), time.getNano() / 1_000_000);
+  }
+
+  private static long isoMillis(String iso) {
+    String sql = ISO_MILLIS.replace("{s}", "'" + iso + "'");
+    return new MySqlExpression(sql).evaluate().longValueExact();
+  }
+
+  /**
+   * Evaluates the subset of MySQL expressions the generated columns use, with
+   * MySQL semantics: comparisons yield 1 or 0, {@code /} is exact decimal
+   * division and {@code FLOOR} rounds towards negative infinity.
+   */
+  private static final class MySqlExpression {
+
+    private static final Pattern TOKEN = Pattern.compile(
+        "\\s*(?:(\\d+)|'([^']*)'|([A-Za-z_]+)|(<=|>=|<>|[-+*/(),<>=]))");
+
+    private final List<String> tokens = new ArrayList<>();
+    private int position;
+
+    MySqlExpression(String sql) {
+      Matcher matcher = TOKEN.matcher(sql);
+      int end = 0;
+      while (matcher.lookingAt()) {
+        if (matcher.group(1) != null) {
+          tokens.add(matcher.group(1));
+        } else if (matcher.group(2) != null) {
+          tokens.add("'" + matcher.group(2));
+        } else if (matcher.group(3) != null) {
+          tokens.add(matcher.group(3).toUpperCase());
+        } else {
+          tokens.add(matcher.group(4));
+        }
+        end = matcher.end();
+        matcher.region(end, sql.length());
+      }
+      if (!sql.substring(end).isBlank()) {
+        throw new IllegalArgumentException("Unexpected SQL at: " + sql.substring(end));
+      }
+    }
+
+    BigDecimal evaluate() {
+      Object value = comparison();
+      if (position != tokens.size()) {
+        throw new IllegalStateException("Unparsed SQL from token " + tokens.get(position));
+      }
+      return number(value);
+    }
+
+    private Object comparison() {
+      Object left = additive();
+      String operator = peek();
+      if ("IN".equals(operator)) {
+        next();
+        expect("(");
+        boolean found = false;
+        do {
+          found |= compare(left, comparison()) == 0;
+        } while (accept(","));
+        expect(")");
+        return bool(found);
+      }
+      if (operator != null && List.of("<=", ">=", "<", ">", "=", "<>").contains(operator)) {
+        next();
+        int comparison = compare(left, additive());
+        return bool(switch (operator) {
+          case "<=" -> comparison <= 0;
+          case ">=" -> comparison >= 0;
+          case "<" -> comparison < 0;
+          case ">" -> comparison > 0;
+          case "=" -> comparison == 0;
+          default -> comparison != 0;
+        });
+      }
+      return left;
+    }
+
+    private Object additive() {
+      Object value = multiplicative();
+      while ("+".equals(peek()) || "-".equals(peek())) {
+        String operator = next();
+        BigDecimal right = number(multiplicative());
+        value = "+".equals(operator) ? number(value).add(right) : number(value).subtract(right);
+      }
+      return value;
+    }
+
+    private Object multiplicative() {
+      Object value = unary();
+      while ("*".equals(peek()) || "/".equals(peek())) {
+        String operator = next();
+        BigDecimal right = number(unary());
+        value = "*".equals(operator) ? number(value).multiply(right)
+            : number(value).divide(right, MathContext.DECIMAL128);
+      }
+      return value;
+    }
+
+    private Object unary() {
+      if (accept("-")) {
+        return number(unary()).negate();
+      }
+      return primary();
+    }
+
+    private Object primary() {
+      String token = next();
+      if (token.equals("(")) {
+        Object value = comparison();
+        expect(")");
+        return value;
+      }
+      if (token.startsWith("'")) {
+        return token.substring(1);
+      }
+      if (Character.isDigit(token.charAt(0))) {
+        return new BigDecimal(token);
+      }
+
+      expect("(");
+      Object result = switch (token) {
+        case "IF" -> {
+          boolean condition = number(comparison()).signum() != 0;
+          expect(",");
+          Object whenTrue = comparison();
+          expect(",");
+          Object whenFalse = comparison();
+          yield condition ? whenTrue : whenFalse;
+        }
+        case "LEFT" -> {
+          String text = text(comparison());
+          expect(",");
+          yield text.substring(0, Math.min(text.length(), number(comparison()).intValueExact()));
+        }
+        case "SUBSTRING" -> {
+          String text = text(comparison());
+          expect(",");
+          int start = number(comparison()).intValueExact() - 1;
+          expect(",");
+          int length = number(comparison()).intValueExact();
+          // Both branches of an IF are evaluated, so this may run past the end.
+          yield start < text.length() ? text.substring(start, Math.min(text.length(), start + length)) : "";
+        }
+        case "LENGTH" -> new BigDecimal(text(comparison()).length());
+        case "FLOOR" -> number(comparison()).setScale(0, RoundingMode.FLOOR);
+        case "CAST" -> {
+          Object value = comparison();
+          expect("AS");
+          expect("SIGNED");
+          yield number(value).setScale(0, RoundingMode.HALF_UP);
+        }
+        default -> throw new IllegalStateException("Unsupported function " + token);
+      };
+      expect(")");
+      return result;
+    }
+
+    private static int compare(Object left, Object right) {
+      if (left instanceof String leftText && right instanceof String rightText) {
+        return leftText.compareTo(rightText);
+      }
+      return number(left).compareTo(number(right));
+    }
+
+    private static BigDecimal bool(boolean value) {
+      return value ? BigDecimal.ONE : BigDecimal.ZERO;
+    }
+
+    private static BigDecimal number(Object value) {
+      if (value instanceof BigDecimal number) {
+        return number;
+      }
+      String text = ((String) value).trim();
+      return text.isEmpty() ? BigDecimal.ZERO : new BigDecimal(text);
+    }
+
+    private static String text(Object value) {
+      return value instanceof String text ? text : ((BigDecimal) value).toPlainString();
+    }
+
+    private String peek() {
+      return position < tokens.size() ? tokens.get(position) : null;
+    }
+
+    private String next() {
+      return tokens.get(position++);
+    }
+
+    private boolean accept(String token) {
+      if (token.equals(peek())) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    private void expect(String token) {
+      if (!accept(token)) {
+        throw new IllegalStateException("Expected " + token + " but found " + peek());
+      }
+    }
+  }
+}
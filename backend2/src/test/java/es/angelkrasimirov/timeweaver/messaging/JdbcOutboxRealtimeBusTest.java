@@ -0,0 +1,128 @@
+package es.angelkrasimirov.timeweaver.messaging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class JdbcOutboxRealtimeBusTest {
+
+  private JdbcTemplate jdbcTemplate;
+  private JdbcOutboxRealtimeBus startedBus;
+
+  @BeforeEach
+  void setUp() {
+    jdbcTemplate = mock(JdbcTemplate.class);
+    // Polls find nothing written by other nodes.
+    doReturn(Collections.singletonList(null)).when(jdbcTemplate)
+        .query(any(PreparedStatementCreator.class), any(RowMapper.class));
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (startedBus != null) {
+      startedBus.shutdown();
+    }
+  }
+
+  @Test
+  void retriesAFailedInsertBeforeNewerRowsInOrder() {
+    when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+        .thenThrow(new DataAccessResourceFailureException("Connection refused"))
+        .thenReturn(new int[0]);
+    startedBus = newBus(60);
+    startedBus.publishToProject(message(1));
+    startedBus.publishToProject(message(2));
+
+    startedBus.start();
+
+    ArgumentCaptor<List<Object[]>> rows = rowsCaptor();
+    verify(jdbcTemplate, timeout(2000).times(2)).batchUpdate(anyString(), rows.capture());
+    assertThat(targets(rows.getAllValues().get(0))).containsExactly("1", "2");
+    assertThat(targets(rows.getAllValues().get(1))).containsExactly("1", "2");
+    // Nothing left to write afterwards.
+    verify(jdbcTemplate, after(100).times(2)).batchUpdate(anyString(), anyList());
+  }
+
+  @Test
+  void givesUpOnRowsOlderThanTheRetention() throws InterruptedException {
+    when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+        .thenThrow(new DataAccessResourceFailureException("Connection refused"));
+    startedBus = newBus(0);
+    startedBus.publishToProject(message(1));
+    Thread.sleep(5);
+
+    startedBus.start();
+
+    verify(jdbcTemplate, timeout(2000)).batchUpdate(anyString(), anyList());
+    verify(jdbcTemplate, after(100).times(1)).batchUpdate(anyString(), anyList());
+  }
+
+  @Test
+  void deliversLocallyEvenWhenTheInsertFails() {
+    when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+        .thenThrow(new DataAccessResourceFailureException("Connection refused"));
+    JdbcOutboxRealtimeBus bus = newBus(60);
+    List<ProjectBusMessage> delivered = new ArrayList<>();
+    bus.addProjectListener((message, remote) -> delivered.add(message));
+
+    bus.publishToProject(message(1));
+    bus.shutdown();
+
+    assertThat(delivered).containsExactly(message(1));
+    verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+  }
+
+  @Test
+  void writesQueuedRowsOnShutdown() {
+    JdbcOutboxRealtimeBus bus = newBus(60);
+    bus.publishToProject(message(1));
+    bus.publishToUser(new UserBusMessage("ana", "notification", "{}", 3L));
+
+    bus.shutdown();
+
+    ArgumentCaptor<List<Object[]>> rows = rowsCaptor();
+    verify(jdbcTemplate, times(1)).batchUpdate(anyString(), rows.capture());
+    assertThat(rows.getValue()).extracting(row -> row[1]).containsExactly("project", "user");
+    assertThat(targets(rows.getValue())).containsExactly("1", "ana");
+  }
+
+  private JdbcOutboxRealtimeBus newBus(long retentionSeconds) {
+    return new JdbcOutboxRealtimeBus(jdbcTemplate, new ObjectMapper(), 10, 100, retentionSeconds, 500);
+  }
+
+  private static ProjectBusMessage message(long projectId) {
+    return new ProjectBusMessage(projectId, "update", "{\"type\":\"update\"}", "e1");
+  }
+
+  private static List<Object> targets(List<Object[]> rows) {
+    return rows.stream().map(row -> row[2]).toList();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ArgumentCaptor<List<Object[]>> rowsCaptor() {
+    return ArgumentCaptor.forClass(List.class);
+  }
+}
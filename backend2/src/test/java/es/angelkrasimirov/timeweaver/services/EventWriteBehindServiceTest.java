@@ -0,0 +1,218 @@
+package es.angelkrasimirov.timeweaver.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import es.angelkrasimirov.timeweaver.models.Event;
+import es.angelkrasimirov.timeweaver.repositories.EventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+
+class EventWriteBehindServiceTest {
+
+  private EventRepository eventRepository;
+  private EntityManager entityManager;
+  private SimpleMeterRegistry meterRegistry;
+  private EventWriteBehindService writeBehind;
+  private final Map<String, Event> stored = new HashMap<>();
+
+  @BeforeEach
+  void setUp() {
+    eventRepository = mock(EventRepository.class);
+    entityManager = mock(EntityManager.class);
+    meterRegistry = new SimpleMeterRegistry();
+    when(eventRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+      List<Event> events = new ArrayList<>();
+      for (Object id : invocation.<Iterable<?>>getArgument(0)) {
+        if (stored.containsKey(id)) {
+          events.add(stored.get(id));
+        }
+      }
+      return events;
+    });
+    stored.put("e1", event("e1"));
+    stored.put("e2", event("e2"));
+    stored.put("e3", event("e3"));
+  }
+
+  @AfterEach
+  void tearDown() {
+    writeBehind.shutdown();
+  }
+
+  @Test
+  void keepsOnlyTheLatestPayloadOfEachEvent() {
+    writeBehind = newService(100);
+    writeBehind.enqueueUpdate("e1", "v1");
+    writeBehind.enqueueUpdate("e2", "v1");
+    writeBehind.enqueueUpdate("e1", "v2");
+
+    assertThat(writeBehind.getPendingCount()).isEqualTo(2);
+    assertThat(writeBehind.getPendingData("e1")).contains("v2");
+
+    writeBehind.flush();
+
+    assertThat(stored.get("e1").getData()).isEqualTo("v2");
+    assertThat(stored.get("e2").getData()).isEqualTo("v1");
+    assertThat(writeBehind.getPendingCount()).isZero();
+    assertThat(counter("timeweaver.writebehind.updates.received")).isEqualTo(3);
+    assertThat(counter("timeweaver.writebehind.updates.coalesced")).isEqualTo(1);
+    assertThat(counter("timeweaver.writebehind.events.written")).isEqualTo(2);
+  }
+
+  @Test
+  void writesBatchesNoLargerThanTheBatchSize() {
+    writeBehind = newService(2);
+    writeBehind.enqueueUpdate("e1", "v1");
+    writeBehind.enqueueUpdate("e2", "v1");
+    writeBehind.enqueueUpdate("e3", "v1");
+
+    writeBehind.flush();
+
+    ArgumentCaptor<Iterable<String>> ids = idsCaptor();
+    verify(eventRepository, atLeastOnce()).findAllById(ids.capture());
+    assertThat(ids.getAllValues()).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(2));
+    assertThat(stored.values()).extracting(Event::getData).containsOnly("v1");
+    assertThat(writeBehind.getPendingCount()).isZero();
+  }
+
+  @Test
+  void putsAFailedBatchBackWithoutOverwritingNewerUpdates() {
+    writeBehind = newService(100);
+    writeBehind.enqueueUpdate("e1", "v1");
+    writeBehind.enqueueUpdate("e2", "v1");
+    when(eventRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+      writeBehind.enqueueUpdate("e1", "v2");
+      throw new DataAccessResourceFailureException("Connection refused");
+    });
+
+    writeBehind.flush();
+
+    assertThat(writeBehind.getPendingData("e1")).contains("v2");
+    assertThat(writeBehind.getPendingData("e2")).contains("v1");
+    assertThat(counter("timeweaver.writebehind.flush.failures")).isEqualTo(1);
+    assertThat(counter("timeweaver.writebehind.flushes")).isZero();
+  }
+
+  @Test
+  void skipsEventsThatNoLongerExist() {
+    writeBehind = newService(100);
+    stored.remove("e2");
+    writeBehind.enqueueUpdate("e1", "v1");
+    writeBehind.enqueueUpdate("e2", "v1");
+
+    writeBehind.flush();
+
+    assertThat(writeBehind.getPendingCount()).isZero();
+    assertThat(counter("timeweaver.writebehind.events.written")).isEqualTo(1);
+  }
+
+  @Test
+  void discardDropsThePendingUpdate() {
+    writeBehind = newService(100);
+    writeBehind.enqueueUpdate("e1", "v1");
+
+    writeBehind.discard("e1");
+    writeBehind.flush();
+
+    assertThat(writeBehind.getPendingData("e1")).isEmpty();
+    verify(eventRepository, never()).findAllById(any());
+  }
+
+  @Test
+  void shutdownWritesWhatIsStillBuffered() {
+    writeBehind = newService(100);
+    writeBehind.enqueueUpdate("e3", "v1");
+
+    writeBehind.shutdown();
+
+    assertThat(stored.get("e3").getData()).isEqualTo("v1");
+    assertThat(writeBehind.getPendingCount()).isZero();
+  }
+
+  @Test
+  void insertTakesTheContentOfLaterUpdates() {
+    writeBehind = newService(100);
+    writeBehind.enqueueInsert(1L, "n1", "v1");
+    writeBehind.enqueueUpdate("n1", "v2");
+
+    assertThat(writeBehind.getPendingInsertsAndDeletes(1L)).containsExactly(Map.entry("n1", "v2"));
+    writeBehind.flush();
+
+    ArgumentCaptor<Event> persisted = ArgumentCaptor.forClass(Event.class);
+    verify(entityManager).persist(persisted.capture());
+    assertThat(persisted.getValue().getId()).isEqualTo("n1");
+    assertThat(persisted.getValue().getData()).isEqualTo("v2");
+    verify(eventRepository, never()).findAllById(any());
+    verify(eventRepository, never()).deleteByIdIn(anyCollection());
+  }
+
+  @Test
+  void eventAddedAndDeletedBeforeAFlushIsNeverWritten() {
+    writeBehind = newService(100);
+    writeBehind.enqueueInsert(1L, "n1", "v1");
+    writeBehind.enqueueDelete(1L, "n1");
+
+    assertThat(writeBehind.getPendingCount()).isZero();
+    writeBehind.flush();
+
+    verify(entityManager, never()).persist(any());
+    verify(eventRepository, never()).deleteByIdIn(anyCollection());
+  }
+
+  @Test
+  void eventDeletedAndAddedAgainIsReplaced() {
+    writeBehind = newService(100);
+    writeBehind.enqueueDelete(1L, "e1");
+    assertThat(writeBehind.getPendingInsertsAndDeletes(1L)).containsEntry("e1", null);
+    writeBehind.enqueueInsert(1L, "e1", "v3");
+
+    writeBehind.flush();
+
+    verify(eventRepository).deleteByIdIn(Set.of("e1"));
+    ArgumentCaptor<Event> persisted = ArgumentCaptor.forClass(Event.class);
+    verify(entityManager).persist(persisted.capture());
+    assertThat(persisted.getValue().getData()).isEqualTo("v3");
+    assertThat(writeBehind.getPendingCount()).isZero();
+  }
+
+  private EventWriteBehindService newService(int maxBatchSize) {
+    return new EventWriteBehindService(eventRepository, entityManager, mock(PlatformTransactionManager.class),
+        60_000, maxBatchSize, meterRegistry);
+  }
+
+  private double counter(String name) {
+    return meterRegistry.get(name).functionCounter().count();
+  }
+
+  private static Event event(String id) {
+    Event event = new Event();
+    event.setId(id);
+    return event;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ArgumentCaptor<Iterable<String>> idsCaptor() {
+    return ArgumentCaptor.forClass(Iterable.class);
+  }
+}
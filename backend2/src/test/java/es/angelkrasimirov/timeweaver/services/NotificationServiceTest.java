@@ -0,0 +1,105 @@
+package es.angelkrasimirov.timeweaver.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.angelkrasimirov.timeweaver.dtos.NotificationPageDto;
+import es.angelkrasimirov.timeweaver.dtos.NotificationResponseDto;
+import es.angelkrasimirov.timeweaver.mappers.NotificationMapper;
+import es.angelkrasimirov.timeweaver.messaging.RealtimeBus;
+import es.angelkrasimirov.timeweaver.models.Notification;
+import es.angelkrasimirov.timeweaver.repositories.NotificationRepository;
+
+class NotificationServiceTest {
+
+  private static final LocalDateTime NOW = LocalDateTime.of(2025, 5, 14, 10, 30, 15, 123_456_000);
+
+  private NotificationRepository notificationRepository;
+  private NotificationService notificationService;
+
+  @BeforeEach
+  void setUp() {
+    notificationRepository = mock(NotificationRepository.class);
+    ObjectMapper objectMapper = new ObjectMapper();
+    notificationService = new NotificationService(notificationRepository, mock(NotificationWriter.class),
+        mock(NotificationCounterService.class), objectMapper, new NotificationMapper(objectMapper),
+        mock(FanOutExecutor.class), mock(RealtimeBus.class), mock(PlatformTransactionManager.class), 64, 100, 10000,
+        200, 5000);
+  }
+
+  @AfterEach
+  void tearDown() {
+    notificationService.shutdown();
+  }
+
+  @Test
+  void nextPageResumesAfterTheLastNotificationOfThePage() {
+    when(notificationRepository.findByUsernameAndReadStatusFalseOrderByTimestampDescIdDesc("ana", Limit.of(3)))
+        .thenReturn(List.of(notification(30, NOW), notification(29, NOW), notification(28, NOW.minusSeconds(1))));
+
+    NotificationPageDto firstPage = notificationService.getUnreadNotificationsPage("ana", null, 2);
+
+    assertThat(firstPage.getItems()).extracting(NotificationResponseDto::getId).containsExactly(30L, 29L);
+    assertThat(firstPage.getNextCursor()).isNotNull();
+
+    when(notificationRepository.findUnreadBefore("ana", NOW, 29L, Limit.of(3)))
+        .thenReturn(List.of(notification(28, NOW.minusSeconds(1))));
+
+    NotificationPageDto secondPage = notificationService.getUnreadNotificationsPage("ana", firstPage.getNextCursor(),
+        2);
+
+    assertThat(secondPage.getItems()).extracting(NotificationResponseDto::getId).containsExactly(28L);
+    assertThat(secondPage.getNextCursor()).isNull();
+  }
+
+  @Test
+  void cursorIsUrlSafe() {
+    when(notificationRepository.findByUsernameAndReadStatusFalseOrderByTimestampDescIdDesc("ana", Limit.of(2)))
+        .thenReturn(List.of(notification(7, NOW), notification(6, NOW)));
+
+    String cursor = notificationService.getUnreadNotificationsPage("ana", "", 1).getNextCursor();
+
+    assertThat(cursor).matches("[A-Za-z0-9_-]+");
+  }
+
+  @Test
+  void rejectsMalformedCursors() {
+    for (String cursor : List.of("%%%", encode("no separator"), encode("2025-05-14T10:30|abc"),
+        encode("yesterday|12"))) {
+      assertThatThrownBy(() -> notificationService.getUnreadNotificationsPage("ana", cursor, 10))
+          .as(cursor)
+          .isInstanceOf(IllegalArgumentException.class)
+          .hasMessageContaining("Invalid notification cursor");
+    }
+    verify(notificationRepository, never()).findUnreadBefore(any(), any(), any(), any());
+  }
+
+  private static Notification notification(long id, LocalDateTime timestamp) {
+    Notification notification = new Notification("ana", "project_invitation", "{\"project\":{\"id\":1}}",
+        timestamp);
+    notification.setId(id);
+    return notification;
+  }
+
+  private static String encode(String position) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+  }
+}
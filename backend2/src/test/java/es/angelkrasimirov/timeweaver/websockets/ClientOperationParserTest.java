@@ -0,0 +1,81 @@
+package es.angelkrasimirov.timeweaver.websockets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class ClientOperationParserTest {
+
+  private final ClientOperationParser parser = new ClientOperationParser(new ObjectMapper());
+
+  @Test
+  void slicesTheBodyExactlyAsSent() throws IOException {
+    String body = "{ \"id\" : \"e1\", \"content\": \"a } tricky \\\" {string\", \"style\": {\"id\": \"nested\"},"
+        + " \"tags\": [1, {\"x\": []}] }";
+    String frame = "{\"type\":\"update\",\"data\":{\"opId\":\"op-7\",\"data\":" + body + "}}";
+
+    ClientOperation operation = parser.parse(frame);
+
+    assertThat(operation.type()).isEqualTo("update");
+    assertThat(operation.opId()).isEqualTo("op-7");
+    assertThat(operation.eventId()).isEqualTo("e1");
+    assertThat(operation.body()).isEqualTo(body);
+  }
+
+  @Test
+  void readsFieldsInAnyOrderAndSkipsUnknownOnes() throws IOException {
+    String frame = """
+        {"data": {"data": {"content": "x", "id": "e2"}, "extra": {"id": "ignored"}, "opId": 12},
+         "meta": [{"type": "ignored"}], "type": "add"}""";
+
+    ClientOperation operation = parser.parse(frame);
+
+    assertThat(operation.type()).isEqualTo("add");
+    assertThat(operation.opId()).isEqualTo("12");
+    assertThat(operation.eventId()).isEqualTo("e2");
+    assertThat(operation.body()).isEqualTo("{\"content\": \"x\", \"id\": \"e2\"}");
+  }
+
+  @Test
+  void takesTheIdOfADeleteFromTheEnvelope() throws IOException {
+    ClientOperation operation = parser.parse("{\"type\":\"delete\",\"data\":{\"id\":\"e3\"}}");
+
+    assertThat(operation.eventId()).isEqualTo("e3");
+    assertThat(operation.body()).isNull();
+  }
+
+  @Test
+  void returnsNullWhenDataIsNotAnObject() throws IOException {
+    assertThat(parser.parse("{\"type\":\"add\",\"data\":\"e1\"}")).isNull();
+    assertThat(parser.parse("{\"type\":\"add\"}")).isNull();
+  }
+
+  @Test
+  void rejectsFramesThatAreNotObjects() {
+    assertThatThrownBy(() -> parser.parse("[1, 2]")).isInstanceOf(IOException.class);
+    assertThatThrownBy(() -> parser.parse("{\"type\":")).isInstanceOf(IOException.class);
+  }
+
+  @Test
+  void slicedBodyReadsBackAsTheSentObject() throws IOException {
+    ClientOperation operation = parser.parse(
+        "{\"type\":\"patch\",\"data\":{\"data\":{\"id\":\"e4\",\"start\":10,\"style\":{\"color\":\"red\"}}}}");
+
+    assertThat(parser.readBody(operation))
+        .isEqualTo(Map.of("id", "e4", "start", 10, "style", Map.of("color", "red")));
+  }
+
+  @Test
+  void buildsTheSameOperationFromADecodedBinaryMessage() throws IOException {
+    ClientOperation operation = parser.fromMessage(Map.of("type", "delete",
+        "data", Map.of("opId", 5, "id", "e5")));
+
+    assertThat(operation).isEqualTo(new ClientOperation("delete", "5", "e5", null));
+  }
+}
@@ -0,0 +1,108 @@
+package es.angelkrasimirov.timeweaver.websockets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class EventIntervalIndexTest {
+
+  @Test
+  void findsOverlappingEventsInStartOrder() {
+    EventIntervalIndex index = new EventIntervalIndex();
+    index.put("late", new EventInterval(50, 60, null));
+    index.put("long", new EventInterval(0, 100, null));
+    index.put("early", new EventInterval(10, 20, null));
+    index.put("point", new EventInterval(30, 30, null));
+
+    assertThat(index.findOverlapping(20, 30)).containsExactly("long", "early", "point");
+    assertThat(index.findOverlapping(61, 99)).containsExactly("long");
+    assertThat(index.findOverlapping(101, 200)).isEmpty();
+    assertThat(index.findContaining(30)).containsExactly("long", "point");
+  }
+
+  @Test
+  void treatsBothWindowBoundsAsInclusive() {
+    EventIntervalIndex index = new EventIntervalIndex();
+    index.put("a", new EventInterval(10, 20, null));
+
+    assertThat(index.findOverlapping(20, 25)).containsExactly("a");
+    assertThat(index.findOverlapping(0, 10)).containsExactly("a");
+    assertThat(index.findOverlapping(21, 25)).isEmpty();
+  }
+
+  @Test
+  void putReplacesThePreviousInterval() {
+    EventIntervalIndex index = new EventIntervalIndex();
+    index.put("a", new EventInterval(0, 10, null));
+    index.put("a", new EventInterval(100, 110, null));
+
+    assertThat(index.size()).isEqualTo(1);
+    assertThat(index.findOverlapping(0, 10)).isEmpty();
+    assertThat(index.findOverlapping(105, 105)).containsExactly("a");
+  }
+
+  @Test
+  void nullIntervalRemovesTheEvent() {
+    EventIntervalIndex index = new EventIntervalIndex();
+    index.put("a", new EventInterval(0, 10, null));
+    index.put("a", null);
+
+    assertThat(index.size()).isZero();
+    assertThat(index.get("a")).isNull();
+    assertThat(index.findOverlapping(Long.MIN_VALUE, Long.MAX_VALUE)).isEmpty();
+  }
+
+  @Test
+  void keepsEventsSharingAStartApart() {
+    EventIntervalIndex index = new EventIntervalIndex();
+    for (int i = 0; i < 20; i++) {
+      index.put("e" + i, new EventInterval(5, 5 + i, null));
+    }
+    index.remove("e7");
+
+    assertThat(index.findOverlapping(19, 30)).containsExactly("e14", "e15", "e16", "e17", "e18", "e19");
+    assertThat(index.findContaining(5)).hasSize(19).doesNotContain("e7");
+  }
+
+  @Test
+  void matchesALinearScanUnderRandomUpdates() {
+    Random random = new Random(42);
+    EventIntervalIndex index = new EventIntervalIndex();
+    Map<String, EventInterval> expected = new HashMap<>();
+
+    for (int step = 0; step < 20_000; step++) {
+      String eventId = "e" + random.nextInt(500);
+      if (random.nextInt(4) == 0) {
+        assertThat(index.remove(eventId)).isEqualTo(expected.remove(eventId));
+      } else {
+        long start = random.nextInt(10_000) - 5_000;
+        EventInterval interval = new EventInterval(start, start + random.nextInt(random.nextBoolean() ? 10 : 3_000),
+            null);
+        index.put(eventId, interval);
+        expected.put(eventId, interval);
+      }
+
+      if (step % 100 == 0) {
+        long start = random.nextInt(12_000) - 6_000;
+        long end = start + random.nextInt(2_000);
+        assertThat(index.findOverlapping(start, end)).isEqualTo(scan(expected, start, end));
+        assertThat(index.size()).isEqualTo(expected.size());
+      }
+    }
+  }
+
+  private static List<String> scan(Map<String, EventInterval> intervals, long start, long end) {
+    return intervals.entrySet().stream()
+        .filter(entry -> entry.getValue().overlaps(start, end))
+        .sorted(Comparator.<Map.Entry<String, EventInterval>>comparingLong(entry -> entry.getValue().start())
+            .thenComparing(Map.Entry::getKey))
+        .map(Map.Entry::getKey)
+        .toList();
+  }
+}
@@ -0,0 +1,82 @@
+package es.angelkrasimirov.timeweaver.websockets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class JsonMergePatchTest {
+
+  @Test
+  void replacesRemovesAndAddsTopLevelFields() {
+    Map<String, Object> merged = JsonMergePatch.apply(
+        Map.of("id", "a", "content", "Old", "end", "2024-01-02"),
+        patch("content", "New", "end", null, "group", "g1"));
+
+    assertThat(merged).isEqualTo(Map.of("id", "a", "content", "New", "group", "g1"));
+  }
+
+  @Test
+  void mergesNestedObjectsRecursively() {
+    Map<String, Object> merged = JsonMergePatch.apply(
+        Map.of("style", Map.of("color", "red", "border", "none")),
+        patch("style", patch("color", "blue", "border", null, "weight", 2)));
+
+    assertThat(merged).isEqualTo(Map.of("style", Map.of("color", "blue", "weight", 2)));
+  }
+
+  @Test
+  void objectPatchReplacesAScalarAndScalarReplacesAnObject() {
+    Map<String, Object> merged = JsonMergePatch.apply(
+        Map.of("a", "text", "b", Map.of("nested", true)),
+        patch("a", patch("x", 1, "gone", null), "b", 5));
+
+    assertThat(merged).isEqualTo(Map.of("a", Map.of("x", 1), "b", 5));
+  }
+
+  @Test
+  void leavesTheTargetUntouched() {
+    Map<String, Object> target = new HashMap<>(Map.of("content", "Old"));
+    JsonMergePatch.apply(target, patch("content", "New"));
+
+    assertThat(target).isEqualTo(Map.of("content", "Old"));
+  }
+
+  @Test
+  void foldingSuccessivePatchesMatchesApplyingThemInTurn() {
+    Map<String, Object> base = Map.of("id", "a", "start", 0, "style", Map.of("color", "red"));
+    Map<String, Object> first = patch("start", 10, "style", patch("color", "blue", "width", 1));
+    Map<String, Object> second = patch("start", 20, "style", patch("width", null), "end", 30);
+
+    Map<String, Object> folded = JsonMergePatch.apply(JsonMergePatch.apply(base, first), second);
+
+    assertThat(folded).isEqualTo(Map.of("id", "a", "start", 20, "end", 30, "style", Map.of("color", "blue")));
+  }
+
+  @Test
+  void patchingAnEventMovesItInTheIntervalIndex() {
+    ProjectState state = new ProjectState(1L, 16, Runnable::run);
+    state.putEvent("a", Map.of("id", "a", "start", 0, "end", 10, "content", "A"));
+
+    Map<String, Object> merged = state.patchEvent("a", patch("start", 100, "end", 110));
+
+    assertThat(merged).containsEntry("content", "A").containsEntry("start", 100);
+    assertThat(state.findEventIdsOverlapping(0, 10)).isEmpty();
+    assertThat(state.findEventIdsOverlapping(105, 105)).containsExactly("a");
+    assertThat(state.patchEvent("missing", patch("start", 1))).isNull();
+  }
+
+  /**
+   * Builds a patch from name/value pairs; unlike {@code Map.of} it accepts
+   * {@code null} values, which mean "remove".
+   */
+  private static Map<String, Object> patch(Object... fieldsAndValues) {
+    Map<String, Object> patch = new HashMap<>();
+    for (int i = 0; i < fieldsAndValues.length; i += 2) {
+      patch.put((String) fieldsAndValues[i], fieldsAndValues[i + 1]);
+    }
+    return patch;
+  }
+}
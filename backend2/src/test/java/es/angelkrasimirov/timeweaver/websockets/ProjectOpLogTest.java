@@ -0,0 +1,81 @@
+package es.angelkrasimirov.timeweaver.websockets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ProjectOpLogTest {
+
+  @Test
+  void startsEmptyAtSequenceZero() {
+    ProjectOpLog opLog = new ProjectOpLog(4);
+
+    assertThat(opLog.getLastSeq()).isZero();
+    assertThat(opLog.entriesAfter(0)).isEmpty();
+  }
+
+  @Test
+  void rejectsOutOfOrderSequences() {
+    ProjectOpLog opLog = new ProjectOpLog(4);
+    opLog.append(entry(1));
+
+    assertThatThrownBy(() -> opLog.append(entry(3))).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> opLog.append(entry(1))).isInstanceOf(IllegalArgumentException.class);
+    assertThat(opLog.getLastSeq()).isEqualTo(1);
+  }
+
+  @Test
+  void replaysTheOperationsAfterASequenceInOrder() {
+    ProjectOpLog opLog = new ProjectOpLog(4);
+    for (long seq = 1; seq <= 3; seq++) {
+      opLog.append(entry(seq));
+    }
+
+    assertThat(seqs(opLog.entriesAfter(0))).containsExactly(1L, 2L, 3L);
+    assertThat(seqs(opLog.entriesAfter(2))).containsExactly(3L);
+    assertThat(opLog.entriesAfter(3)).isEmpty();
+  }
+
+  @Test
+  void replaysAcrossTheWrapOfTheRing() {
+    ProjectOpLog opLog = new ProjectOpLog(4);
+    for (long seq = 1; seq <= 10; seq++) {
+      opLog.append(entry(seq));
+    }
+
+    // 7 to 10 are still in the ring, so a client at 6 can resume.
+    assertThat(seqs(opLog.entriesAfter(6))).containsExactly(7L, 8L, 9L, 10L);
+    assertThat(seqs(opLog.entriesAfter(8))).containsExactly(9L, 10L);
+  }
+
+  @Test
+  void returnsNullOnceMissedOperationsWereOverwritten() {
+    ProjectOpLog opLog = new ProjectOpLog(4);
+    for (long seq = 1; seq <= 10; seq++) {
+      opLog.append(entry(seq));
+    }
+
+    assertThat(opLog.entriesAfter(5)).isNull();
+    assertThat(opLog.entriesAfter(0)).isNull();
+  }
+
+  @Test
+  void returnsNullForASequenceFromTheFuture() {
+    ProjectOpLog opLog = new ProjectOpLog(4);
+    opLog.append(entry(1));
+
+    // A client ahead of the log saw another epoch and needs a snapshot.
+    assertThat(opLog.entriesAfter(2)).isNull();
+  }
+
+  private static ProjectOpLog.Entry entry(long seq) {
+    return new ProjectOpLog.Entry(seq, new SharedFrame("{\"seq\":" + seq + "}", null), "update", "e" + seq);
+  }
+
+  private static List<Long> seqs(List<ProjectOpLog.Entry> entries) {
+    return entries.stream().map(ProjectOpLog.Entry::seq).toList();
+  }
+}
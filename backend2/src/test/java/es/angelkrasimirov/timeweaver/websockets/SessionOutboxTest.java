@@ -0,0 +1,233 @@
+package es.angelkrasimirov.timeweaver.websockets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SessionOutboxTest {
+
+  private WebSocketSession session;
+  private final List<String> sent = new ArrayList<>();
+  private final List<Runnable> writerTasks = new ArrayList<>();
+  private final List<String> done = new ArrayList<>();
+  private final ProjectOutboundStats stats = new ProjectOutboundStats();
+
+  @BeforeEach
+  void setUp() throws IOException {
+    session = mock(WebSocketSession.class);
+    when(session.getId()).thenReturn("s1");
+    when(session.isOpen()).thenReturn(true);
+    doAnswer(invocation -> sent.add(((TextMessage) invocation.getArgument(0)).getPayload()))
+        .when(session).sendMessage(any());
+  }
+
+  @Test
+  void dropOldestEvictsTheOldestFrame() {
+    SessionOutbox outbox = outbox(2, SlowConsumerPolicy.DROP_OLDEST);
+    broadcast(outbox, "a", null);
+    broadcast(outbox, "b", null);
+    broadcast(outbox, "c", null);
+    drain();
+
+    assertThat(sent).containsExactly("b", "c");
+    assertThat(done).containsExactly("a", "b", "c");
+    assertThat(stats.getDroppedFrames()).isEqualTo(1);
+  }
+
+  @Test
+  void dropOldestNeverEvictsAPendingSnapshot() {
+    SessionOutbox outbox = outbox(2, SlowConsumerPolicy.DROP_OLDEST);
+    outbox.enqueueStream(List.of(text("snapshot-1"), text("snapshot-2")).iterator());
+    broadcast(outbox, "a", null);
+    broadcast(outbox, "b", null);
+    broadcast(outbox, "c", null);
+    drain();
+
+    assertThat(sent).containsExactly("snapshot-1", "snapshot-2", "c");
+    assertThat(stats.getDroppedFrames()).isEqualTo(2);
+  }
+
+  @Test
+  void dropOldestDropsTheNewFrameWhenNothingQueuedCanBeDropped() {
+    SessionOutbox outbox = outbox(2, SlowConsumerPolicy.DROP_OLDEST);
+    outbox.enqueue(text("snapshot"));
+    operation(outbox, "op1");
+    broadcast(outbox, "a", null);
+    drain();
+
+    assertThat(sent).containsExactly("snapshot", "op1");
+    assertThat(done).containsExactly("a", "op1");
+    assertThat(stats.getDroppedFrames()).isEqualTo(1);
+  }
+
+  @Test
+  void operationsTakeThePlaceOfDroppableFrames() {
+    SessionOutbox outbox = outbox(2, SlowConsumerPolicy.DROP_OLDEST);
+    broadcast(outbox, "presence", "presence");
+    operation(outbox, "op1");
+    operation(outbox, "op2");
+    drain();
+
+    assertThat(sent).containsExactly("op1", "op2");
+    assertThat(stats.getDroppedFrames()).isEqualTo(1);
+  }
+
+  @Test
+  void neverDropsAnOperationAndDisconnectsInstead() throws IOException {
+    SessionOutbox outbox = outbox(2, SlowConsumerPolicy.DROP_OLDEST);
+    operation(outbox, "op1");
+    operation(outbox, "op2");
+    operation(outbox, "op3");
+
+    verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+    assertThat(done).containsExactly("op3", "op1", "op2");
+    assertThat(stats.getDroppedFrames()).isZero();
+    assertThat(stats.getDisconnectedSessions()).isEqualTo(1);
+
+    operation(outbox, "op4");
+    assertThat(done).endsWith("op4");
+    assertThat(outbox.size()).isZero();
+  }
+
+  @Test
+  void limitsTheRepliesQueuedForAClientThatDoesNotRead() throws IOException {
+    SessionOutbox outbox = outbox(2, SlowConsumerPolicy.DROP_OLDEST);
+    outbox.enqueue(text("ack1"));
+    outbox.enqueue(text("ack2"));
+    broadcast(outbox, "a", null);
+
+    verify(session, never()).close(any(CloseStatus.class));
+
+    outbox.enqueue(text("ack3"));
+
+    verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+    assertThat(outbox.size()).isZero();
+  }
+
+  @Test
+  void coalesceReplacesTheQueuedFrameWithTheSameKeyInPlace() throws IOException {
+    SessionOutbox outbox = outbox(2, SlowConsumerPolicy.COALESCE);
+    broadcast(outbox, "presence v1", "presence");
+    broadcast(outbox, "other", "other");
+    broadcast(outbox, "presence v2", "presence");
+    drain();
+
+    assertThat(sent).containsExactly("presence v2", "other");
+    assertThat(done).containsExactly("presence v1", "presence v2", "other");
+    assertThat(stats.getCoalescedFrames()).isEqualTo(1);
+    verify(session, never()).close(any(CloseStatus.class));
+  }
+
+  @Test
+  void coalesceFallsBackToDropOldestForFramesWithoutAKey() throws IOException {
+    SessionOutbox outbox = outbox(2, SlowConsumerPolicy.COALESCE);
+    broadcast(outbox, "e1", "e1");
+    broadcast(outbox, "e2", "e2");
+    broadcast(outbox, "batch", null);
+    drain();
+
+    assertThat(sent).containsExactly("e2", "batch");
+    assertThat(stats.getDroppedFrames()).isEqualTo(1);
+    verify(session, never()).close(any(CloseStatus.class));
+  }
+
+  @Test
+  void coalesceNeverMergesOperations() throws IOException {
+    SessionOutbox outbox = outbox(1, SlowConsumerPolicy.COALESCE);
+    operation(outbox, "op1");
+    operation(outbox, "op2");
+
+    verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+    assertThat(stats.getCoalescedFrames()).isZero();
+  }
+
+  @Test
+  void disconnectClosesTheSessionWhenFull() throws IOException {
+    SessionOutbox outbox = outbox(1, SlowConsumerPolicy.DISCONNECT);
+    broadcast(outbox, "a", null);
+    broadcast(outbox, "b", null);
+    drain();
+
+    assertThat(sent).isEmpty();
+    verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+  }
+
+  @Test
+  void startsOneWriterAtATime() {
+    SessionOutbox outbox = outbox(8, SlowConsumerPolicy.DROP_OLDEST);
+    broadcast(outbox, "a", null);
+    broadcast(outbox, "b", null);
+
+    assertThat(writerTasks).hasSize(1);
+    drain();
+    broadcast(outbox, "c", null);
+
+    assertThat(writerTasks).hasSize(1);
+    drain();
+    assertThat(sent).containsExactly("a", "b", "c");
+  }
+
+  @Test
+  void writerGivesItsThreadBackAfterMaxWritesPerTask() {
+    SessionOutbox outbox = outbox(8, SlowConsumerPolicy.DROP_OLDEST, 2);
+    outbox.enqueueStream(List.of(text("snapshot-1"), text("snapshot-2"), text("snapshot-3")).iterator());
+    operation(outbox, "a");
+    operation(outbox, "b");
+
+    writerTasks.remove(0).run();
+    assertThat(sent).containsExactly("snapshot-1", "snapshot-2");
+    assertThat(writerTasks).hasSize(1);
+
+    writerTasks.remove(0).run();
+    assertThat(sent).containsExactly("snapshot-1", "snapshot-2", "snapshot-3", "a");
+    assertThat(writerTasks).hasSize(1);
+
+    drain();
+    assertThat(sent).containsExactly("snapshot-1", "snapshot-2", "snapshot-3", "a", "b");
+    assertThat(done).containsExactly("a", "b");
+  }
+
+  private SessionOutbox outbox(int capacity, SlowConsumerPolicy policy) {
+    return outbox(capacity, policy, 16);
+  }
+
+  private SessionOutbox outbox(int capacity, SlowConsumerPolicy policy, int maxWritesPerTask) {
+    return new SessionOutbox(session, "user", WebSocketCodec.JSON, capacity, policy, stats,
+        new WebSocketMetrics(new SimpleMeterRegistry(), 0), writerTasks::add, maxWritesPerTask);
+  }
+
+  private void broadcast(SessionOutbox outbox, String json, String coalesceKey) {
+    outbox.enqueue(new SharedFrame(json, null), coalesceKey, () -> done.add(json));
+  }
+
+  private void operation(SessionOutbox outbox, String json) {
+    outbox.enqueueOperation(new SharedFrame(json, null), () -> done.add(json));
+  }
+
+  private void drain() {
+    while (!writerTasks.isEmpty()) {
+      writerTasks.remove(0).run();
+    }
+  }
+
+  private static WebSocketMessage<?> text(String payload) {
+    return new TextMessage(payload);
+  }
+}
@@ -6,12 +6,19 @@ import {
   TimelineOptions,
 } from "vis-timeline/standalone";
 import "vis-timeline/styles/vis-timeline-graph2d.css";
-import { TimelineWSEvent, WsMessagePayloadAction } from "../../types/timeline";
+import {
+  TimelineBatchOperation,
+  TimelineViewport,
+  TimelineWSEvent,
+  WsMessagePayloadAction,
+} from "../../types/timeline";
 import { debounce } from "../../utils/debounce";
+import { createMergePatch } from "../../utils/mergePatch";
 import ReactMarkdown from "react-markdown";
 import remarkGfm from "remark-gfm";
 
 const SERVER_SENDER_ID = "timeline-server-event";
+const VIEWPORT_DEBOUNCE_MS = 300;
 
 type TimeLineProps = {
   projectId?: number | string;
@@ -20,12 +27,14 @@ type TimeLineProps = {
     type: string,
     payload: WsMessagePayloadAction
   ) => void;
+  onViewportChange?: (viewport: TimelineViewport) => void;
 };
 
 export function TimeLine({
   projectId,
   eventsData,
   sendTimelineEventToServer,
+  onViewportChange,
 }: TimeLineProps) {
   const refContainer = useRef<HTMLDivElement | null>(null);
   const modalRef = useRef<HTMLDialogElement | null>(null);
@@ -203,6 +212,7 @@ export function TimeLine({
       properties: {
         items: IdType[];
         data: Partial<TimelineWSEvent>[];
+        oldData?: TimelineWSEvent[];
       } | null,
       senderId: IdType | null
     ) => {
@@ -211,22 +221,48 @@ export function TimeLine({
         return;
       }
       if (properties && properties.items && properties.data) {
-        properties.items.forEach((itemId) => {
+        const ops: TimelineBatchOperation[] = [];
+        properties.items.forEach((itemId, index) => {
           const updatedItemData = eventsData.get(
             itemId
           ) as TimelineWSEvent | null;
-          if (updatedItemData) {
-            console.log(
-              "TimeLine: User updated item via UI (drag/resize), requesting server update:",
-              updatedItemData
-            );
-
-            sendTimelineEventToServer("update", {
-              data: updatedItemData as TimelineWSEvent,
-              timestamp: Date.now(),
+          const previousItemData = properties.oldData?.[index];
+          if (updatedItemData && previousItemData) {
+            const patch = createMergePatch(previousItemData, updatedItemData);
+            if (Object.keys(patch).length === 0) {
+              return;
+            }
+            ops.push({ type: "patch", data: { ...patch, id: itemId } });
+          } else if (updatedItemData) {
+            ops.push({
+              type: "update",
+              data: { ...updatedItemData, id: itemId },
             });
           }
         });
+        sendOperations(ops, "updated item via UI (drag/resize)");
+      }
+    };
+
+    // Edits of several selected items at once travel as a single batch.
+    const sendOperations = (ops: TimelineBatchOperation[], action: string) => {
+      if (ops.length === 1) {
+        console.log(
+          `TimeLine: User ${action}, requesting server ${ops[0].type}:`,
+          ops[0].data
+        );
+        sendTimelineEventToServer(ops[0].type, {
+          data: ops[0].data,
+          timestamp: Date.now(),
+        });
+      } else if (ops.length > 1) {
+        console.log(
+          `TimeLine: User ${action}, requesting server batch of ${ops.length} operations.`
+        );
+        sendTimelineEventToServer("batch", {
+          data: { ops },
+          timestamp: Date.now(),
+        });
       }
     };
 
@@ -240,19 +276,27 @@ export function TimeLine({
         return;
       }
       if (properties && properties.items) {
-        properties.items.forEach((itemId) => {
-          console.log(
-            "TimeLine: User removed item via UI, requesting server remove, ID:",
-            itemId
-          );
-          sendTimelineEventToServer("delete", {
-            data: { id: itemId } as { id: IdType },
-            timestamp: Date.now(),
-          });
-        });
+        sendOperations(
+          properties.items.map((itemId): TimelineBatchOperation => ({
+            type: "delete",
+            data: { id: itemId },
+          })),
+          "removed item via UI"
+        );
       }
     };
 
+    // Asks for one window length on each side of the visible range, so
+    // panning does not wait for the server.
+    const reportViewport = debounce(() => {
+      if (!timelineInstance || !onViewportChange) return;
+      const visibleWindow = timelineInstance.getWindow();
+      const start = visibleWindow.start.valueOf();
+      const end = visibleWindow.end.valueOf();
+      const span = end - start;
+      onViewportChange({ start: start - span, end: end + span });
+    }, VIEWPORT_DEBOUNCE_MS);
+
     let previouslySelectedItem: TimelineWSEvent | null = null;
 
     const onSelect = ({ items }: { items: IdType[] }) => {
@@ -313,11 +357,13 @@ export function TimeLine({
       timelineRef.current = timelineInstance;
 
       timelineInstance.on("select", onSelect);
+      timelineInstance.on("rangechanged", reportViewport);
       eventsData.on("add", handleAdd);
       eventsData.on("update", handleUpdate);
       eventsData.on("remove", handleRemove);
 
       console.log("Timeline initialized for project:", projectId);
+      reportViewport();
     }
 
     return () => {
@@ -332,6 +378,7 @@ export function TimeLine({
       }
       debouncedSave.cancel?.();
       debouncedSaveDetails.cancel?.();
+      reportViewport.cancel?.();
     };
   }, []);
 
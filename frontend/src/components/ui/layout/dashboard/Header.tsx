@@ -11,7 +11,7 @@ export function Header() {
   const headerRef = useRef<HTMLDivElement>(null);
   const { theme, setTheme } = useTheme();
   const auth = useAuth();
-  const { notifications } = useNotifications();
+  const { unreadCount } = useNotifications();
 
   useEffect(() => {
     const handleMouseMove = (e: MouseEvent) => {
@@ -113,13 +113,13 @@ export function Header() {
           </Link>
         </div>
 
-        {notifications.length > 0 && (
+        {unreadCount > 0 && (
           <Link
             to={"/dashboard/notifications"}
             className="btn btn-block justify-center gap-2 btn-ghost mt-3"
           >
             <FaBell className="h-5 w-5" />
-            Notifications ({notifications.length})
+            Notifications ({unreadCount})
           </Link>
         )}
       </div>
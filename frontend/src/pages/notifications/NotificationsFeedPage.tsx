@@ -12,7 +12,12 @@ import {
 // import { useAuth } from "../../providers/AuthProvider";
 
 export const NotificationsFeedPage: React.FC = () => {
-  const { notifications, markNotificationAsRead } = useNotifications();
+  const {
+    notifications,
+    hasMoreNotifications,
+    loadMoreNotifications,
+    markNotificationAsRead,
+  } = useNotifications();
 
   const formatDateTime = (dateInput: string | Date | undefined) => {
     if (!dateInput) return "Unknown date";
@@ -263,6 +268,16 @@ export const NotificationsFeedPage: React.FC = () => {
               </div>
             </div>
           ))}
+          {hasMoreNotifications && (
+            <div className="flex justify-center">
+              <button
+                className="btn btn-ghost btn-sm"
+                onClick={() => loadMoreNotifications()}
+              >
+                Load more
+              </button>
+            </div>
+          )}
         </div>
       )}
     </div>
@@ -11,17 +11,31 @@ import {
 } from "../../services/projects/ProjectService";
 import { DataSet, IdType } from "vis-timeline/standalone";
 import {
+  TimelineViewport,
   TimelineWSEvent,
   WebSocketMessage,
+  WsMessagePayloadAck,
   WsMessagePayloadAction,
+  WsMessagePayloadBatch,
+  WsMessagePayloadConnectionResumed,
   WsMessagePayloadConnectionSuccess,
+  WsMessagePayloadError,
+  WsMessagePayloadSkip,
+  WsMessagePayloadSnapshotChunk,
+  WsMessagePayloadSnapshotEnd,
   WsMessagePayloadUserJoined,
+  WsMessagePayloadViewportEvents,
 } from "../../types/timeline";
 import { useAuth } from "../../providers/AuthProvider";
 import { toWsUrl } from "../../utils/api";
+import { applyMergePatch } from "../../utils/mergePatch";
 import { InviteUserForm } from "../../components/projects/InviteUserForm";
 
 const SERVER_SENDER_ID = "timeline-server-event";
+const RECONNECT_DELAY_MS = 2000;
+// Sent by the server when our outbound queue overflowed.
+const SLOW_CONSUMER_CLOSE_CODE = 4500;
+const SEQUENCE_GAP_CLOSE_CODE = 4001;
 
 export function ProjectPage() {
   const { projectId } = useParams<{ projectId: string }>();
@@ -42,10 +56,60 @@ export function ProjectPage() {
 
   const [eventsData] = useState(() => new DataSet<TimelineWSEvent>([]));
   const webSocketRef = useRef<WebSocket | null>(null);
+  // Position in the server's op log, sent on reconnect to replay only the missed operations.
+  const resumeRef = useRef<{ epoch: string; seq: number } | null>(null);
+  const reconnectTimerRef = useRef<ReturnType<typeof setTimeout> | null>(
+    null
+  );
+  // Last viewport declared to the server, restored when reconnecting.
+  const viewportRef = useRef<TimelineViewport | null>(null);
+  // Operations sent without waiting for the previous ones, until the server acknowledges them.
+  const pendingOpsRef = useRef<Map<string, string>>(new Map());
+  const nextOpIdRef = useRef(0);
   const { getToken, getUserName } = useAuth();
 
   const [activeUsers, setActiveUsers] = useState<string[]>([]);
 
+  // Folds the operations of a batch per event, so the DataSet is updated once.
+  const applyBatch = (payload: WsMessagePayloadBatch) => {
+    const changes = new Map<IdType, TimelineWSEvent | null>();
+    payload.data.ops.forEach((op) => {
+      const id = op.data.id;
+      const current = changes.has(id)
+        ? changes.get(id) ?? null
+        : eventsData.get(id);
+      switch (op.type) {
+        case "add":
+        case "update":
+          changes.set(id, op.data as TimelineWSEvent);
+          break;
+        case "patch":
+          if (current) {
+            changes.set(id, applyMergePatch(current, op.data));
+          }
+          break;
+        case "delete":
+          changes.set(id, null);
+          break;
+      }
+    });
+
+    const updated: TimelineWSEvent[] = [];
+    const removed: IdType[] = [];
+    changes.forEach((item, id) => {
+      if (item) {
+        updated.push(item);
+      } else {
+        removed.push(id);
+      }
+    });
+    eventsData.update(updated, SERVER_SENDER_ID);
+    eventsData.remove(removed, SERVER_SENDER_ID);
+    console.log(
+      `ProjectPage: Batch from ${payload.username} applied, ${updated.length} events updated, ${removed.length} removed.`
+    );
+  };
+
   useEffect(() => {
     if (!project && projectId) {
       const fetchProject = async () => {
@@ -81,9 +145,22 @@ export function ProjectPage() {
         const token = getToken ? await getToken() : null;
         let wsUrl = toWsUrl(`/projects/${projectId}`);
 
+        const params = new URLSearchParams({ snapshot: "chunked" });
         if (token) {
-          wsUrl += `?token=${token}`;
+          params.set("token", token);
+        }
+        if (resumeRef.current) {
+          params.set("epoch", resumeRef.current.epoch);
+          params.set("lastSeq", String(resumeRef.current.seq));
         }
+        if (viewportRef.current) {
+          params.set("viewportStart", String(viewportRef.current.start));
+          params.set("viewportEnd", String(viewportRef.current.end));
+          if (viewportRef.current.groups?.length) {
+            params.set("viewportGroups", viewportRef.current.groups.join(","));
+          }
+        }
+        wsUrl += `?${params.toString()}`;
 
         console.log(`ProjectPage: Connecting to WebSocket at ${wsUrl}`);
         const ws = new WebSocket(wsUrl);
@@ -99,18 +176,41 @@ export function ProjectPage() {
           const message = JSON.parse(event.data as string) as WebSocketMessage;
           console.log("ProjectPage: WebSocket message received:", message);
 
+          if (message.seq !== undefined && resumeRef.current) {
+            const from =
+              message.type === "skip"
+                ? (message.data as WsMessagePayloadSkip).from
+                : message.seq;
+            if (from !== resumeRef.current.seq + 1) {
+              // An operation was lost or reordered; resuming would skip it for good.
+              console.warn(
+                `ProjectPage: Expected operation ${resumeRef.current.seq + 1} but got ${from}, reloading the project.`
+              );
+              resumeRef.current = null;
+              ws.close(SEQUENCE_GAP_CLOSE_CODE, "Missed operations");
+              return;
+            }
+            resumeRef.current.seq = message.seq;
+          }
+
           switch (message.type) {
             case "connection_success": {
               const payload = message.data as WsMessagePayloadConnectionSuccess;
 
               console.log("Received connection success:", payload);
+              resumeRef.current = { epoch: payload.epoch, seq: payload.seq };
               setActiveUsers(
                 payload.activeUsers.filter(
                   (username) => username !== getUserName()
                 )
               );
 
-              if (Array.isArray(payload.projectEvents)) {
+              if (payload.snapshot === "chunked") {
+                eventsData.clear(SERVER_SENDER_ID);
+                console.log(
+                  `ProjectPage: Receiving ${payload.eventCount} project events in chunks.`
+                );
+              } else if (Array.isArray(payload.projectEvents)) {
                 eventsData.clear(SERVER_SENDER_ID);
                 eventsData.add(payload.projectEvents, SERVER_SENDER_ID);
                 console.log(
@@ -127,6 +227,77 @@ export function ProjectPage() {
 
               break;
             }
+            case "snapshot_chunk": {
+              const payload = message.data as WsMessagePayloadSnapshotChunk;
+              eventsData.update(payload.events, SERVER_SENDER_ID);
+              break;
+            }
+            case "snapshot_end": {
+              const payload = message.data as WsMessagePayloadSnapshotEnd;
+              console.log(
+                `ProjectPage: Snapshot loaded, ${payload.eventCount} events in ${payload.chunks} chunks.`
+              );
+              break;
+            }
+            case "ack": {
+              const payload = message.data as WsMessagePayloadAck;
+              if (payload.opId !== undefined) {
+                pendingOpsRef.current.delete(payload.opId);
+              }
+              const failed = payload.results?.filter((result) => !result.ok);
+              if (failed && failed.length > 0) {
+                console.error(
+                  `ProjectPage: ${failed.length} operations of the batch were rejected:`,
+                  failed
+                );
+              }
+              console.log(
+                `ProjectPage: ${payload.type} of ${payload.id ?? "batch"} committed at ${payload.seq}, ${pendingOpsRef.current.size} pending.`
+              );
+              break;
+            }
+            case "batch":
+              applyBatch(message.data as WsMessagePayloadBatch);
+              break;
+            case "skip":
+              break;
+            case "error": {
+              const payload = message.data as WsMessagePayloadError;
+              if (payload.opId !== undefined) {
+                pendingOpsRef.current.delete(payload.opId);
+              }
+              console.error("ProjectPage: Server rejected message:", payload);
+              break;
+            }
+            case "viewport_events": {
+              const payload = message.data as WsMessagePayloadViewportEvents;
+              eventsData.update(payload.events, SERVER_SENDER_ID);
+              eventsData.remove(payload.removed, SERVER_SENDER_ID);
+              console.log(
+                `ProjectPage: Viewport changed, ${payload.events.length} events loaded, ${payload.removed.length} dropped.`
+              );
+              break;
+            }
+            case "connection_resumed": {
+              const payload = message.data as WsMessagePayloadConnectionResumed;
+              console.log(
+                "Resumed connection, replaying missed operations:",
+                payload
+              );
+              setActiveUsers(
+                payload.activeUsers.filter(
+                  (username) => username !== getUserName()
+                )
+              );
+              if (viewportRef.current) {
+                // The server replayed against the events it guessed we hold; tell it which ones we do.
+                sendTimelineEventToServer("viewport", {
+                  data: { ...viewportRef.current, known: eventsData.getIds() },
+                  timestamp: Date.now(),
+                });
+              }
+              break;
+            }
             case "user_left":
             case "user_joined": {
               const payload = message.data as WsMessagePayloadUserJoined;
@@ -158,6 +329,20 @@ export function ProjectPage() {
                 message.data
               );
               break;
+            case "patch": {
+              const patch = (message.data as WsMessagePayloadAction)
+                .data as TimelineWSEvent;
+              const current =
+                patch.id !== undefined ? eventsData.get(patch.id) : null;
+              if (current) {
+                eventsData.update(
+                  applyMergePatch(current, patch),
+                  SERVER_SENDER_ID
+                );
+                console.log("ProjectPage: Event patched in DataSet:", patch);
+              }
+              break;
+            }
             case "delete": {
               const idToRemove = (message.data as WsMessagePayloadAction)
                 .data as TimelineWSEvent;
@@ -188,7 +373,6 @@ export function ProjectPage() {
             `ProjectPage: WebSocket error for project ${projectId}:`,
             wsError
           );
-          setError("Timeline connection error. Please try refreshing.");
           webSocketRef.current = null;
         };
 
@@ -196,10 +380,27 @@ export function ProjectPage() {
           console.log(
             `ProjectPage: WebSocket disconnected for project ${projectId}. Code: ${closeEvent.code}, Reason: ${closeEvent.reason}`
           );
-          if (webSocketRef.current && closeEvent.code !== 1000) {
-            setError("Timeline disconnected. Please refresh.");
-          }
           webSocketRef.current = null;
+          if (pendingOpsRef.current.size > 0) {
+            console.warn(
+              `ProjectPage: ${pendingOpsRef.current.size} operations were not acknowledged before disconnecting.`
+            );
+            pendingOpsRef.current.clear();
+          }
+          if (closeEvent.code === SLOW_CONSUMER_CLOSE_CODE) {
+            // The server could not queue an operation for us, so start over from a snapshot.
+            resumeRef.current = null;
+          }
+          if (closeEvent.code !== 1000) {
+            console.log(
+              `ProjectPage: Reconnecting in ${RECONNECT_DELAY_MS} ms, resuming from`,
+              resumeRef.current
+            );
+            reconnectTimerRef.current = setTimeout(
+              connectWebSocket,
+              RECONNECT_DELAY_MS
+            );
+          }
         };
       };
 
@@ -207,6 +408,9 @@ export function ProjectPage() {
     }
 
     return () => {
+      if (reconnectTimerRef.current) {
+        clearTimeout(reconnectTimerRef.current);
+      }
       if (webSocketRef.current) {
         console.log(
           `ProjectPage: Cleaning up WebSocket for project ${projectId}`
@@ -229,7 +433,12 @@ export function ProjectPage() {
       webSocketRef.current &&
       webSocketRef.current.readyState === WebSocket.OPEN
     ) {
-      const message: WebSocketMessage = { type, data };
+      let message: WebSocketMessage = { type, data };
+      if (type !== "viewport") {
+        const opId = String(++nextOpIdRef.current);
+        pendingOpsRef.current.set(opId, type);
+        message = { type, data: { ...data, opId } };
+      }
       webSocketRef.current.send(JSON.stringify(message));
       console.log("ProjectPage: Sent timeline event to server:", message);
     } else {
@@ -240,6 +449,14 @@ export function ProjectPage() {
     }
   };
 
+  const sendViewportToServer = (viewport: TimelineViewport) => {
+    viewportRef.current = viewport;
+    sendTimelineEventToServer("viewport", {
+      data: viewport,
+      timestamp: Date.now(),
+    });
+  };
+
   if (loading) {
     return (
       <div className="flex flex-col h-full gap-5">
@@ -434,6 +651,7 @@ export function ProjectPage() {
             projectId={project.id}
             eventsData={eventsData}
             sendTimelineEventToServer={sendTimelineEventToServer}
+            onViewportChange={sendViewportToServer}
           />
         )}
       </Island>
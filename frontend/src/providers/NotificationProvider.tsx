@@ -5,14 +5,18 @@ import React, {
   useEffect,
   ReactNode,
   useCallback,
+  useRef,
 } from "react";
 import { EventSourcePolyfill } from "event-source-polyfill";
 import { useAuth } from "./AuthProvider";
-import { Notification } from "../types/notification";
+import { Notification, NotificationPage } from "../types/notification";
 import { toApiUrl } from "../utils/api";
 
 interface NotificationContextType {
   notifications: Notification[];
+  unreadCount: number;
+  hasMoreNotifications: boolean;
+  loadMoreNotifications: () => Promise<void>;
   markNotificationAsRead: (notificationId: number) => Promise<void>;
 }
 
@@ -28,31 +32,85 @@ export const NotificationProvider: React.FC<NotificationProviderProps> = ({
   children,
 }) => {
   const [notifications, setNotifications] = useState<Notification[]>([]);
+  const [unreadCount, setUnreadCount] = useState(0);
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
+  // Ids already shown, so replayed or duplicated events are not counted twice.
+  const knownIds = useRef<Set<number>>(new Set());
   const { getToken, isAuthenticated } = useAuth();
   const [activeEventSource, setActiveEventSource] =
     useState<EventSourcePolyfill | null>(null);
 
-  const fetchInitialNotifications = useCallback(async (token: string) => {
-    try {
-      const response = await fetch(toApiUrl("/notifications"), {
+  const fetchNotificationPage = useCallback(
+    async (token: string, cursor: string | null) => {
+      const query = cursor ? `?cursor=${encodeURIComponent(cursor)}` : "";
+      const response = await fetch(toApiUrl(`/notifications${query}`), {
         headers: {
           Authorization: `Bearer ${token}`,
         },
       });
-      if (response.ok) {
-        const initialNotifications = (await response.json()) as Notification[];
-        setNotifications(initialNotifications);
-      } else {
+      if (!response.ok) {
         console.error(
-          "Failed to fetch initial notifications:",
+          "Failed to fetch notifications:",
           response.status,
           response.statusText
         );
+        return null;
+      }
+      return (await response.json()) as NotificationPage;
+    },
+    []
+  );
+
+  const fetchInitialNotifications = useCallback(async (token: string) => {
+    try {
+      const [page, countResponse] = await Promise.all([
+        fetchNotificationPage(token, null),
+        fetch(toApiUrl("/notifications/unread-count"), {
+          headers: {
+            Authorization: `Bearer ${token}`,
+          },
+        }),
+      ]);
+      if (page) {
+        knownIds.current = new Set(page.items.map((n) => n.id));
+        setNotifications(page.items);
+        setNextCursor(page.nextCursor);
+      }
+      if (countResponse.ok) {
+        const { count } = (await countResponse.json()) as { count: number };
+        setUnreadCount(count);
+      } else {
+        console.error(
+          "Failed to fetch unread notification count:",
+          countResponse.status,
+          countResponse.statusText
+        );
       }
     } catch (error) {
       console.error("Error fetching initial notifications:", error);
     }
-  }, []);
+  }, [fetchNotificationPage]);
+
+  const loadMoreNotifications = useCallback(async () => {
+    const token = getToken();
+    if (!token || !nextCursor) {
+      return;
+    }
+    try {
+      const page = await fetchNotificationPage(token, nextCursor);
+      if (page) {
+        const older = page.items.filter((n) => !knownIds.current.has(n.id));
+        older.forEach((n) => knownIds.current.add(n.id));
+        setNotifications((prevNotifications) => [
+          ...prevNotifications,
+          ...older,
+        ]);
+        setNextCursor(page.nextCursor);
+      }
+    } catch (error) {
+      console.error("Error fetching more notifications:", error);
+    }
+  }, [getToken, nextCursor, fetchNotificationPage]);
 
   useEffect(() => {
     const token = getToken();
@@ -63,12 +121,22 @@ export const NotificationProvider: React.FC<NotificationProviderProps> = ({
     const handleNotificationData = (eventData: string, eventType?: string) => {
       try {
         const newNotification = JSON.parse(eventData) as Notification;
-        setNotifications((prevNotifications) => {
-          if (prevNotifications.some((n) => n.id === newNotification.id)) {
-            return prevNotifications;
+        // Events without an id were never stored, so they are neither
+        // replayed twice nor counted as unread.
+        const stored = newNotification.id != null;
+        if (stored) {
+          if (knownIds.current.has(newNotification.id)) {
+            return;
           }
-          return [...prevNotifications, newNotification];
-        });
+          knownIds.current.add(newNotification.id);
+        }
+        setNotifications((prevNotifications) => [
+          newNotification,
+          ...prevNotifications,
+        ]);
+        if (stored) {
+          setUnreadCount((count) => count + 1);
+        }
       } catch (error) {
         console.error(
           `Error parsing ${eventType || "generic"} notification data:`,
@@ -139,7 +207,12 @@ export const NotificationProvider: React.FC<NotificationProviderProps> = ({
 
       eventSourceInstanceInThisEffect.onerror = (error) => {
         console.error("EventSource failed:", error);
-        eventSourceInstanceInThisEffect?.close();
+        // While it is still reconnecting the polyfill sends the last event id,
+        // so the server replays whatever was missed in the meantime.
+        if (eventSourceInstanceInThisEffect?.readyState !== 2) {
+          return;
+        }
+        eventSourceInstanceInThisEffect.close();
         setActiveEventSource((prev) =>
           prev === eventSourceInstanceInThisEffect ? null : prev
         );
@@ -207,6 +280,7 @@ export const NotificationProvider: React.FC<NotificationProviderProps> = ({
               (notification) => notification.id !== notificationId
             )
           );
+          setUnreadCount((count) => Math.max(0, count - 1));
         } else {
           console.error(
             "Failed to mark notification as read:",
@@ -223,7 +297,13 @@ export const NotificationProvider: React.FC<NotificationProviderProps> = ({
 
   return (
     <NotificationContext.Provider
-      value={{ notifications, markNotificationAsRead }}
+      value={{
+        notifications,
+        unreadCount,
+        hasMoreNotifications: nextCursor !== null,
+        loadMoreNotifications,
+        markNotificationAsRead,
+      }}
     >
       {children}
     </NotificationContext.Provider>
@@ -11,6 +11,11 @@ export interface Notification {
   readStatus: boolean;
 }
 
+export interface NotificationPage {
+  items: Notification[];
+  nextCursor: string | null;
+}
+
 export interface Data {
   id: number;
   invitedUser: User;
@@ -1,4 +1,4 @@
-import { DataItem } from "vis-timeline/standalone";
+import { DataItem, IdType } from "vis-timeline/standalone";
 
 export interface TimelineWSEvent extends DataItem {
   details?: string;
@@ -6,8 +6,16 @@ export interface TimelineWSEvent extends DataItem {
 
 export interface WebSocketMessage {
   type: string;
+  seq?: number;
   data:
     | WsMessagePayloadConnectionSuccess
+    | WsMessagePayloadConnectionResumed
+    | WsMessagePayloadSnapshotChunk
+    | WsMessagePayloadSnapshotEnd
+    | WsMessagePayloadViewportEvents
+    | WsMessagePayloadAck
+    | WsMessagePayloadBatch
+    | WsMessagePayloadSkip
     | WsMessagePayloadUserJoined
     | WsMessagePayloadError
     | WsMessagePayloadAction;
@@ -21,7 +29,45 @@ export interface WsMessagePayloadConnectionSuccess
   extends WebSocketMessagePayload,
     WsMessagePayloadUserJoined {
   projectId: number;
-  projectEvents: TimelineWSEvent[];
+  epoch: string;
+  seq: number;
+  // Present unless the snapshot was requested in chunks.
+  projectEvents?: TimelineWSEvent[];
+  snapshot?: "chunked";
+  eventCount?: number;
+}
+
+export interface WsMessagePayloadSnapshotChunk extends WebSocketMessagePayload {
+  projectId: number;
+  index: number;
+  events: TimelineWSEvent[];
+}
+
+export interface WsMessagePayloadSnapshotEnd extends WebSocketMessagePayload {
+  projectId: number;
+  chunks: number;
+  eventCount: number;
+}
+
+// Visible time range in epoch milliseconds; the server only sends the events inside it.
+export interface TimelineViewport {
+  start: number;
+  end: number;
+  groups?: IdType[];
+}
+
+export interface WsMessagePayloadViewportEvents
+  extends WebSocketMessagePayload {
+  events: TimelineWSEvent[];
+  removed: IdType[];
+}
+
+export interface WsMessagePayloadConnectionResumed
+  extends WebSocketMessagePayload,
+    WsMessagePayloadUserJoined {
+  projectId: number;
+  epoch: string;
+  seq: number;
 }
 
 export interface WsMessagePayloadUserJoined extends WebSocketMessagePayload {
@@ -31,8 +77,42 @@ export interface WsMessagePayloadUserJoined extends WebSocketMessagePayload {
 
 export interface WsMessagePayloadError extends WebSocketMessagePayload {
   message: string;
+  opId?: string;
+}
+
+// Sent to the author of an operation once it has been applied.
+export interface WsMessagePayloadAck extends WebSocketMessagePayload {
+  opId?: string;
+  type: string;
+  id?: IdType;
+  // Missing when no operation of a batch could be applied.
+  seq?: number;
+  results?: TimelineBatchResult[];
+}
+
+export interface TimelineBatchOperation {
+  type: "add" | "update" | "patch" | "delete";
+  data: Partial<TimelineWSEvent> & { id: IdType };
+}
+
+export interface TimelineBatchResult {
+  index: number;
+  id?: IdType;
+  ok: boolean;
+  error?: string;
+}
+
+// Operations from `from` up to the message's seq that the viewport filtered out.
+export interface WsMessagePayloadSkip {
+  from: number;
+}
+
+export interface WsMessagePayloadBatch extends WebSocketMessagePayload {
+  data: { ops: TimelineBatchOperation[] };
+  username: string;
 }
 
 export interface WsMessagePayloadAction extends WebSocketMessagePayload {
   data: unknown;
+  opId?: string;
 }
@@ -0,0 +1,44 @@
+type JsonObject = Record<string, unknown>;
+
+const isObject = (value: unknown): value is JsonObject =>
+  typeof value === "object" &&
+  value !== null &&
+  !Array.isArray(value) &&
+  !(value instanceof Date);
+
+// RFC 7386: null removes a field, objects merge recursively, anything else replaces.
+export function applyMergePatch<T extends object>(target: T, patch: object): T {
+  const result: JsonObject = { ...(target as JsonObject) };
+  Object.entries(patch).forEach(([key, value]) => {
+    if (value === null) {
+      delete result[key];
+    } else if (isObject(value)) {
+      const current = result[key];
+      result[key] = applyMergePatch(isObject(current) ? current : {}, value);
+    } else {
+      result[key] = value;
+    }
+  });
+  return result as T;
+}
+
+// Top-level fields of `next` that differ from `previous`, with removed fields set to null.
+export function createMergePatch(
+  previousItem: object,
+  nextItem: object
+): JsonObject {
+  const previous = previousItem as JsonObject;
+  const next = nextItem as JsonObject;
+  const patch: JsonObject = {};
+  Object.keys(next).forEach((key) => {
+    if (JSON.stringify(previous[key]) !== JSON.stringify(next[key])) {
+      patch[key] = next[key] === undefined ? null : next[key];
+    }
+  });
+  Object.keys(previous).forEach((key) => {
+    if (!(key in next)) {
+      patch[key] = null;
+    }
+  });
+  return patch;
+}